@@ -1,5 +1,6 @@
 import com.github.spotbugs.snom.Effort
 import com.github.spotbugs.snom.Confidence
+import com.github.spotbugs.snom.SpotBugsTask
 import org.cthing.projectversion.BuildType
 import org.cthing.projectversion.ProjectVersion
 import java.text.SimpleDateFormat
@@ -25,6 +26,7 @@ plugins {
     alias(libs.plugins.cthingPublishing)
     alias(libs.plugins.cthingVersioning)
     alias(libs.plugins.dependencyAnalysis)
+    alias(libs.plugins.jmh)
     alias(libs.plugins.pluginPublish)
     alias(libs.plugins.spotbugs)
     alias(libs.plugins.versions)
@@ -34,6 +36,15 @@ version = ProjectVersion("2.0.1", BuildType.snapshot)
 group = "org.cthing"
 description = "A Gradle plugin for creating DEB packages for C Thing Software projects."
 
+val perfTest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+val perfTestImplementation: Configuration by configurations.getting {
+    extendsFrom(configurations.implementation.get())
+}
+
 java {
     toolchain {
         languageVersion = JavaLanguageVersion.of(libs.versions.java.get())
@@ -43,6 +54,7 @@ java {
 gradlePlugin {
     website = "https://github.com/cthing/gradle-cthing-deb"
     vcsUrl = "https://github.com/cthing/gradle-cthing-deb"
+    testSourceSets(sourceSets.test.get(), perfTest)
 
     plugins.create("debPlugin", Action {
         id = "org.cthing.cthing-deb"
@@ -57,12 +69,16 @@ dependencies {
     api(libs.cthingPublishingPlugin)
     api(libs.jspecify)
 
+    implementation(libs.commonsCompress)
     implementation(libs.commonsIO)
     implementation(libs.cthingProjectVersion)
     implementation(libs.freemarker)
     implementation(libs.httpClient)
     implementation(libs.httpCore)
 
+    runtimeOnly(libs.xz)
+    runtimeOnly(libs.zstd)
+
     testImplementation(libs.assertJ)
     testImplementation(libs.assertJGradle)
     testImplementation(libs.junitApi)
@@ -71,6 +87,8 @@ dependencies {
     testRuntimeOnly(libs.junitEngine)
     testRuntimeOnly(libs.junitLauncher)
 
+    perfTestImplementation(gradleTestKit())
+
     spotbugsPlugins(libs.spotbugsContrib)
 }
 
@@ -94,6 +112,13 @@ jacoco {
     toolVersion = libs.versions.jacoco.get()
 }
 
+jmh {
+    jmhVersion = libs.versions.jmh
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+    includes.addAll(providers.gradleProperty("jmhIncludes").map { listOf(it) }.orElse(emptyList()))
+}
+
 dependencyAnalysis {
     issues {
         all {
@@ -113,7 +138,9 @@ fun isNonStable(version: String): Boolean {
 tasks {
     withType<JavaCompile> {
         options.release = libs.versions.java.get().toInt()
-        options.compilerArgs.addAll(listOf("-Xlint:all", "-Xlint:-options", "-Werror"))
+        if (name != "jmhCompileGeneratedClasses") {
+            options.compilerArgs.addAll(listOf("-Xlint:all", "-Xlint:-options", "-Werror"))
+        }
     }
 
     withType<Jar> {
@@ -147,6 +174,28 @@ tasks {
         isEnabled = false
     }
 
+    spotbugsJmh {
+        isEnabled = false
+    }
+
+    named<SpotBugsTask>("spotbugsPerfTest") {
+        isEnabled = false
+    }
+
+    register<JavaExec>("packagingBenchmark") {
+        description = "Measures end-to-end packaging builds of the test fixtures and synthetic projects"
+        group = "verification"
+        classpath = perfTest.runtimeClasspath
+        mainClass = "org.cthing.gradle.plugins.deb.PackagingBenchmark"
+        systemProperty("benchmark.fixturesDir", file("src/test/resources").absolutePath)
+        systemProperty("benchmark.workDir", layout.buildDirectory.dir("packaging-benchmark").get().asFile.absolutePath)
+        systemProperty("benchmark.output",
+                       layout.buildDirectory.file("reports/packaging-benchmark/results.json").get().asFile.absolutePath)
+        listOf("fixtures", "subprojects", "payloadMb", "iterations", "coldIterations").forEach { name ->
+            providers.gradleProperty("benchmark.$name").orNull?.let { systemProperty("benchmark.$name", it) }
+        }
+    }
+
     publishPlugins {
         doFirst {
             if (!cthingPublishing.hasGradlePluginPortalCredentials()) {
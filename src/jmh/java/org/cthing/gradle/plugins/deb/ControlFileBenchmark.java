@@ -0,0 +1,114 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures parsing of a typical source control file and of a large {@code Packages} index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ControlFileBenchmark {
+
+    private static final String SOURCE_CONTROL = """
+            Source: test-package
+            Maintainer: Test User <tester@cthing.com>
+            Priority: optional
+            Section: utils
+            Build-Depends: debhelper (>= 12)
+            Standards-Version: 4.6.2
+            Homepage: https://www.cthing.com
+
+            Package: test-package
+            Architecture: all
+            Depends: ${misc:Depends}, openjdk-17-jre-headless
+            Description: Testing package
+             A test package used to measure the performance of parsing
+             control files.
+             .
+             It has a multi-line description.
+            """;
+
+    @Param({ "1000", "50000" })
+    private int packageCount;
+
+    private byte[] sourceControl;
+    private byte[] packages;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.sourceControl = SOURCE_CONTROL.getBytes(StandardCharsets.UTF_8);
+
+        final StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < this.packageCount; i++) {
+            buffer.append("Package: package").append(i).append('\n')
+                  .append("Version: 1.").append(i % 100).append('.').append(i).append("-1\n")
+                  .append("Architecture: amd64\n")
+                  .append("Maintainer: Test User <tester@cthing.com>\n")
+                  .append("Installed-Size: ").append(i * 7 % 10000).append('\n')
+                  .append("Depends: libc6 (>= 2.34), libssl3 (>= 3.0.0)\n")
+                  .append("Filename: ./package").append(i).append("_1.").append(i).append("-1_amd64.deb\n")
+                  .append("Size: ").append(i * 13 % 100000).append('\n')
+                  .append("SHA256: ").append("0123456789abcdef".repeat(4)).append('\n')
+                  .append("Description: Package number ").append(i).append('\n')
+                  .append(" This is a longer description of the package which spans\n")
+                  .append(" several lines, as descriptions in real indexes do.\n")
+                  .append(" .\n")
+                  .append(" A second paragraph.\n")
+                  .append('\n');
+        }
+        this.packages = buffer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ControlFile parseSourceControl() {
+        return ControlFile.parse(new ByteArrayInputStream(this.sourceControl));
+    }
+
+    @Benchmark
+    public String parseSourceControlField() {
+        return ControlFile.parse(new ByteArrayInputStream(this.sourceControl)).get("Description");
+    }
+
+    @Benchmark
+    public ControlFile parsePackages() {
+        return ControlFile.parse(new ByteArrayInputStream(this.packages));
+    }
+
+    @Benchmark
+    public int readPackages() throws IOException {
+        int count = 0;
+        try (ControlFileReader reader = new ControlFileReader(new ByteArrayInputStream(this.packages))) {
+            while (reader.hasNext()) {
+                if (reader.next().getPackage() != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
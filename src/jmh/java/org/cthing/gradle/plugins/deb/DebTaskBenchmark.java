@@ -0,0 +1,112 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.commons.io.FileUtils;
+import org.cthing.projectversion.BuildType;
+import org.cthing.projectversion.ProjectVersion;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Measures the creation of the variables made available to the Debian configuration file templates and the rules
+ * file, which happens several times for each package built.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DebTaskBenchmark {
+
+    @Param({ "10", "200" })
+    private int variableCount;
+
+    private File projectDir;
+    private DebTask task;
+    private ProjectVersion version;
+    private Map<String, Object> variables;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.projectDir = Files.createTempDirectory("debTaskBenchmark").toFile();
+        final Project project = ProjectBuilder.builder().withProjectDir(this.projectDir).build();
+        project.getPluginManager().apply("java");
+        project.getPluginManager().apply("org.cthing.cthing-deb");
+
+        this.version = new ProjectVersion("1.2.3", BuildType.snapshot);
+        project.setVersion(this.version);
+        project.setGroup("org.cthing");
+
+        // A mix of plain values, suppliers and callables, as found in build scripts that compute variables lazily
+        this.variables = new HashMap<>();
+        for (int i = 0; i < this.variableCount; i++) {
+            final String value = "value" + i;
+            switch (i % 3) {
+                case 0 -> this.variables.put("var" + i, value);
+                case 1 -> this.variables.put("var" + i, (Supplier<String>)() -> value);
+                default -> this.variables.put("var" + i, (Callable<String>)() -> value);
+            }
+        }
+
+        this.task = project.getTasks().register("generateDeb", DebTask.class, debTask -> {
+            debTask.getDebianDir().set(new File(this.projectDir, "debian"));
+            debTask.getScmUrl().set("https://github.com/cthing/gradle-cthing-deb");
+            debTask.getAdditionalVariables().putAll(this.variables);
+        }).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.projectDir);
+    }
+
+    @Benchmark
+    public Map<String, String> createTemplateVariables() {
+        return this.task.createTemplateVariables();
+    }
+
+    @Benchmark
+    public Map<String, String> createEnvironmentVariables() {
+        return this.task.createEnvironmentVariables("test-package");
+    }
+
+    @Benchmark
+    public void stringize(final Blackhole blackhole) {
+        for (final Object value : this.variables.values()) {
+            blackhole.consume(DebTask.stringize(value));
+        }
+    }
+
+    @Benchmark
+    public String getChangelogDate() {
+        return DebTask.getChangelogDate(this.version);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Compares {@link DebianVersion} with a straightforward implementation of the dpkg version comparison that splits
+ * versions using regular expressions and substrings, as is typical of version comparisons found in build scripts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DebianVersionBenchmark {
+
+    private static final String[] SUFFIXES = { "", "~rc1", "~beta2", "+dfsg", "+git20250101", "a", ".post1" };
+    private static final String[] REVISIONS = { "", "-1", "-2", "-0ubuntu1", "-1~bpo12+1", "-10" };
+    private static final Pattern VERSION_PATTERN = Pattern.compile("^(?:(\\d+):)?(.+?)(?:-([^-]+))?$");
+    private static final Pattern PART_PATTERN = Pattern.compile("(\\D*)(\\d*)");
+
+    @Param({ "1000", "100000" })
+    private int count;
+
+    private String[] strings;
+    private DebianVersion[] versions;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random(1234);
+        this.strings = new String[this.count];
+        this.versions = new DebianVersion[this.count];
+        for (int i = 0; i < this.count; i++) {
+            final StringBuilder version = new StringBuilder();
+            if (random.nextInt(20) == 0) {
+                version.append(random.nextInt(3)).append(':');
+            }
+            version.append(random.nextInt(5)).append('.').append(random.nextInt(20)).append('.')
+                   .append(random.nextInt(100))
+                   .append(SUFFIXES[random.nextInt(SUFFIXES.length)])
+                   .append(REVISIONS[random.nextInt(REVISIONS.length)]);
+            this.strings[i] = version.toString();
+            this.versions[i] = DebianVersion.parse(this.strings[i]);
+        }
+    }
+
+    @Benchmark
+    public void compareParsed(final Blackhole blackhole) {
+        for (int i = 1; i < this.count; i++) {
+            blackhole.consume(this.versions[i - 1].compareTo(this.versions[i]));
+        }
+    }
+
+    @Benchmark
+    public void compareStrings(final Blackhole blackhole) {
+        for (int i = 1; i < this.count; i++) {
+            blackhole.consume(DebianVersion.compare(this.strings[i - 1], this.strings[i]));
+        }
+    }
+
+    @Benchmark
+    public void compareNaive(final Blackhole blackhole) {
+        for (int i = 1; i < this.count; i++) {
+            blackhole.consume(naiveCompare(this.strings[i - 1], this.strings[i]));
+        }
+    }
+
+    @Benchmark
+    public DebianVersion[] sortParsed() {
+        final DebianVersion[] sorted = this.versions.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    @Benchmark
+    public String[] sortStrings() {
+        final String[] sorted = this.strings.clone();
+        Arrays.sort(sorted, DebianVersion::compare);
+        return sorted;
+    }
+
+    @Benchmark
+    public String[] sortNaive() {
+        final String[] sorted = this.strings.clone();
+        Arrays.sort(sorted, (Comparator<String>)DebianVersionBenchmark::naiveCompare);
+        return sorted;
+    }
+
+    private static int naiveCompare(final String version1, final String version2) {
+        final Matcher matcher1 = VERSION_PATTERN.matcher(version1);
+        final Matcher matcher2 = VERSION_PATTERN.matcher(version2);
+        if (!matcher1.matches() || !matcher2.matches()) {
+            throw new IllegalArgumentException("Invalid version");
+        }
+
+        final long epoch1 = matcher1.group(1) == null ? 0 : Long.parseLong(matcher1.group(1));
+        final long epoch2 = matcher2.group(1) == null ? 0 : Long.parseLong(matcher2.group(1));
+        if (epoch1 != epoch2) {
+            return Long.compare(epoch1, epoch2);
+        }
+
+        final int result = naiveComparePart(matcher1.group(2), matcher2.group(2));
+        if (result != 0) {
+            return result;
+        }
+        return naiveComparePart(matcher1.group(3) == null ? "" : matcher1.group(3),
+                                matcher2.group(3) == null ? "" : matcher2.group(3));
+    }
+
+    private static int naiveComparePart(final String part1, final String part2) {
+        final Matcher matcher1 = PART_PATTERN.matcher(part1);
+        final Matcher matcher2 = PART_PATTERN.matcher(part2);
+        int pos1 = 0;
+        int pos2 = 0;
+        while (pos1 < part1.length() || pos2 < part2.length()) {
+            final String letters1;
+            final String digits1;
+            if (pos1 < part1.length() && matcher1.find(pos1)) {
+                letters1 = matcher1.group(1);
+                digits1 = matcher1.group(2);
+                pos1 = matcher1.end();
+            } else {
+                letters1 = "";
+                digits1 = "";
+            }
+
+            final String letters2;
+            final String digits2;
+            if (pos2 < part2.length() && matcher2.find(pos2)) {
+                letters2 = matcher2.group(1);
+                digits2 = matcher2.group(2);
+                pos2 = matcher2.end();
+            } else {
+                letters2 = "";
+                digits2 = "";
+            }
+
+            final int result = naiveCompareLetters(letters1, letters2);
+            if (result != 0) {
+                return result;
+            }
+
+            final long number1 = digits1.isEmpty() ? 0 : Long.parseLong(digits1);
+            final long number2 = digits2.isEmpty() ? 0 : Long.parseLong(digits2);
+            if (number1 != number2) {
+                return Long.compare(number1, number2);
+            }
+        }
+        return 0;
+    }
+
+    private static int naiveCompareLetters(final String letters1, final String letters2) {
+        final int length = Math.max(letters1.length(), letters2.length());
+        for (int i = 0; i < length; i++) {
+            final int order1 = i < letters1.length() ? naiveOrder(letters1.charAt(i)) : 0;
+            final int order2 = i < letters2.length() ? naiveOrder(letters2.charAt(i)) : 0;
+            if (order1 != order2) {
+                return order1 - order2;
+            }
+        }
+        return 0;
+    }
+
+    private static int naiveOrder(final char c) {
+        if (c == '~') {
+            return -1;
+        }
+        return Character.isLetter(c) ? c : c + 256;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.services.BuildServiceParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+
+
+/**
+ * Measures variable replacement in the control and changelog files using the shared template service.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateBenchmark {
+
+    private static final String CONTROL = """
+            Source: ${project_name}
+            Maintainer: Test User <tester@cthing.com>
+            Priority: optional
+            Section: utils
+            Build-Depends: debhelper (>= 12)
+
+            Package: ${project_name}
+            Description: Testing package
+             A test package for benchmarking
+            Architecture: ${architecture}
+            ${cthing_metadata}
+            """;
+
+    private static final String CHANGELOG = """
+            ${project_name} (${project_version}) unstable; urgency=low
+              * Latest release
+             -- Test User <tester@cthing.com>  ${project_changelog_date}
+            """;
+
+    private File templateDir;
+    private TemplateService templateService;
+    private File controlFile;
+    private Template controlTemplate;
+    private Template changelogTemplate;
+    private Map<String, String> variables;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.templateDir = Files.createTempDirectory("templateBenchmark").toFile();
+        final Path controlPath = this.templateDir.toPath().resolve("control");
+        final Path changelogPath = this.templateDir.toPath().resolve("changelog");
+        Files.writeString(controlPath, CONTROL, StandardCharsets.UTF_8);
+        Files.writeString(changelogPath, CHANGELOG, StandardCharsets.UTF_8);
+        this.controlFile = controlPath.toFile();
+
+        this.templateService = new TemplateService() {
+            @Override
+            public BuildServiceParameters.None getParameters() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        this.controlTemplate = this.templateService.getTemplate(this.controlFile);
+        this.changelogTemplate = this.templateService.getTemplate(changelogPath.toFile());
+
+        this.variables = new HashMap<>();
+        this.variables.put("project_name", "test-package");
+        this.variables.put("project_version", "1.2.3-1638042324837");
+        this.variables.put("project_changelog_date", "Sat, 27 Nov 2021 19:45:24 +0000");
+        this.variables.put("architecture", "all");
+        this.variables.put("cthing_metadata", "XB-Cthing-Build-Number: 1638042324837\n"
+                + "XB-Cthing-Build-Date: 2021-11-27T19:45:24Z");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.templateDir);
+    }
+
+    @Benchmark
+    public String renderControl() throws IOException, TemplateException {
+        return render(this.controlTemplate);
+    }
+
+    @Benchmark
+    public String renderChangelog() throws IOException, TemplateException {
+        return render(this.changelogTemplate);
+    }
+
+    @Benchmark
+    public String lookupAndRenderControl() throws IOException, TemplateException {
+        return render(this.templateService.getTemplate(this.controlFile));
+    }
+
+    private String render(final Template template) throws IOException, TemplateException {
+        final StringWriter writer = new StringWriter();
+        template.process(this.variables, writer);
+        return writer.toString();
+    }
+}
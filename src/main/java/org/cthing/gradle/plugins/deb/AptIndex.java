@@ -0,0 +1,447 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Maintains the index files of a flat APT repository on the local filesystem (i.e. a repository whose packages are
+ * all in a single directory and that is referenced using {@code deb file:/path/to/repo ./}). The {@code Packages},
+ * {@code Packages.gz}, {@code Packages.xz} and {@code Release} files are generated in the manner of
+ * {@code dpkg-scanpackages}, but incrementally. The size and modification time of each indexed package is
+ * persisted, and only packages that are new or have changed since the index was last updated are read. The stanza
+ * for a package is created from its package information file ({@code .info}) when available, so that the package
+ * only needs to be read to calculate its checksums. The stanzas of unchanged packages are copied from the existing
+ * {@code Packages} file as is. The index files are still rewritten and compressed in full on every update, which
+ * takes time proportional to the size of the index.
+ */
+final class AptIndex {
+
+    static final String PACKAGES = "Packages";
+    static final String PACKAGES_GZ = "Packages.gz";
+    static final String PACKAGES_XZ = "Packages.xz";
+    static final String RELEASE = "Release";
+    static final String STATE = ".packages-state";
+    static final String DEB_EXTENSION = ".deb";
+
+    private static final Logger LOGGER = Logging.getLogger(AptIndex.class);
+    private static final String LOCK = ".packages-lock";
+    private static final String INFO_EXTENSION = ".info";
+    private static final String FILENAME_FIELD = "Filename";
+    private static final String DESCRIPTION_FIELD = "Description";
+    private static final String FIELD_SEPARATOR = "\t";
+    private static final String FILENAME_PREFIX = "./";
+    private static final String STANZA_SEPARATOR = "\n\n";
+    private static final byte[] AR_MAGIC = "!<arch>\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int AR_HEADER_LENGTH = 60;
+    private static final int AR_NAME_LENGTH = 16;
+    private static final int AR_SIZE_OFFSET = 48;
+    private static final int AR_SIZE_LENGTH = 10;
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final int TAR_NAME_LENGTH = 100;
+    private static final int TAR_SIZE_OFFSET = 124;
+    private static final int TAR_SIZE_LENGTH = 12;
+    private static final int TAR_TYPE_OFFSET = 156;
+    private static final int TAR_SIZE_RADIX = 8;
+    private static final int STATE_FIELDS = 3;
+    private static final DateTimeFormatter RELEASE_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'UTC'", Locale.ROOT);
+    private static final Map<Path, Object> REPO_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path repoDir;
+    private int indexedCount;
+
+    /**
+     * Recorded state of an indexed package.
+     *
+     * @param size Size of the package file in bytes
+     * @param modified Modification time of the package file in milliseconds since the epoch
+     */
+    private record State(long size, long modified) {
+    }
+
+    /**
+     * Creates an index for the specified repository directory.
+     *
+     * @param repoDir Directory containing the packages and index files
+     */
+    AptIndex(final Path repoDir) {
+        this.repoDir = repoDir;
+    }
+
+    /**
+     * Updates the index files to reflect the packages currently in the repository directory. Packages that have
+     * not changed since the last update are not read. Packages removed from the directory are removed from the
+     * index. The update is serialized with other updates of the same repository, both within this process and
+     * across processes.
+     *
+     * @param infoFiles Package information files for recently published packages, keyed by package filename.
+     *      Packages without an information file have their control file read from the package.
+     * @throws IOException if there was a problem updating the index
+     */
+    void update(final Map<String, Path> infoFiles) throws IOException {
+        final Path realRepoDir = this.repoDir.toRealPath();
+        synchronized (REPO_LOCKS.computeIfAbsent(realRepoDir, key -> new Object())) {
+            try (FileChannel lockChannel = FileChannel.open(realRepoDir.resolve(LOCK), StandardOpenOption.CREATE,
+                                                            StandardOpenOption.WRITE)) {
+                // The lock is released when the channel is closed.
+                lockChannel.lock();
+                updateIndex(infoFiles);
+            }
+        }
+    }
+
+    /**
+     * Obtains the number of packages whose stanzas were created by the last update. Packages whose stanzas were
+     * carried over from the existing index are not counted.
+     *
+     * @return Number of packages read during the last update.
+     */
+    int getIndexedCount() {
+        return this.indexedCount;
+    }
+
+    private void updateIndex(final Map<String, Path> infoFiles) throws IOException {
+        final Map<String, State> previousState = readState();
+        final Map<String, String> previousStanzas = previousState.isEmpty() ? Map.of() : readStanzas();
+
+        final Map<String, State> state = new TreeMap<>();
+        final Map<String, String> stanzas = new TreeMap<>();
+        this.indexedCount = 0;
+
+        try (DirectoryStream<Path> debs = Files.newDirectoryStream(this.repoDir, "*" + DEB_EXTENSION)) {
+            for (final Path deb : debs) {
+                final BasicFileAttributes attrs = Files.readAttributes(deb, BasicFileAttributes.class);
+                if (!attrs.isRegularFile()) {
+                    continue;
+                }
+
+                final String filename = deb.getFileName().toString();
+                final State current = new State(attrs.size(), attrs.lastModifiedTime().toMillis());
+                String stanza = current.equals(previousState.get(filename)) ? previousStanzas.get(filename) : null;
+                if (stanza == null) {
+                    try {
+                        stanza = createStanza(deb, findInfoFile(deb, infoFiles.get(filename)));
+                    } catch (final IOException | LinkageError ex) {
+                        // An unreadable package must not prevent the rest of the repository from being indexed.
+                        // The package is not recorded in the state so that it is read again by the next update.
+                        LOGGER.warn("Not indexing {}, its control file could not be read: {}", deb, ex.getMessage());
+                        continue;
+                    }
+                    this.indexedCount++;
+                }
+
+                state.put(filename, current);
+                stanzas.put(filename, stanza);
+            }
+        }
+
+        final byte[] packages = String.join("\n", stanzas.values()).getBytes(StandardCharsets.UTF_8);
+        final ByteArrayOutputStream packagesGz = new ByteArrayOutputStream();
+        try (OutputStream outs = new GZIPOutputStream(packagesGz)) {
+            outs.write(packages);
+        }
+        final ByteArrayOutputStream packagesXz = new ByteArrayOutputStream();
+        try (OutputStream outs = new XZCompressorOutputStream(packagesXz)) {
+            outs.write(packages);
+        }
+
+        writeAtomically(this.repoDir.resolve(PACKAGES), packages);
+        writeAtomically(this.repoDir.resolve(PACKAGES_GZ), packagesGz.toByteArray());
+        writeAtomically(this.repoDir.resolve(PACKAGES_XZ), packagesXz.toByteArray());
+        writeAtomically(this.repoDir.resolve(RELEASE), createRelease(packages, packagesGz.toByteArray(),
+                                                                     packagesXz.toByteArray()));
+        writeState(state);
+
+        LOGGER.info("Indexed {} packages in {} ({} read)", stanzas.size(), this.repoDir, this.indexedCount);
+    }
+
+    /**
+     * Creates the index stanza for a package. The stanza consists of the fields of the package's control file with
+     * the location, size and checksums of the package added before the description.
+     */
+    private static String createStanza(final Path deb, @Nullable final Path infoFile) throws IOException {
+        final ControlFile control;
+        if (infoFile != null) {
+            try (InputStream ins = Files.newInputStream(infoFile)) {
+                control = ControlFile.parse(ins);
+            }
+        } else {
+            control = ControlFile.parse(new ByteArrayInputStream(readPackageControl(deb)));
+        }
+
+        final Checksums checksums = Checksums.of(deb);
+        final ControlFile stanza = new ControlFile();
+        for (final String field : control.getFieldNames()) {
+            if (!DESCRIPTION_FIELD.equals(field)) {
+                stanza.set(field, control.get(field));
+            }
+        }
+        stanza.set(FILENAME_FIELD, FILENAME_PREFIX + deb.getFileName());
+        stanza.set("Size", Long.toString(checksums.size()));
+        stanza.set("MD5sum", checksums.md5());
+        stanza.set("SHA256", checksums.sha256());
+        stanza.set(DESCRIPTION_FIELD, control.get(DESCRIPTION_FIELD));
+        return format(stanza);
+    }
+
+    /**
+     * Locates the package information file for a package. The information file is looked for next to the package
+     * that was published and next to the package in the repository.
+     */
+    private static @Nullable Path findInfoFile(final Path deb, @Nullable final Path infoFile) {
+        if (infoFile != null && Files.isRegularFile(infoFile)) {
+            return infoFile;
+        }
+        final Path sibling = getInfoFile(deb);
+        return Files.isRegularFile(sibling) ? sibling : null;
+    }
+
+    /**
+     * Obtains the location of the package information file corresponding to a package. The information file has the
+     * same name as the package file but with a ".info" extension instead of a ".deb" extension.
+     *
+     * @param deb Package file
+     * @return Location of the package information file. The file may not exist.
+     */
+    static Path getInfoFile(final Path deb) {
+        final String filename = deb.getFileName().toString();
+        final String basename = filename.endsWith(DEB_EXTENSION)
+                                ? filename.substring(0, filename.length() - DEB_EXTENSION.length())
+                                : filename;
+        return deb.resolveSibling(basename + INFO_EXTENSION);
+    }
+
+    /**
+     * Reads the control file from a package. The control archive can be uncompressed, or compressed using gzip, xz
+     * or zstd, which are the compression methods supported by {@code dpkg-deb}.
+     *
+     * @param deb Package whose control file is to be read
+     * @return Contents of the package's control file.
+     * @throws IOException if the control file could not be read
+     */
+    static byte[] readPackageControl(final Path deb) throws IOException {
+        try (InputStream ins = new BufferedInputStream(Files.newInputStream(deb))) {
+            if (!Arrays.equals(ins.readNBytes(AR_MAGIC.length), AR_MAGIC)) {
+                throw new IOException("Not a Debian package: " + deb);
+            }
+
+            final byte[] header = new byte[AR_HEADER_LENGTH];
+            while (ins.readNBytes(header, 0, AR_HEADER_LENGTH) == AR_HEADER_LENGTH) {
+                final String name = new String(header, 0, AR_NAME_LENGTH, StandardCharsets.US_ASCII).trim();
+                final long size = Long.parseLong(new String(header, AR_SIZE_OFFSET, AR_SIZE_LENGTH,
+                                                            StandardCharsets.US_ASCII).trim());
+                if (name.startsWith("control.tar")) {
+                    final InputStream member = BoundedInputStream.builder()
+                                                                 .setInputStream(ins)
+                                                                 .setMaxCount(size)
+                                                                 .setPropagateClose(false)
+                                                                 .get();
+                    return switch (name) {
+                        case "control.tar" -> readTarEntry(member, deb);
+                        case "control.tar.gz" -> readTarEntry(new GZIPInputStream(member), deb);
+                        case "control.tar.xz" -> readTarEntry(new XZCompressorInputStream(member), deb);
+                        case "control.tar.zst" -> readTarEntry(new ZstdCompressorInputStream(member), deb);
+                        default -> throw new IOException("Unsupported control archive compression " + name + " in "
+                                                                 + deb);
+                    };
+                }
+
+                // Members are padded to an even length.
+                ins.skipNBytes(size + (size % 2));
+            }
+        }
+        throw new IOException("Control archive not found in " + deb);
+    }
+
+    private static byte[] readTarEntry(final InputStream ins, final Path deb) throws IOException {
+        final byte[] header = new byte[TAR_BLOCK_SIZE];
+        while (ins.readNBytes(header, 0, TAR_BLOCK_SIZE) == TAR_BLOCK_SIZE && header[0] != 0) {
+            int nameLength = 0;
+            while (nameLength < TAR_NAME_LENGTH && header[nameLength] != 0) {
+                nameLength++;
+            }
+            final String name = new String(header, 0, nameLength, StandardCharsets.UTF_8);
+            final String sizeStr = new String(header, TAR_SIZE_OFFSET, TAR_SIZE_LENGTH, StandardCharsets.US_ASCII);
+            final long size = Long.parseLong(sizeStr.replace("\0", "").trim(), TAR_SIZE_RADIX);
+
+            if (("./control".equals(name) || "control".equals(name)) && header[TAR_TYPE_OFFSET] != '5') {
+                return ins.readNBytes((int)size);
+            }
+
+            final long padding = (TAR_BLOCK_SIZE - (size % TAR_BLOCK_SIZE)) % TAR_BLOCK_SIZE;
+            ins.skipNBytes(size + padding);
+        }
+        throw new IOException("Control file not found in " + deb);
+    }
+
+    private static byte[] createRelease(final byte[] packages, final byte[] packagesGz, final byte[] packagesXz)
+            throws IOException {
+        final Checksums packagesChecksums = Checksums.copy(new ByteArrayInputStream(packages),
+                                                           OutputStream.nullOutputStream());
+        final Checksums packagesGzChecksums = Checksums.copy(new ByteArrayInputStream(packagesGz),
+                                                             OutputStream.nullOutputStream());
+        final Checksums packagesXzChecksums = Checksums.copy(new ByteArrayInputStream(packagesXz),
+                                                             OutputStream.nullOutputStream());
+
+        final StringBuilder release = new StringBuilder();
+        release.append("Date: ").append(RELEASE_DATE_FORMAT.format(ZonedDateTime.now(ZoneOffset.UTC))).append('\n');
+        release.append("MD5Sum:\n");
+        appendReleaseEntry(release, packagesChecksums.md5(), packagesChecksums.size(), PACKAGES);
+        appendReleaseEntry(release, packagesGzChecksums.md5(), packagesGzChecksums.size(), PACKAGES_GZ);
+        appendReleaseEntry(release, packagesXzChecksums.md5(), packagesXzChecksums.size(), PACKAGES_XZ);
+        release.append("SHA256:\n");
+        appendReleaseEntry(release, packagesChecksums.sha256(), packagesChecksums.size(), PACKAGES);
+        appendReleaseEntry(release, packagesGzChecksums.sha256(), packagesGzChecksums.size(), PACKAGES_GZ);
+        appendReleaseEntry(release, packagesXzChecksums.sha256(), packagesXzChecksums.size(), PACKAGES_XZ);
+        return release.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendReleaseEntry(final StringBuilder release, final String checksum, final long size,
+                                           final String filename) {
+        release.append(String.format(" %s %16d %s%n", checksum, size, filename).replace(System.lineSeparator(), "\n"));
+    }
+
+    private Map<String, State> readState() throws IOException {
+        final Path stateFile = this.repoDir.resolve(STATE);
+        final Map<String, State> state = new HashMap<>();
+        if (!Files.isRegularFile(stateFile) || !Files.isRegularFile(this.repoDir.resolve(PACKAGES))) {
+            return state;
+        }
+
+        try {
+            for (final String line : Files.readAllLines(stateFile, StandardCharsets.UTF_8)) {
+                final String[] fields = line.split(FIELD_SEPARATOR);
+                if (fields.length == STATE_FIELDS) {
+                    state.put(fields[0], new State(Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+                }
+            }
+        } catch (final NumberFormatException ex) {
+            LOGGER.info("Ignoring unreadable index state {}: {}", stateFile, ex.getMessage());
+            state.clear();
+        }
+        return state;
+    }
+
+    private void writeState(final Map<String, State> state) throws IOException {
+        final Path stateFile = this.repoDir.resolve(STATE);
+        final Path tempFile = Files.createTempFile(this.repoDir, STATE, ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                for (final Map.Entry<String, State> entry : state.entrySet()) {
+                    writer.write(String.join(FIELD_SEPARATOR, entry.getKey(), Long.toString(entry.getValue().size()),
+                                             Long.toString(entry.getValue().modified())));
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, stateFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Reads the stanzas of the existing Packages file, keyed by package filename. The stanzas are split on blank
+     * lines and only their {@code Filename} field is located, so that they are carried over to the updated index
+     * exactly as written, without being parsed and formatted again.
+     */
+    private Map<String, String> readStanzas() throws IOException {
+        final String packages = Files.readString(this.repoDir.resolve(PACKAGES), StandardCharsets.UTF_8);
+        final Map<String, String> stanzas = new HashMap<>();
+        int start = 0;
+        while (start < packages.length()) {
+            if (packages.charAt(start) == '\n') {
+                start++;
+                continue;
+            }
+
+            final int separator = packages.indexOf(STANZA_SEPARATOR, start);
+            final int end = (separator < 0) ? packages.length() : separator + 1;
+            String stanza = packages.substring(start, end);
+            if (!stanza.endsWith("\n")) {
+                stanza += '\n';
+            }
+            final String filename = findFilename(stanza);
+            if (filename != null) {
+                stanzas.put(filename.startsWith(FILENAME_PREFIX) ? filename.substring(FILENAME_PREFIX.length())
+                                                                 : filename,
+                            stanza);
+            }
+            start = end;
+        }
+        return stanzas;
+    }
+
+    /**
+     * Finds the value of the {@code Filename} field of an index stanza.
+     *
+     * @param stanza Stanza to search
+     * @return Value of the field, or {@code null} if the stanza does not have the field.
+     */
+    private static @Nullable String findFilename(final String stanza) {
+        final int fieldLength = FILENAME_FIELD.length();
+        int pos = 0;
+        while (pos < stanza.length()) {
+            final int eol = stanza.indexOf('\n', pos);
+            final int lineEnd = (eol < 0) ? stanza.length() : eol;
+            if (stanza.regionMatches(true, pos, FILENAME_FIELD, 0, fieldLength)
+                    && pos + fieldLength < lineEnd && stanza.charAt(pos + fieldLength) == ':') {
+                return stanza.substring(pos + fieldLength + 1, lineEnd).trim();
+            }
+            pos = lineEnd + 1;
+        }
+        return null;
+    }
+
+    private static String format(final ControlFile stanza) {
+        final ByteArrayOutputStream outs = new ByteArrayOutputStream();
+        stanza.write(outs);
+        return outs.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void writeAtomically(final Path file, final byte[] contents) throws IOException {
+        final Path tempFile = Files.createTempFile(file.getParent(), "." + file.getFileName(), ".tmp");
+        try {
+            Files.write(tempFile, contents);
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
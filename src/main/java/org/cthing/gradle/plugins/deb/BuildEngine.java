@@ -0,0 +1,23 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+/**
+ * Mechanisms available for building a Debian package.
+ */
+public enum BuildEngine {
+    /**
+     * Builds the package by running {@code dpkg-buildpackage}, which executes the {@code rules} file and the
+     * full debhelper sequence. This engine requires the Debian packaging tools to be installed.
+     */
+    DPKG,
+
+    /**
+     * Builds the package in-process by streaming the package archive directly from the staging directory. The
+     * {@code rules} file is not executed and the Debian packaging tools are not required. Maintainer scripts and
+     * conffiles are taken from the Debian directory and all files under {@code /etc} are treated as conffiles.
+     */
+    NATIVE
+}
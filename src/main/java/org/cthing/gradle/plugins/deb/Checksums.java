@@ -0,0 +1,76 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.gradle.api.GradleException;
+
+
+/**
+ * Size and digests of a file's contents, as used in package manifests and APT repository indexes.
+ *
+ * @param size Size of the contents in bytes
+ * @param sha256 Hex encoded SHA-256 digest of the contents
+ * @param md5 Hex encoded MD5 digest of the contents
+ */
+record Checksums(long size, String sha256, String md5) {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Calculates the checksums of a file.
+     *
+     * @param file File whose checksums are to be calculated
+     * @return Checksums of the file.
+     * @throws IOException if there was a problem reading the file
+     */
+    static Checksums of(final Path file) throws IOException {
+        try (InputStream ins = Files.newInputStream(file)) {
+            return copy(ins, OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * Copies a stream while calculating the checksums of the copied contents, so that the contents only need to be
+     * read once. Neither stream is closed.
+     *
+     * @param ins Stream to copy
+     * @param outs Stream to which the contents are copied
+     * @return Checksums of the copied contents.
+     * @throws IOException if there was a problem copying the stream
+     */
+    static Checksums copy(final InputStream ins, final OutputStream outs) throws IOException {
+        final MessageDigest sha256Digest = getDigest("SHA-256");
+        final MessageDigest md5Digest = getDigest("MD5");
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        int count;
+        while ((count = ins.read(buffer)) >= 0) {
+            sha256Digest.update(buffer, 0, count);
+            md5Digest.update(buffer, 0, count);
+            outs.write(buffer, 0, count);
+            size += count;
+        }
+
+        final HexFormat hex = HexFormat.of();
+        return new Checksums(size, hex.formatHex(sha256Digest.digest()), hex.formatHex(md5Digest.digest()));
+    }
+
+    private static MessageDigest getDigest(final String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new GradleException("Could not obtain " + algorithm + " digest", ex);
+        }
+    }
+}
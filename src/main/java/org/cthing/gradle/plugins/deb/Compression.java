@@ -0,0 +1,74 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+
+/**
+ * Compression methods available for the members of a package built by the {@link BuildEngine#NATIVE} engine.
+ */
+public enum Compression {
+    /**
+     * Members are not compressed.
+     */
+    NONE(""),
+
+    /**
+     * Members are compressed using gzip.
+     */
+    GZIP(".gz"),
+
+    /**
+     * Members are compressed using xz, which is the default of {@code dpkg-deb}.
+     */
+    XZ(".xz"),
+
+    /**
+     * Members are compressed using zstd. Packages compressed using zstd require dpkg 1.21.18 or newer to install.
+     */
+    ZSTD(".zst");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String extension;
+
+    Compression(final String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Obtains the filename extension for a member compressed using this method.
+     *
+     * @return Filename extension including the leading dot or an empty string if no compression is performed.
+     */
+    public String getExtension() {
+        return this.extension;
+    }
+
+    /**
+     * Wraps the specified stream so that data written to it is compressed using this method.
+     *
+     * @param outs Stream to receive the compressed data
+     * @return Compressing stream. Closing this stream finishes the compression but does not close the
+     *      specified stream.
+     * @throws IOException if there was a problem initializing the compressor
+     */
+    OutputStream compress(final OutputStream outs) throws IOException {
+        final OutputStream shielded = CloseShieldOutputStream.wrap(outs);
+        return switch (this) {
+            case NONE -> shielded;
+            case GZIP -> new GZIPOutputStream(shielded, BUFFER_SIZE);
+            case XZ -> new XZCompressorOutputStream(shielded);
+            case ZSTD -> new ZstdCompressorOutputStream(shielded);
+        };
+    }
+}
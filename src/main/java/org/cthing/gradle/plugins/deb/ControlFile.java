@@ -6,53 +6,196 @@ package org.cthing.gradle.plugins.deb;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.LineNumberReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import org.gradle.api.GradleException;
+import org.jspecify.annotations.Nullable;
 
 
 /**
- * Represents a Debian binary package control file.
+ * Represents a Debian binary package control file. As specified by the Debian Policy Manual, field names are case
+ * insensitive. The case of a field name is preserved, except for well known fields (e.g. Package, Version), whose
+ * names are always given their canonical case.
+ *
+ * <p>
+ * Control files are frequently parsed in large numbers (e.g. the paragraphs of a repository's {@code Packages}
+ * index), so fields are stored in a compact table rather than a map. When a control file is read using a
+ * {@link ControlFileReader}, the field values are not decoded until they are requested. Instead, each value refers
+ * to its location in the bytes of the paragraph, and well known field names refer to shared string constants.
+ * </p>
  */
 public class ControlFile {
 
     private static final char FIELD_DELIMITER = ':';
-    private static final char COMMENT_CHAR = '#';
-    private static final String BLANK_LINE_CHAR = ".";
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte COMMENT_CHAR = '#';
+    private static final byte SPACE = ' ';
+    private static final char BLANK_LINE_CHAR = '.';
+    private static final String BLANK_LINE = String.valueOf(BLANK_LINE_CHAR);
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int NOT_LAZY = -1;
+    private static final String SOURCE_FIELD = "Source";
     private static final String PACKAGE_FIELD = "Package";
     private static final String VERSION_FIELD = "Version";
     private static final String ARCHITECTURE_FIELD = "Architecture";
 
-    private final Map<String, String> fields;
+    /**
+     * Canonical names of fields commonly found in binary and source package control files and repository indexes,
+     * grouped by name length to speed their lookup.
+     */
+    private static final String[][] WELL_KNOWN_FIELDS = groupByLength(
+            SOURCE_FIELD, PACKAGE_FIELD, VERSION_FIELD, ARCHITECTURE_FIELD, "Maintainer", "Uploaders",
+            "Installed-Size", "Essential", "Multi-Arch", "Pre-Depends", "Depends", "Recommends", "Suggests",
+            "Enhances", "Breaks", "Conflicts", "Replaces", "Provides", "Built-Using", "Static-Built-Using",
+            "Build-Depends", "Build-Depends-Indep", "Build-Depends-Arch", "Build-Conflicts", "Standards-Version",
+            "Rules-Requires-Root", "Section", "Priority", "Homepage", "Description", "Description-md5", "Tag",
+            "Vcs-Browser", "Vcs-Git", "Filename", "Size", "MD5sum", "SHA1", "SHA256", "SHA512", "Origin", "Bugs");
+
+    private @Nullable ByteBuffer source;
+    private String[] names;
+    private @Nullable String[] values;
+    private int[] valueBounds;
+    private int size;
 
     public ControlFile() {
-        this.fields = new HashMap<>();
+        this.names = new String[INITIAL_CAPACITY];
+        this.values = new String[INITIAL_CAPACITY];
+        this.valueBounds = new int[INITIAL_CAPACITY * 2];
     }
 
     /**
-     * Sets the specified value for the specified control file field.
+     * Creates a control file whose fields are located in the specified bytes. The values of the fields are decoded
+     * when first requested.
+     *
+     * @param source Bytes of the control file paragraph. The buffer is not modified.
+     * @param fieldBounds Location of each field in the source. For each field there are four consecutive entries:
+     *      the start and end of the field name, and the start and end of the raw field value. The raw value starts
+     *      after the field delimiter and includes any continuation and comment lines.
+     * @param fieldCount Number of fields
+     */
+    ControlFile(final ByteBuffer source, final int[] fieldBounds, final int fieldCount) {
+        this.source = source;
+        this.names = new String[Math.max(fieldCount, 1)];
+        this.values = new String[this.names.length];
+        this.valueBounds = new int[this.names.length * 2];
+
+        for (int i = 0; i < fieldCount; i++) {
+            final int bounds = i * 4;
+            final String name = decodeName(source, fieldBounds[bounds], fieldBounds[bounds + 1]);
+            if (name.isBlank()) {
+                continue;
+            }
+
+            int index = indexOf(name);
+            if (index < 0) {
+                index = append(name);
+            }
+            this.values[index] = null;
+            this.valueBounds[index * 2] = fieldBounds[bounds + 2];
+            this.valueBounds[index * 2 + 1] = fieldBounds[bounds + 3];
+        }
+    }
+
+    /**
+     * Sets the specified value for the specified control file field. If the field is already present, its value is
+     * replaced and its position is retained.
      *
      * @param field Control file field whose value is to be set
      * @param value Value for the field
      */
     public void set(final String field, final String value) {
         if (field != null && !field.isBlank()) {
-            this.fields.put(field, value);
+            int index = indexOf(field);
+            if (index < 0) {
+                index = append(canonicalName(field));
+            }
+            this.values[index] = value;
+            this.valueBounds[index * 2] = NOT_LAZY;
         }
     }
 
     /**
      * Obtains the value for the specified control file field.
      *
-     * @param field Control file field whose value is to be obtained
+     * @param field Control file field whose value is to be obtained. The case of the name is not significant.
      * @return Control file field value or {@code null} if the field is not present
      */
     public String get(final String field) {
-        return this.fields.get(field);
+        final int index = indexOf(field);
+        return index < 0 ? null : getValue(index);
+    }
+
+    /**
+     * Removes the specified field from the control file.
+     *
+     * @param field Control file field to remove. The case of the name is not significant.
+     * @return Value of the removed field or {@code null} if the field was not present
+     */
+    public String remove(final String field) {
+        final int index = indexOf(field);
+        if (index < 0) {
+            return null;
+        }
+
+        final String value = getValue(index);
+        final int moved = this.size - index - 1;
+        System.arraycopy(this.names, index + 1, this.names, index, moved);
+        System.arraycopy(this.values, index + 1, this.values, index, moved);
+        System.arraycopy(this.valueBounds, (index + 1) * 2, this.valueBounds, index * 2, moved * 2);
+        this.size--;
+        this.names[this.size] = null;
+        this.values[this.size] = null;
+        return value;
+    }
+
+    /**
+     * Obtains the names of the fields in the control file, in the order in which they were added.
+     *
+     * @return Names of the control file fields. The set is a view of the control file's fields and its
+     *      {@code contains} method is not case sensitive.
+     */
+    public Set<String> getFieldNames() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.index < ControlFile.this.size;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return ControlFile.this.names[this.index++];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ControlFile.this.size;
+            }
+
+            @Override
+            public boolean contains(final Object obj) {
+                return obj instanceof String && indexOf((String)obj) >= 0;
+            }
+        };
     }
 
     /**
@@ -101,66 +244,256 @@ public class ControlFile {
     }
 
     /**
-     * Parses a Debian binary package control file.
+     * Parses a Debian binary package control file. If the control file contains more than one paragraph, the fields
+     * of all paragraphs are combined into a single control file, with fields in later paragraphs replacing those in
+     * earlier paragraphs. Use {@link #parseSource(InputStream)} to parse a source package control file, or a
+     * {@link ControlFileReader} to read the paragraphs individually.
      *
-     * @param ins Control file to parse
+     * @param ins Control file to parse. The stream is closed once it has been parsed.
      * @return Control file object instance based on the parsed control file.
      */
     public static ControlFile parse(final InputStream ins) {
         final ControlFile controlFile = new ControlFile();
+        try (ControlFileReader reader = new ControlFileReader(ins)) {
+            reader.forEachRemaining(controlFile::setAll);
+        } catch (final IOException ex) {
+            throw new GradleException(ex.getMessage(), ex);
+        }
+        return controlFile;
+    }
 
-        try (LineNumberReader reader = new LineNumberReader(new InputStreamReader(ins, StandardCharsets.UTF_8))) {
-            StringBuilder buffer = new StringBuilder();
-            String field = null;
+    /**
+     * Parses a Debian source package control file. The fields of the source paragraph are combined with those of
+     * the first binary package paragraph, which describes the package that is built. Paragraphs for any other binary
+     * packages are ignored rather than replacing the fields of the built package. If the first paragraph is not a
+     * source paragraph (i.e. it does not have a Source field), it is treated as the binary package paragraph.
+     *
+     * @param ins Source package control file to parse. The stream is closed once it has been parsed.
+     * @return Control file containing the fields of the source paragraph followed by those of the binary package
+     *      paragraph.
+     */
+    public static ControlFile parseSource(final InputStream ins) {
+        final ControlFile controlFile = new ControlFile();
+        try (ControlFileReader reader = new ControlFileReader(ins)) {
+            if (reader.hasNext()) {
+                final ControlFile first = reader.next();
+                controlFile.setAll(first);
+                if (first.get(SOURCE_FIELD) != null && reader.hasNext()) {
+                    controlFile.setAll(reader.next());
+                }
+            }
+        } catch (final IOException ex) {
+            throw new GradleException(ex.getMessage(), ex);
+        }
+        return controlFile;
+    }
+
+    /**
+     * Writes the control file in the Debian control file syntax. Fields are written in the order in which they were
+     * added. Multi-line values are written as continuation lines and empty lines within a value are written as a
+     * single dot, so that parsing the output yields the same field values.
+     *
+     * @param outs Stream to which the control file is written. The stream is flushed but not closed.
+     */
+    public void write(final OutputStream outs) {
+        try {
+            final Writer writer = new OutputStreamWriter(outs, StandardCharsets.UTF_8);
+            for (int i = 0; i < this.size; i++) {
+                final String value = getValue(i);
+                if (value == null) {
+                    continue;
+                }
 
-            while (true) {
-                final String line = reader.readLine();
+                writer.write(this.names[i]);
+                writer.write(FIELD_DELIMITER);
 
-                // End of the file. Flush the value of the previous field.
-                if (line == null) {
-                    controlFile.set(field, buffer.toString());
-                    break;
+                final String[] lines = value.split("\n", -1);
+                if (!lines[0].isEmpty()) {
+                    writer.write(' ');
+                    writer.write(lines[0]);
                 }
+                writer.write('\n');
 
-                // Ignore empty lines
-                if (line.isEmpty()) {
-                    continue;
+                for (int j = 1; j < lines.length; j++) {
+                    writer.write(' ');
+                    writer.write(lines[j].isBlank() ? BLANK_LINE : lines[j]);
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+        } catch (final IOException ex) {
+            throw new GradleException(ex.getMessage(), ex);
+        }
+    }
+
+    private void setAll(final ControlFile other) {
+        for (int i = 0; i < other.size; i++) {
+            set(other.names[i], other.getValue(i));
+        }
+    }
+
+    private int indexOf(final String field) {
+        if (field == null) {
+            return -1;
+        }
+        for (int i = 0; i < this.size; i++) {
+            // Well known names are shared constants, so the identity check in equalsIgnoreCase usually succeeds.
+            if (this.names[i].equalsIgnoreCase(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int append(final String name) {
+        if (this.size == this.names.length) {
+            final int capacity = this.size * 2;
+            this.names = Arrays.copyOf(this.names, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+            this.valueBounds = Arrays.copyOf(this.valueBounds, capacity * 2);
+        }
+        this.names[this.size] = name;
+        return this.size++;
+    }
+
+    private @Nullable String getValue(final int index) {
+        final int start = this.valueBounds[index * 2];
+        if (start != NOT_LAZY && this.source != null) {
+            this.values[index] = decodeValue(this.source, start, this.valueBounds[index * 2 + 1]);
+            this.valueBounds[index * 2] = NOT_LAZY;
+        }
+        return this.values[index];
+    }
+
+    private static String canonicalName(final String field) {
+        if (field.length() < WELL_KNOWN_FIELDS.length) {
+            for (final String name : WELL_KNOWN_FIELDS[field.length()]) {
+                if (name.equalsIgnoreCase(field)) {
+                    return name;
                 }
+            }
+        }
+        return field;
+    }
 
-                // Ignore comment lines
-                final char firstChar = line.charAt(0);
-                if (firstChar == COMMENT_CHAR) {
-                    continue;
+    private static String decodeName(final ByteBuffer source, final int start, final int end) {
+        final int length = end - start;
+        if (length < WELL_KNOWN_FIELDS.length) {
+            for (final String name : WELL_KNOWN_FIELDS[length]) {
+                if (matchesIgnoreCase(source, start, name)) {
+                    return name;
                 }
+            }
+        }
 
-                if (Character.isLetter(firstChar)) {
-                    // Start of a new field
+        final byte[] bytes = new byte[length];
+        source.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
 
-                    // Flush the value of the previous field.
-                    controlFile.set(field, buffer.toString());
-                    buffer = new StringBuilder();
+    private static boolean matchesIgnoreCase(final ByteBuffer source, final int start, final String name) {
+        for (int i = 0; i < name.length(); i++) {
+            final int b = source.get(start + i);
+            final char c = name.charAt(i);
+            if (b != c && Character.toLowerCase(b) != Character.toLowerCase(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-                    final int delimiterPos = line.indexOf(FIELD_DELIMITER);
-                    if (delimiterPos < 0) {
-                        throw new GradleException("Control file line missing ':' on line " + reader.getLineNumber());
-                    }
+    /**
+     * Decodes a raw field value. Leading and trailing whitespace is removed from the first line. On continuation
+     * lines, the leading space is removed and a line consisting only of a dot represents an empty line. Comment lines
+     * are ignored.
+     */
+    private static String decodeValue(final ByteBuffer source, final int start, final int end) {
+        final byte[] bytes;
+        final int offset;
+        if (source.hasArray()) {
+            bytes = source.array();
+            offset = source.arrayOffset();
+        } else {
+            bytes = new byte[end - start];
+            source.get(start, bytes);
+            offset = -start;
+        }
 
-                    field = line.substring(0, delimiterPos);
-                    buffer.append(line.substring(delimiterPos + 1).trim());
-                } else {
-                    // Continuing the field value on a new line. Lines with only a dot are ignored.
-                    buffer.append('\n');
-                    final String continuingValue = line.substring(1);
-                    if (!BLANK_LINE_CHAR.equals(continuingValue.trim())) {
-                        buffer.append(continuingValue);
-                    }
+        final int valueStart = offset + start;
+        final int valueEnd = offset + end;
+        int lineEnd = indexOf(bytes, LF, valueStart, valueEnd);
+        if (lineEnd < 0) {
+            return decodeTrimmed(bytes, valueStart, valueEnd);
+        }
+
+        final StringBuilder value = new StringBuilder(valueEnd - valueStart);
+        value.append(decodeTrimmed(bytes, valueStart, lineEnd));
+        int lineStart = lineEnd + 1;
+        while (lineStart < valueEnd) {
+            lineEnd = indexOf(bytes, LF, lineStart, valueEnd);
+            if (lineEnd < 0) {
+                lineEnd = valueEnd;
+            }
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && bytes[contentEnd - 1] == CR) {
+                contentEnd--;
+            }
+
+            if (bytes[lineStart] != COMMENT_CHAR) {
+                value.append('\n');
+                if (!isBlankLine(bytes, lineStart + 1, contentEnd)) {
+                    value.append(new String(bytes, lineStart + 1, contentEnd - lineStart - 1, StandardCharsets.UTF_8));
                 }
             }
-        } catch (final IOException ex) {
-            throw new GradleException(ex.getMessage(), ex);
+            lineStart = lineEnd + 1;
         }
+        return value.toString();
+    }
 
-        return controlFile;
+    /**
+     * Indicates whether a continuation line consists only of a dot, ignoring surrounding whitespace.
+     */
+    private static boolean isBlankLine(final byte[] bytes, final int start, final int end) {
+        int dots = 0;
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == BLANK_LINE_CHAR) {
+                dots++;
+            } else if (bytes[i] > SPACE || bytes[i] < 0) {
+                return false;
+            }
+        }
+        return dots == 1;
+    }
+
+    private static String decodeTrimmed(final byte[] bytes, final int start, final int end) {
+        int trimmedStart = start;
+        int trimmedEnd = end;
+        while (trimmedStart < trimmedEnd && bytes[trimmedStart] <= SPACE && bytes[trimmedStart] >= 0) {
+            trimmedStart++;
+        }
+        while (trimmedEnd > trimmedStart && bytes[trimmedEnd - 1] <= SPACE && bytes[trimmedEnd - 1] >= 0) {
+            trimmedEnd--;
+        }
+        return new String(bytes, trimmedStart, trimmedEnd - trimmedStart, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(final byte[] bytes, final byte b, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String[][] groupByLength(final String... names) {
+        final int maxLength = Arrays.stream(names).mapToInt(String::length).max().orElse(0);
+        final String[][] groups = new String[maxLength + 1][];
+        for (int length = 0; length <= maxLength; length++) {
+            final int len = length;
+            groups[length] = Arrays.stream(names).filter(name -> name.length() == len).toArray(String[]::new);
+        }
+        return groups;
     }
 
     @Override
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.gradle.api.GradleException;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Reads the paragraphs (stanzas) of a Debian control file one at a time. Source package control files consist of a
+ * source paragraph followed by a paragraph for each binary package, and APT {@code Packages} index files consist of
+ * a paragraph for each package in the repository. Paragraphs are separated by one or more blank lines and comment
+ * lines are ignored. Each paragraph is returned as a separate {@link ControlFile} whose fields are in the order in
+ * which they appear in the paragraph.
+ *
+ * <p>
+ * The input is read incrementally so that only the paragraph being parsed is held in memory, regardless of the size
+ * of the input. The input can be a stream or a byte buffer (e.g. a memory mapped file). The byte offset of each
+ * paragraph within the input is available using {@link #getOffset()}. Paragraphs are located by scanning their
+ * bytes. Field values are only decoded when they are requested from the returned control file, and the control files
+ * read from a byte buffer refer to the buffer rather than a copy of their bytes.
+ * </p>
+ */
+public final class ControlFileReader implements Iterator<ControlFile>, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_FIELDS = 32;
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte FIELD_DELIMITER = ':';
+    private static final byte COMMENT_CHAR = '#';
+
+    private final @Nullable InputStream ins;
+    private ByteBuffer buffer;
+    private int[] fieldBounds;
+    private long consumed;
+    private int lineNumber;
+    private long offset;
+    private long nextOffset;
+    private @Nullable ControlFile next;
+    private boolean done;
+
+    /**
+     * Creates a reader for a control file stream. The stream is read in chunks as paragraphs are requested.
+     *
+     * @param ins Stream to read. The stream is closed when the reader is closed.
+     */
+    public ControlFileReader(final InputStream ins) {
+        this.ins = ins;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.flip();
+        this.fieldBounds = new int[INITIAL_FIELDS * 4];
+        this.offset = -1;
+    }
+
+    /**
+     * Creates a reader for a control file in a byte buffer. The control file is read from the buffer's position to
+     * its limit. The buffer itself is not modified.
+     *
+     * @param buffer Buffer containing the control file (e.g. a memory mapped file)
+     */
+    public ControlFileReader(final ByteBuffer buffer) {
+        this.ins = null;
+        this.buffer = buffer.slice();
+        this.fieldBounds = new int[INITIAL_FIELDS * 4];
+        this.offset = -1;
+    }
+
+    /**
+     * Indicates whether there is another paragraph to read.
+     *
+     * @return {@code true} if there is another paragraph.
+     * @throws GradleException if the input could not be read or the paragraph is malformed
+     */
+    @Override
+    public boolean hasNext() {
+        if (this.next == null && !this.done) {
+            this.next = readParagraph();
+            this.done = this.next == null;
+        }
+        return this.next != null;
+    }
+
+    /**
+     * Reads the next paragraph.
+     *
+     * @return Next paragraph in the control file.
+     * @throws NoSuchElementException if there are no more paragraphs
+     * @throws GradleException if the input could not be read or the paragraph is malformed
+     */
+    @Override
+    public ControlFile next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final ControlFile paragraph = this.next;
+        this.next = null;
+        this.offset = this.nextOffset;
+        return paragraph;
+    }
+
+    /**
+     * Obtains the byte offset, relative to the start of the input, of the first field of the paragraph most
+     * recently returned by {@link #next()}.
+     *
+     * @return Byte offset of the most recently read paragraph, or -1 if no paragraph has been read.
+     */
+    public long getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * Provides the remaining paragraphs as a sequential stream. Closing the stream closes the reader.
+     *
+     * @return Stream of the remaining paragraphs.
+     */
+    public Stream<ControlFile> stream() {
+        final Spliterator<ControlFile> spliterator =
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (final IOException ex) {
+                throw new GradleException(ex.getMessage(), ex);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.done = true;
+        this.next = null;
+        if (this.ins != null) {
+            this.ins.close();
+        }
+    }
+
+    private @Nullable ControlFile readParagraph() {
+        // Skip the blank and comment lines preceding the paragraph
+        int lineEnd;
+        while (true) {
+            lineEnd = findLineEnd(0);
+            if (lineEnd < 0) {
+                return null;
+            }
+            if (!isBlank(0, lineEnd) && byteAt(0) != COMMENT_CHAR) {
+                break;
+            }
+            this.lineNumber++;
+            consume(nextLine(lineEnd));
+        }
+
+        // Locate the fields of the paragraph. Positions are relative to the start of the paragraph, which remains at
+        // the buffer's position while the paragraph is read so that they are unaffected by refilling the buffer.
+        this.nextOffset = this.consumed;
+        int fieldCount = 0;
+        int cursor = 0;
+        while (lineEnd >= 0) {
+            this.lineNumber++;
+            final int contentEnd = (lineEnd > cursor && byteAt(lineEnd - 1) == CR) ? lineEnd - 1 : lineEnd;
+            if (isBlank(cursor, contentEnd)) {
+                // A blank line ends the paragraph
+                cursor = nextLine(lineEnd);
+                break;
+            }
+
+            final byte firstByte = byteAt(cursor);
+            if (firstByte == ' ' || firstByte == '\t') {
+                // Continuing the field value on a new line
+                if (fieldCount == 0) {
+                    throw new GradleException("Control file continuation line without a field on line "
+                                                      + this.lineNumber);
+                }
+                this.fieldBounds[(fieldCount - 1) * 4 + 3] = contentEnd;
+            } else if (firstByte != COMMENT_CHAR) {
+                // Start of a new field
+                final int delimiterPos = indexOf(FIELD_DELIMITER, cursor, contentEnd);
+                if (delimiterPos < 0) {
+                    throw new GradleException("Control file line missing ':' on line " + this.lineNumber);
+                }
+
+                if ((fieldCount + 1) * 4 > this.fieldBounds.length) {
+                    this.fieldBounds = Arrays.copyOf(this.fieldBounds, this.fieldBounds.length * 2);
+                }
+                final int bounds = fieldCount * 4;
+                this.fieldBounds[bounds] = cursor;
+                this.fieldBounds[bounds + 1] = delimiterPos;
+                this.fieldBounds[bounds + 2] = delimiterPos + 1;
+                this.fieldBounds[bounds + 3] = contentEnd;
+                fieldCount++;
+            }
+
+            cursor = nextLine(lineEnd);
+            lineEnd = findLineEnd(cursor);
+        }
+
+        final ByteBuffer paragraph;
+        if (this.ins == null) {
+            // The source buffer is retained by the paragraph, so its fields are decoded from the buffer directly
+            paragraph = this.buffer.slice(this.buffer.position(), cursor);
+        } else {
+            // The stream buffer is reused, so the paragraph is given a copy of its bytes
+            final byte[] bytes = new byte[cursor];
+            this.buffer.get(this.buffer.position(), bytes);
+            paragraph = ByteBuffer.wrap(bytes);
+        }
+        consume(cursor);
+
+        return new ControlFile(paragraph, this.fieldBounds, fieldCount);
+    }
+
+    /**
+     * Locates the end of the line starting at the specified position, reading more of the input as needed.
+     *
+     * @param lineStart Start of the line relative to the buffer's position
+     * @return Position of the line feed ending the line, or the end of the input if the last line does not end in a
+     *      line feed. Returns -1 if there are no more lines.
+     */
+    private int findLineEnd(final int lineStart) {
+        int pos = lineStart;
+        while (true) {
+            final int start = this.buffer.position();
+            final int limit = this.buffer.limit() - start;
+            for (; pos < limit; pos++) {
+                if (this.buffer.get(start + pos) == LF) {
+                    return pos;
+                }
+            }
+            if (!fill()) {
+                return lineStart < this.buffer.remaining() ? this.buffer.remaining() : -1;
+            }
+        }
+    }
+
+    private int nextLine(final int lineEnd) {
+        return Math.min(lineEnd + 1, this.buffer.remaining());
+    }
+
+    private void consume(final int count) {
+        this.buffer.position(this.buffer.position() + count);
+        this.consumed += count;
+    }
+
+    private byte byteAt(final int pos) {
+        return this.buffer.get(this.buffer.position() + pos);
+    }
+
+    private boolean isBlank(final int start, final int end) {
+        for (int pos = start; pos < end; pos++) {
+            final byte b = byteAt(pos);
+            if (b != ' ' && b != '\t' && b != CR) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(final byte b, final int start, final int end) {
+        for (int pos = start; pos < end; pos++) {
+            if (byteAt(pos) == b) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads more of the input stream into the buffer, growing the buffer if it is full. Unconsumed bytes are moved
+     * to the start of the buffer.
+     *
+     * @return {@code true} if more input was read, {@code false} if the end of the input has been reached.
+     */
+    private boolean fill() {
+        if (this.ins == null) {
+            return false;
+        }
+
+        if (this.buffer.position() == 0 && this.buffer.limit() == this.buffer.capacity()) {
+            final ByteBuffer larger = ByteBuffer.allocate(this.buffer.capacity() * 2);
+            larger.put(this.buffer);
+            this.buffer = larger;
+        } else {
+            this.buffer.compact();
+        }
+
+        try {
+            final int count = this.ins.read(this.buffer.array(), this.buffer.position(), this.buffer.remaining());
+            if (count > 0) {
+                this.buffer.position(this.buffer.position() + count);
+            }
+            this.buffer.flip();
+            return count >= 0;
+        } catch (final IOException ex) {
+            throw new GradleException(ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,505 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.gradle.api.GradleException;
+
+
+/**
+ * Assembles a Debian binary package in-process. The package archive is streamed directly from the staging directory
+ * into the package file without creating intermediate archives. The size of each {@code ar} member is not known
+ * until the member has been compressed, so the member header is written with a placeholder size and patched once
+ * the member has been written.
+ */
+final class DebAssembler {
+
+    private static final byte[] AR_MAGIC = "!<arch>\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DEBIAN_BINARY = "2.0\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int AR_HEADER_LENGTH = 60;
+    private static final int AR_FILE_MODE = 0100644;
+    private static final int DIR_MODE = 0755;
+    private static final int EXEC_MODE = 0755;
+    private static final int FILE_MODE = 0644;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long KIB = 1024;
+    private static final String DEBIAN_CONTROL_DIR = "DEBIAN";
+    private static final String DEBHELPER_TOKEN = "#DEBHELPER#";
+    private static final List<String> MAINTAINER_SCRIPTS = List.of("preinst", "postinst", "prerm", "postrm");
+    private static final List<String> BINARY_FIELDS = List.of("Essential", "Multi-Arch", "Pre-Depends", "Depends",
+                                                              "Recommends", "Suggests", "Enhances", "Breaks",
+                                                              "Conflicts", "Provides", "Replaces", "Built-Using",
+                                                              "Section", "Priority", "Homepage", "Description");
+    private static final Set<String> RELATIONSHIP_FIELDS = Set.of("Pre-Depends", "Depends", "Recommends", "Suggests",
+                                                                  "Enhances", "Breaks", "Conflicts", "Provides",
+                                                                  "Replaces", "Built-Using");
+    private static final Pattern SUBSTVAR_PATTERN = Pattern.compile("\\$\\{[^}]*}");
+    private static final Pattern BINARY_USER_FIELD_PATTERN = Pattern.compile("X[SC]*B[SBC]*-.+");
+
+    private final Path debianDir;
+    private final String packageName;
+    private final Path stagingDir;
+    private final Compression compression;
+    private final long timestamp;
+
+    /**
+     * Creates an assembler for a package.
+     *
+     * @param debianDir Debian configuration directory after variable replacement has been performed
+     * @param packageName Name of the package to assemble
+     * @param stagingDir Directory containing the files to install, laid out as they will be on the target system
+     * @param compression Compression method for the control and data members
+     * @param timestamp Modification time, in seconds since the epoch, for the archive members, and the control and
+     *      data files. The modification times of the staged files are not used so that the package is reproducible.
+     */
+    DebAssembler(final Path debianDir, final String packageName, final Path stagingDir, final Compression compression,
+                 final long timestamp) {
+        this.debianDir = debianDir;
+        this.packageName = packageName;
+        this.stagingDir = stagingDir;
+        this.compression = compression;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Assembles the package.
+     *
+     * @param sourceControl Source package control file
+     * @param outputDir Directory in which to create the package file
+     * @return Binary package control file written into the package.
+     * @throws IOException if there was a problem assembling the package
+     */
+    ControlFile assemble(final ControlFile sourceControl, final Path outputDir) throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        if (Files.isDirectory(this.stagingDir)) {
+            collectEntries(this.stagingDir, this.stagingDir, entries);
+        }
+
+        final long installedSize = entries.stream().mapToLong(Entry::getInstalledSize).sum();
+        final ControlFile binaryControl = createBinaryControl(sourceControl,
+                                                              readChangelogVersion(this.debianDir.resolve("changelog")),
+                                                              installedSize);
+
+        final Path packageFile = outputDir.resolve(binaryControl.getPackageFilename());
+        try (FileChannel channel = FileChannel.open(packageFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            final OutputStream outs = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            outs.write(AR_MAGIC);
+            writeMember(channel, outs, "debian-binary", Compression.NONE,
+                        memberOuts -> memberOuts.write(DEBIAN_BINARY));
+            writeMember(channel, outs, "control.tar" + this.compression.getExtension(), this.compression,
+                        memberOuts -> writeControlArchive(memberOuts, binaryControl, entries));
+            writeMember(channel, outs, "data.tar" + this.compression.getExtension(), this.compression,
+                        memberOuts -> writeDataArchive(memberOuts, entries));
+            outs.flush();
+        }
+
+        return binaryControl;
+    }
+
+    /**
+     * Creates the binary package control file from the source package control file in the manner of
+     * {@code dpkg-gencontrol}. Fields that only apply to the source package are dropped, user defined fields
+     * destined for the binary package have their {@code X[SBC]-} prefix removed, and any unresolved substitution
+     * variables are removed.
+     *
+     * @param sourceControl Source package control file
+     * @param version Version of the package
+     * @param installedSize Installed size of the package in KiB
+     * @return Binary package control file.
+     */
+    ControlFile createBinaryControl(final ControlFile sourceControl, final String version, final long installedSize) {
+        final ControlFile binaryControl = new ControlFile();
+        binaryControl.set("Package", this.packageName);
+
+        final String source = sourceControl.get("Source");
+        if (source != null && !source.equals(this.packageName)) {
+            binaryControl.set("Source", source);
+        }
+
+        binaryControl.set("Version", version);
+        binaryControl.set("Architecture", resolveArchitecture(sourceControl.getArchitecture()));
+        setIfPresent(binaryControl, "Maintainer", sourceControl.get("Maintainer"));
+        binaryControl.set("Installed-Size", Long.toString(installedSize));
+
+        for (final String field : BINARY_FIELDS) {
+            setIfPresent(binaryControl, field, substitute(field, sourceControl.get(field)));
+        }
+
+        for (final String field : sourceControl.getFieldNames()) {
+            if (BINARY_USER_FIELD_PATTERN.matcher(field).matches()) {
+                setIfPresent(binaryControl, field.substring(field.indexOf('-') + 1),
+                             substitute(field, sourceControl.get(field)));
+            }
+        }
+
+        return binaryControl;
+    }
+
+    /**
+     * Reads the version of the most recent entry in a Debian changelog file.
+     *
+     * @param changelog Changelog file to read
+     * @return Version of the most recent changelog entry.
+     */
+    static String readChangelogVersion(final Path changelog) {
+        try (Stream<String> lines = Files.lines(changelog, StandardCharsets.UTF_8)) {
+            return findChangelogVersion(lines, changelog.toString());
+        } catch (final IOException ex) {
+            throw new GradleException("Could not read " + changelog, ex);
+        }
+    }
+
+    /**
+     * Obtains the version of the most recent entry in the contents of a Debian changelog.
+     *
+     * @param changelog Contents of the changelog
+     * @param source Name of the changelog for use in error messages
+     * @return Version of the most recent changelog entry.
+     */
+    static String parseChangelogVersion(final String changelog, final String source) {
+        return findChangelogVersion(changelog.lines(), source);
+    }
+
+    private static String findChangelogVersion(final Stream<String> lines, final String source) {
+        final String firstLine = lines.filter(line -> !line.isBlank()).findFirst().orElse("");
+        final int start = firstLine.indexOf('(');
+        final int end = firstLine.indexOf(')', start + 1);
+        if (start < 0 || end < 0) {
+            throw new GradleException("Could not find the package version in " + source);
+        }
+        return firstLine.substring(start + 1, end).trim();
+    }
+
+    /**
+     * Resolves the architecture of the package being built. Architecture independent packages and packages
+     * built for a single named architecture are left as is. Wildcard architectures (e.g. "any") are resolved
+     * to the architecture of the build machine.
+     *
+     * @param architecture Architecture specified in the source control file
+     * @return Architecture of the binary package.
+     */
+    static String resolveArchitecture(final String architecture) {
+        if (architecture == null || architecture.isBlank()) {
+            throw new GradleException("Control file does not specify an Architecture");
+        }
+
+        final String arch = architecture.trim();
+        if ("all".equals(arch) || !(arch.contains("any") || arch.contains(" "))) {
+            return arch;
+        }
+
+        final String hostArch = getHostArchitecture();
+        if (arch.contains("any") || List.of(arch.split("\\s+")).contains(hostArch)) {
+            return hostArch;
+        }
+        throw new GradleException("Package architecture '" + arch + "' does not include build architecture "
+                                          + hostArch);
+    }
+
+    /**
+     * Obtains the Debian name for the architecture of the build machine.
+     *
+     * @return Debian architecture name.
+     */
+    static String getHostArchitecture() {
+        final String osArch = System.getProperty("os.arch").toLowerCase(Locale.ROOT);
+        return switch (osArch) {
+            case "x86_64", "amd64" -> "amd64";
+            case "aarch64", "arm64" -> "arm64";
+            case "x86", "i386", "i486", "i586", "i686" -> "i386";
+            case "arm" -> "armhf";
+            case "ppc64le" -> "ppc64el";
+            default -> osArch;
+        };
+    }
+
+    private static void setIfPresent(final ControlFile controlFile, final String field, final String value) {
+        if (value != null && !value.isBlank()) {
+            controlFile.set(field, value);
+        }
+    }
+
+    /**
+     * Removes unresolved substitution variables from a field value. For relationship fields, list elements that
+     * become empty are removed as well.
+     */
+    private static String substitute(final String field, final String value) {
+        if (value == null || !value.contains("${")) {
+            return value;
+        }
+
+        final String substituted = SUBSTVAR_PATTERN.matcher(value).replaceAll("");
+        if (!RELATIONSHIP_FIELDS.contains(field)) {
+            return substituted;
+        }
+
+        final StringBuilder buffer = new StringBuilder();
+        for (final String element : substituted.split(",")) {
+            final String trimmed = element.trim();
+            if (!trimmed.isEmpty()) {
+                if (buffer.length() > 0) {
+                    buffer.append(", ");
+                }
+                buffer.append(trimmed);
+            }
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Collects the entries in the staging directory in a stable, sorted order so that the generated package
+     * does not depend on the order in which the file system returns directory entries. A {@code DEBIAN} directory
+     * at the root of the staging directory holds package control files and is not part of the package data.
+     */
+    private static void collectEntries(final Path root, final Path dir, final List<Entry> entries)
+            throws IOException {
+        final List<Path> children;
+        try (Stream<Path> list = Files.list(dir)) {
+            children = list.sorted().toList();
+        }
+
+        for (final Path child : children) {
+            if (dir.equals(root) && DEBIAN_CONTROL_DIR.equals(child.getFileName().toString())) {
+                continue;
+            }
+
+            final BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class,
+                                                                   LinkOption.NOFOLLOW_LINKS);
+            entries.add(new Entry(child, attrs));
+            if (attrs.isDirectory()) {
+                collectEntries(root, child, entries);
+            }
+        }
+    }
+
+    private void writeMember(final FileChannel channel, final OutputStream outs, final String name,
+                             final Compression memberCompression, final MemberWriter writer) throws IOException {
+        outs.flush();
+        final long headerPos = channel.position();
+        outs.write(createArHeader(name, 0));
+
+        try (OutputStream memberOuts = memberCompression.compress(outs)) {
+            writer.write(memberOuts);
+        }
+        outs.flush();
+
+        final long size = channel.position() - headerPos - AR_HEADER_LENGTH;
+        channel.write(ByteBuffer.wrap(createArHeader(name, size)), headerPos);
+
+        // Members are aligned on even byte boundaries.
+        if (size % 2 != 0) {
+            outs.write('\n');
+        }
+    }
+
+    private byte[] createArHeader(final String name, final long size) {
+        final String header = String.format("%-16s%-12d%-6d%-6d%-8o%-10d`\n", name, this.timestamp, 0, 0,
+                                            AR_FILE_MODE, size);
+        return header.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private void writeControlArchive(final OutputStream outs, final ControlFile binaryControl,
+                                     final List<Entry> entries) throws IOException {
+        final Set<String> conffiles = findConffiles(entries);
+        final byte[] md5sums = createMd5sums(entries, conffiles);
+
+        try (TarWriter tar = new TarWriter(outs)) {
+            tar.addDirectory("./", DIR_MODE, this.timestamp);
+
+            final ByteArrayOutputStream control = new ByteArrayOutputStream();
+            binaryControl.write(control);
+            tar.addFile("./control", FILE_MODE, this.timestamp, control.toByteArray());
+
+            if (!conffiles.isEmpty()) {
+                final String conffilesContent = String.join("\n", conffiles) + "\n";
+                tar.addFile("./conffiles", FILE_MODE, this.timestamp,
+                            conffilesContent.getBytes(StandardCharsets.UTF_8));
+            }
+
+            if (md5sums.length > 0) {
+                tar.addFile("./md5sums", FILE_MODE, this.timestamp, md5sums);
+            }
+
+            for (final String script : MAINTAINER_SCRIPTS) {
+                final Path scriptFile = findDebianFile(script);
+                if (scriptFile != null) {
+                    tar.addFile("./" + script, EXEC_MODE, this.timestamp, readMaintainerScript(scriptFile));
+                }
+            }
+        }
+    }
+
+    private void writeDataArchive(final OutputStream outs, final List<Entry> entries) throws IOException {
+        try (TarWriter tar = new TarWriter(outs)) {
+            tar.addDirectory("./", DIR_MODE, this.timestamp);
+
+            for (final Entry entry : entries) {
+                final String name = "./" + entry.getName(this.stagingDir);
+                if (entry.attrs.isDirectory()) {
+                    tar.addDirectory(name, DIR_MODE, this.timestamp);
+                } else if (entry.attrs.isSymbolicLink()) {
+                    tar.addSymlink(name, Files.readSymbolicLink(entry.path).toString(), this.timestamp);
+                } else if (entry.attrs.isRegularFile()) {
+                    try (InputStream ins = Files.newInputStream(entry.path)) {
+                        tar.addFile(name, entry.getMode(), entry.attrs.size(), this.timestamp, ins);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the conffiles for the package. In the manner of debhelper, all regular files under {@code /etc} are
+     * conffiles, as are any files listed in the {@code conffiles} file of the Debian directory.
+     */
+    private Set<String> findConffiles(final List<Entry> entries) throws IOException {
+        final Set<String> conffiles = new LinkedHashSet<>();
+        for (final Entry entry : entries) {
+            final String name = entry.getName(this.stagingDir);
+            if (entry.attrs.isRegularFile() && name.startsWith("etc/")) {
+                conffiles.add("/" + name);
+            }
+        }
+
+        final Path conffilesFile = findDebianFile("conffiles");
+        if (conffilesFile != null) {
+            for (final String line : Files.readAllLines(conffilesFile, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    conffiles.add(line.trim());
+                }
+            }
+        }
+
+        return conffiles;
+    }
+
+    private byte[] createMd5sums(final List<Entry> entries, final Set<String> conffiles) throws IOException {
+        final MessageDigest digest = createMd5Digest();
+        final HexFormat hexFormat = HexFormat.of();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final StringBuilder md5sums = new StringBuilder();
+
+        for (final Entry entry : entries) {
+            final String name = entry.getName(this.stagingDir);
+            if (!entry.attrs.isRegularFile() || conffiles.contains("/" + name)) {
+                continue;
+            }
+
+            digest.reset();
+            try (InputStream ins = Files.newInputStream(entry.path)) {
+                int count;
+                while ((count = ins.read(buffer)) >= 0) {
+                    digest.update(buffer, 0, count);
+                }
+            }
+            md5sums.append(hexFormat.formatHex(digest.digest())).append("  ").append(name).append('\n');
+        }
+
+        return md5sums.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest createMd5Digest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new GradleException("MD5 digest not available", ex);
+        }
+    }
+
+    /**
+     * Finds a package specific file in the Debian directory. A file prefixed with the package name takes precedence
+     * over an unprefixed file (e.g. "mypackage.postinst" is used in preference to "postinst").
+     */
+    private Path findDebianFile(final String name) {
+        final Path packageFile = this.debianDir.resolve(this.packageName + "." + name);
+        if (Files.isRegularFile(packageFile)) {
+            return packageFile;
+        }
+        final Path file = this.debianDir.resolve(name);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    /**
+     * Reads a maintainer script, removing the debhelper token since there are no debhelper snippets to insert.
+     */
+    private static byte[] readMaintainerScript(final Path scriptFile) throws IOException {
+        final StringBuilder script = new StringBuilder();
+        for (final String line : Files.readAllLines(scriptFile, StandardCharsets.UTF_8)) {
+            if (!DEBHELPER_TOKEN.equals(line.trim())) {
+                script.append(line);
+            }
+            script.append('\n');
+        }
+        return script.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the contents of an archive member.
+     */
+    @FunctionalInterface
+    private interface MemberWriter {
+        void write(OutputStream outs) throws IOException;
+    }
+
+    /**
+     * A file, directory or symbolic link in the staging directory.
+     */
+    private static final class Entry {
+        private final Path path;
+        private final BasicFileAttributes attrs;
+
+        Entry(final Path path, final BasicFileAttributes attrs) {
+            this.path = path;
+            this.attrs = attrs;
+        }
+
+        String getName(final Path root) {
+            final String name = root.relativize(this.path).toString();
+            return this.attrs.isDirectory() ? name + "/" : name;
+        }
+
+        /**
+         * Obtains the permissions of the file in the manner of {@code dh_fixperms}. Executable files are readable
+         * and executable by everyone, and all other files are readable by everyone.
+         */
+        int getMode() throws IOException {
+            final Set<PosixFilePermission> perms = Files.getPosixFilePermissions(this.path, LinkOption.NOFOLLOW_LINKS);
+            return perms.contains(PosixFilePermission.OWNER_EXECUTE) ? EXEC_MODE : FILE_MODE;
+        }
+
+        /**
+         * Obtains the size of the entry in KiB in the manner of {@code dpkg-gencontrol}.
+         */
+        long getInstalledSize() {
+            return this.attrs.isRegularFile() ? (this.attrs.size() + KIB - 1) / KIB : 1;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.jspecify.annotations.NonNull;
+
+
+/**
+ * Gradle work item that builds a package from a prepared working directory, using either
+ * {@code dpkg-buildpackage} or the native build engine.
+ */
+public abstract class DebBuildAction implements WorkAction<DebBuildAction.Parameters> {
+
+    private static final Logger LOGGER = Logging.getLogger(DebBuildAction.class);
+
+    /**
+     * Parameters for building a package.
+     */
+    public interface Parameters extends WorkParameters {
+        /**
+         * Obtains the working directory containing the {@code debian} directory.
+         *
+         * @return Package working directory.
+         */
+        Property<@NonNull File> getWorkingDir();
+
+        /**
+         * Obtains the directory in which the package file is created.
+         *
+         * @return Package output directory.
+         */
+        Property<@NonNull File> getOutputDir();
+
+        /**
+         * Obtains the name of the package to build.
+         *
+         * @return Package name.
+         */
+        Property<@NonNull String> getPackageName();
+
+        /**
+         * Obtains the mechanism used to build the package.
+         *
+         * @return Package build engine.
+         */
+        Property<@NonNull BuildEngine> getBuildEngine();
+
+        /**
+         * Obtains the environment variables for the {@code rules} file.
+         *
+         * @return Environment variables.
+         */
+        MapProperty<@NonNull String, @NonNull String> getEnvironment();
+
+        /**
+         * Obtains the staging directory used by the native build engine.
+         *
+         * @return Package staging directory.
+         */
+        Property<@NonNull File> getStagingDir();
+
+        /**
+         * Obtains the compression method used by the native build engine.
+         *
+         * @return Package archive compression method.
+         */
+        Property<@NonNull Compression> getCompression();
+
+        /**
+         * Obtains the modification time, in seconds since the epoch, of the archive members created by the native
+         * build engine.
+         *
+         * @return Archive member modification time.
+         */
+        Property<@NonNull Long> getTimestamp();
+
+        /**
+         * Obtains the maximum time that {@code dpkg-buildpackage} is allowed to run.
+         *
+         * @return Package build timeout. A zero duration or no value allows the tool to run indefinitely.
+         */
+        Property<@NonNull Duration> getTimeout();
+    }
+
+    @Override
+    public void execute() {
+        final Parameters params = getParameters();
+        if (params.getBuildEngine().get() == BuildEngine.NATIVE) {
+            assemblePackage(params);
+        } else {
+            buildPackage(params);
+        }
+    }
+
+    private static void buildPackage(final Parameters params) {
+        final File wdir = params.getWorkingDir().get();
+        final List<String> dpkgBuildArgs = List.of(DebTask.DPKG_BUILDPACKAGE_TOOL, "--build=binary", "--no-sign");
+
+        LOGGER.info("Running {} in  {}", DebTask.DPKG_BUILDPACKAGE_TOOL, wdir);
+        final ProcessBuilder processBuilder = new ProcessBuilder(dpkgBuildArgs);
+        processBuilder.directory(wdir);
+        processBuilder.environment().putAll(params.getEnvironment().get());
+        try {
+            final ToolRunner.Result result = new ToolRunner(LogLevel.INFO, LogLevel.INFO)
+                    .run(processBuilder, params.getTimeout().getOrNull());
+            if (!result.isSuccess()) {
+                throw new GradleException(result.getFailureMessage());
+            }
+        } catch (final IOException ex) {
+            throw new GradleException(ex.getMessage(), ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while running " + DebTask.DPKG_BUILDPACKAGE_TOOL, ex);
+        }
+    }
+
+    private static void assemblePackage(final Parameters params) {
+        final Path debianDir = params.getWorkingDir().get().toPath().resolve("debian");
+        final String packageName = params.getPackageName().get();
+        final Path packageDir = debianDir.resolve(packageName);
+        final Path stagingDir = params.getStagingDir().isPresent() ? params.getStagingDir().get().toPath() : packageDir;
+
+        LOGGER.info("Assembling package {} from {}", packageName, stagingDir);
+        final DebAssembler assembler = new DebAssembler(debianDir, packageName, stagingDir,
+                                                        params.getCompression().get(), params.getTimestamp().get());
+        try {
+            final ControlFile sourceControlFile;
+            try (InputStream ins = Files.newInputStream(debianDir.resolve("control"))) {
+                sourceControlFile = ControlFile.parseSource(ins);
+            }
+
+            final ControlFile binaryControlFile = assembler.assemble(sourceControlFile,
+                                                                     params.getOutputDir().get().toPath());
+
+            // Write the generated control file where dpkg-buildpackage would have so that the package information
+            // file can be created in the same way for all build engines.
+            final Path binaryControlPath = packageDir.resolve("DEBIAN/control");
+            Files.createDirectories(binaryControlPath.getParent());
+            try (OutputStream outs = Files.newOutputStream(binaryControlPath)) {
+                binaryControlFile.write(outs);
+            }
+        } catch (final IOException ex) {
+            throw new GradleException(ex.getMessage(), ex);
+        }
+    }
+}
@@ -4,6 +4,7 @@
  */
 package org.cthing.gradle.plugins.deb;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.Set;
 
@@ -26,15 +27,27 @@ public class DebExtension {
     private final MapProperty<@NonNull String, @NonNull Object> additionalVariables;
     private final SetProperty<@NonNull String> lintianTags;
     private final Property<@NonNull Boolean> lintianEnable;
+    private final Property<@NonNull BuildEngine> buildEngine;
+    private final Property<@NonNull WorkerIsolation> isolation;
+    private final Property<@NonNull Duration> buildTimeout;
+    private final Property<@NonNull Duration> lintTimeout;
     private final Property<@NonNull String> repositoryUrl;
     private final Property<@NonNull String> repositoryUsername;
     private final Property<@NonNull String> repositoryPassword;
+    private final Property<@NonNull Integer> uploadParallelism;
+    private final Property<@NonNull Boolean> skipExisting;
+    private final Property<@NonNull Boolean> updateIndex;
+    private final Property<@NonNull OlderVersionPolicy> olderVersionPolicy;
 
     public DebExtension(final Project project, final CThingRepoExtension repoExtension) {
         final ObjectFactory objects = project.getObjects();
         this.additionalVariables = objects.mapProperty(String.class, Object.class);
         this.lintianTags = objects.setProperty(String.class);
         this.lintianEnable = objects.property(Boolean.class).convention(Boolean.TRUE);
+        this.buildEngine = objects.property(BuildEngine.class).convention(BuildEngine.DPKG);
+        this.isolation = objects.property(WorkerIsolation.class).convention(WorkerIsolation.NONE);
+        this.buildTimeout = objects.property(Duration.class).convention(DebTask.DEFAULT_BUILD_TIMEOUT);
+        this.lintTimeout = objects.property(Duration.class).convention(DebTask.DEFAULT_LINT_TIMEOUT);
 
         final Provider<@NonNull String> defaultRepositoryUrl = project.provider(() -> {
             final Object projectVersion = project.getVersion();
@@ -46,6 +59,11 @@ public class DebExtension {
 
         this.repositoryUsername = objects.property(String.class).convention(repoExtension.getUser());
         this.repositoryPassword = objects.property(String.class).convention(repoExtension.getPassword());
+        this.uploadParallelism = objects.property(Integer.class)
+                                        .convention(DebPublishTask.DEFAULT_UPLOAD_PARALLELISM);
+        this.skipExisting = objects.property(Boolean.class).convention(Boolean.FALSE);
+        this.updateIndex = objects.property(Boolean.class).convention(Boolean.TRUE);
+        this.olderVersionPolicy = objects.property(OlderVersionPolicy.class).convention(OlderVersionPolicy.ALLOW);
     }
 
     /**
@@ -118,6 +136,44 @@ public class DebExtension {
         return this.lintianEnable;
     }
 
+    /**
+     * Obtains the mechanism used to build packages.
+     *
+     * @return Package build engine. Default is {@link BuildEngine#DPKG}.
+     */
+    public Property<@NonNull BuildEngine> getBuildEngine() {
+        return this.buildEngine;
+    }
+
+    /**
+     * Obtains the isolation mode for the work items that build and lint packages.
+     *
+     * @return Work item isolation mode. Default is {@link WorkerIsolation#NONE}.
+     */
+    public Property<@NonNull WorkerIsolation> getIsolation() {
+        return this.isolation;
+    }
+
+    /**
+     * Obtains the maximum time that {@code dpkg-buildpackage} and {@code dpkg-gencontrol} are allowed to run when
+     * building a package. A zero duration allows the tools to run indefinitely.
+     *
+     * @return Package build timeout. Default is 60 minutes.
+     */
+    public Property<@NonNull Duration> getBuildTimeout() {
+        return this.buildTimeout;
+    }
+
+    /**
+     * Obtains the maximum time that Lintian is allowed to run when checking a package. A zero duration allows
+     * Lintian to run indefinitely.
+     *
+     * @return Package lint timeout. Default is 15 minutes.
+     */
+    public Property<@NonNull Duration> getLintTimeout() {
+        return this.lintTimeout;
+    }
+
     /**
      * Obtains the URL to the APT repository.
      *
@@ -144,4 +200,41 @@ public class DebExtension {
     public Property<@NonNull String> getRepositoryPassword() {
         return this.repositoryPassword;
     }
+
+    /**
+     * Obtains the maximum number of packages published concurrently.
+     *
+     * @return Maximum number of concurrent uploads. Default is 4.
+     */
+    public Property<@NonNull Integer> getUploadParallelism() {
+        return this.uploadParallelism;
+    }
+
+    /**
+     * Obtains whether packages already present in the repository with identical contents are not published again.
+     *
+     * @return Whether packages already in the repository are skipped. Default is {@code false}.
+     */
+    public Property<@NonNull Boolean> getSkipExisting() {
+        return this.skipExisting;
+    }
+
+    /**
+     * Obtains whether the index files of a local ({@code file:}) repository are updated after publishing.
+     *
+     * @return Whether local repository indexes are updated. Default is {@code true}.
+     */
+    public Property<@NonNull Boolean> getUpdateIndex() {
+        return this.updateIndex;
+    }
+
+    /**
+     * Obtains the action taken when publishing a package to a local ({@code file:}) repository that already contains
+     * a newer version of the package.
+     *
+     * @return Policy for publishing older package versions. Default is {@link OlderVersionPolicy#ALLOW}.
+     */
+    public Property<@NonNull OlderVersionPolicy> getOlderVersionPolicy() {
+        return this.olderVersionPolicy;
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.jspecify.annotations.NonNull;
+
+
+/**
+ * Gradle work item that checks a package using Lintian.
+ */
+public abstract class DebLintAction implements WorkAction<DebLintAction.Parameters> {
+
+    private static final Logger LOGGER = Logging.getLogger(DebLintAction.class);
+
+    /**
+     * Parameters for linting a package.
+     */
+    public interface Parameters extends WorkParameters {
+        /**
+         * Obtains the package file to check.
+         *
+         * @return Package file.
+         */
+        Property<@NonNull File> getPackageFile();
+
+        /**
+         * Obtains the Lintian tags to suppress.
+         *
+         * @return Lintian suppression tags.
+         */
+        SetProperty<@NonNull String> getSuppressedTags();
+
+        /**
+         * Obtains the maximum time that Lintian is allowed to run.
+         *
+         * @return Package lint timeout. A zero duration or no value allows Lintian to run indefinitely.
+         */
+        Property<@NonNull Duration> getTimeout();
+    }
+
+    @Override
+    public void execute() {
+        final File packageFile = getParameters().getPackageFile().get();
+
+        final List<String> lintianArgs = new ArrayList<>();
+        lintianArgs.add(DebTask.LINTIAN_TOOL);
+        getParameters().getSuppressedTags().get().forEach(tag -> {
+            lintianArgs.add("--suppress-tags");
+            lintianArgs.add(tag);
+        });
+        lintianArgs.add(packageFile.getPath());
+
+        LOGGER.info("Running {} on package file {}", DebTask.LINTIAN_TOOL, packageFile);
+        final ProcessBuilder processBuilder = new ProcessBuilder(lintianArgs);
+        try {
+            final ToolRunner.Result result = new ToolRunner(LogLevel.WARN, LogLevel.WARN)
+                    .run(processBuilder, getParameters().getTimeout().getOrNull());
+            if (!result.isSuccess()) {
+                throw new GradleException(result.getFailureMessage());
+            }
+        } catch (final IOException ex) {
+            throw new GradleException(ex.getMessage(), ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while running " + DebTask.LINTIAN_TOOL, ex);
+        }
+    }
+}
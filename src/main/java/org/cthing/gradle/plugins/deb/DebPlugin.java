@@ -5,6 +5,8 @@
 package org.cthing.gradle.plugins.deb;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.cthing.gradle.plugins.publishing.CThingPublishingExtension;
 import org.cthing.gradle.plugins.publishing.CThingRepoExtension;
@@ -13,7 +15,10 @@ import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.UnknownTaskException;
 import org.gradle.api.plugins.BasePluginExtension;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskCollection;
 import org.gradle.api.tasks.TaskProvider;
 import org.jspecify.annotations.NonNull;
 
@@ -35,48 +40,99 @@ public class DebPlugin implements Plugin<@NonNull Project> {
         final DebExtension extension = project.getExtensions().create(DEB_EXTENSION, DebExtension.class, project,
                                                                       repoExtension);
 
-        if (DebTask.toolsExist()) {
-            final TaskProvider<@NonNull DebPublishTask> publishDeb =
-                    project.getTasks().register("publishDeb", DebPublishTask.class, task -> {
-                        task.getRepositoryUrl().set(extension.getRepositoryUrl());
-                        task.getRepositoryUsername().set(extension.getRepositoryUsername());
-                        task.getRepositoryPassword().set(extension.getRepositoryPassword());
-                    });
+        final Provider<@NonNull Integer> maxParallelBuilds =
+                project.getProviders().gradleProperty(DebToolService.MAX_PARALLEL_PROPERTY)
+                       .map(Integer::valueOf)
+                       .orElse(Runtime.getRuntime().availableProcessors());
+        project.getGradle().getSharedServices().registerIfAbsent(DebToolService.NAME, DebToolService.class,
+                                                                 spec -> spec.getMaxParallelUsages()
+                                                                             .set(maxParallelBuilds));
+        project.getGradle().getSharedServices().registerIfAbsent(TemplateService.NAME, TemplateService.class,
+                                                                 spec -> { });
 
-            project.getTasks().withType(DebTask.class, debTask -> {
-                final Provider<@NonNull File> defaultDestDir = project.getExtensions()
-                                                                      .getByType(BasePluginExtension.class)
-                                                                      .getDistsDirectory().getAsFile();
-                debTask.getProjectName().convention(project.getName());
-                debTask.getProjectGroup().convention(project.getGroup());
-                debTask.getProjectVersion().convention(project.getVersion());
-                debTask.getRootDir().convention(project.getRootDir());
-                debTask.getDestinationDir().convention(defaultDestDir.get());
-                debTask.getLintianEnable().convention(extension.getLintianEnable());
-                debTask.getLintianTags().addAll(extension.getLintianTags());
-                debTask.getAdditionalVariables().putAll(extension.getAdditionalVariables());
+        // The resources directories are only known once the java plugin is applied, which may be after this plugin.
+        final MapProperty<@NonNull String, @NonNull File> resourceDirs =
+                project.getObjects().mapProperty(String.class, File.class);
+        project.getPluginManager().withPlugin("java", plugin -> {
+            final SourceSetContainer sourceSets = project.getExtensions().getByType(SourceSetContainer.class);
+            resourceDirs.set(project.provider(() -> {
+                final Map<String, File> dirs = new HashMap<>();
+                sourceSets.forEach(sourceSet -> {
+                    final File resourcesDir = sourceSet.getOutput().getResourcesDir();
+                    if (resourcesDir != null) {
+                        dirs.put(sourceSet.getName(), resourcesDir);
+                    }
+                });
+                return dirs;
+            }));
+        });
+
+        final Provider<@NonNull File> distsDir = project.getExtensions()
+                                                        .getByType(BasePluginExtension.class)
+                                                        .getDistsDirectory().getAsFile();
+        final CThingPublishingExtension pubExtension =
+                project.getExtensions().getByType(CThingPublishingExtension.class);
+        final String projectName = project.getName();
+        final File rootDir = project.getRootDir();
+        final Provider<@NonNull String> epochVariable =
+                project.getProviders().environmentVariable(DebTask.SOURCE_DATE_EPOCH);
 
-                final CThingPublishingExtension pubExtension =
-                        project.getExtensions().getByType(CThingPublishingExtension.class);
-                debTask.getCThingDependencies().convention(pubExtension.findCThingDependencies());
+        final TaskCollection<@NonNull DebTask> debTasks = project.getTasks().withType(DebTask.class);
+        debTasks.configureEach(debTask -> {
+            debTask.getProjectName().convention(projectName);
+            debTask.getProjectGroup().convention(project.provider(project::getGroup));
+            debTask.getProjectVersion().convention(project.provider(project::getVersion));
+            debTask.getSourceDateEpoch().convention(debTask.getProjectVersion().map(
+                    version -> DebTask.getDefaultSourceDateEpoch(version, epochVariable.getOrNull())));
+            debTask.getRootDir().convention(rootDir);
+            debTask.getResourceDirs().convention(resourceDirs);
+            final String taskName = debTask.getName();
+            debTask.getDestinationDir().convention(distsDir.map(dir -> new File(dir, taskName)));
+            debTask.getLintianEnable().convention(extension.getLintianEnable());
+            debTask.getLintianTags().addAll(extension.getLintianTags());
+            debTask.getAdditionalVariables().putAll(extension.getAdditionalVariables());
+            debTask.getBuildEngine().convention(extension.getBuildEngine());
+            debTask.getIsolation().convention(extension.getIsolation());
+            debTask.getBuildTimeout().convention(extension.getBuildTimeout());
+            debTask.getLintTimeout().convention(extension.getLintTimeout());
+            debTask.getCThingDependencies().convention(pubExtension.findCThingDependencies());
+        });
 
-                publishDeb.configure(t -> {
-                    t.dependsOn(debTask);
-                    t.getDebTasks().add(debTask);
+        // Packages built by the dpkg engine are only published if the Debian packaging tools are installed, while
+        // packages built by the native engine are always published. The engine of each task is checked, and the
+        // tools probed, when the packages to publish are resolved rather than when the plugin is applied.
+        final TaskProvider<@NonNull DebPublishTask> publishDeb =
+                project.getTasks().register("publishDeb", DebPublishTask.class, task -> {
+                    task.getRepositoryUrl().set(extension.getRepositoryUrl());
+                    task.getRepositoryUsername().set(extension.getRepositoryUsername());
+                    task.getRepositoryPassword().set(extension.getRepositoryPassword());
+                    task.getUploadParallelism().set(extension.getUploadParallelism());
+                    task.getSkipExisting().set(extension.getSkipExisting());
+                    task.getUpdateIndex().set(extension.getUpdateIndex());
+                    task.getOlderVersionPolicy().set(extension.getOlderVersionPolicy());
+                    task.getPackages().from(debTasks.matching(DebPlugin::isPublishable));
                 });
-            });
 
-            project.afterEvaluate(proj -> {
-                try {
-                    project.getTasks().named("publish").configure(publishTask -> publishTask.dependsOn(publishDeb));
-                } catch (final UnknownTaskException ignore) {
-                    project.getTasks().register("publish", DefaultTask.class, task -> {
-                        task.setGroup("Publishing");
-                        task.setDescription("Publish DEB packages to an APT repository");
-                        task.dependsOn(publishDeb);
-                    });
-                }
-            });
-        }
+        project.afterEvaluate(proj -> {
+            try {
+                project.getTasks().named("publish").configure(publishTask -> publishTask.dependsOn(publishDeb));
+            } catch (final UnknownTaskException ignore) {
+                project.getTasks().register("publish", DefaultTask.class, task -> {
+                    task.setGroup("Publishing");
+                    task.setDescription("Publish DEB packages to an APT repository");
+                    task.dependsOn(publishDeb);
+                });
+            }
+        });
+    }
+
+    /**
+     * Indicates whether the packages built by the specified task can be published on this host.
+     *
+     * @param debTask Packaging task to check
+     * @return {@code true} if the task uses the native engine, or the Debian packaging tools are installed.
+     */
+    private static boolean isPublishable(final DebTask debTask) {
+        return debTask.getBuildEngine().get() == BuildEngine.NATIVE || DebTask.toolsExist();
     }
 }
@@ -4,37 +4,72 @@
  */
 package org.cthing.gradle.plugins.deb;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpHead;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpResponse;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.entity.PathEntity;
 import org.apache.hc.core5.util.Timeout;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.provider.Property;
-import org.gradle.api.provider.SetProperty;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.TaskExecutionException;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
 
 /**
@@ -42,13 +77,35 @@ import org.jspecify.annotations.NonNull;
  */
 public abstract class DebPublishTask extends DefaultTask {
 
+    /**
+     * Default maximum number of packages uploaded concurrently.
+     */
+    static final int DEFAULT_UPLOAD_PARALLELISM = 4;
+
     private static final Timeout REPO_TIMEOUT = Timeout.of(5, TimeUnit.MINUTES);
     private static final String MULTIPART_FORM_DATA = "multipart/form-data";
+    private static final Pattern NEXUS_SHA1_ETAG = Pattern.compile("\\{SHA1\\{([0-9a-fA-F]{40})}}");
+
+    /**
+     * Results of probing a remote repository for a package.
+     *
+     * @param status HTTP status of the probe
+     * @param length Value of the Content-Length header, if present
+     * @param sha256 Value of the X-Checksum-Sha256 header, if present
+     * @param etag Value of the ETag header, if present
+     */
+    private record RemotePackage(int status, @Nullable String length, @Nullable String sha256, @Nullable String etag) {
+    }
 
     @SuppressWarnings("this-escape")
     public DebPublishTask() {
         setDescription("Publish DEB packages to an APT repository");
         setGroup("Publishing");
+
+        getUploadParallelism().convention(DEFAULT_UPLOAD_PARALLELISM);
+        getSkipExisting().convention(false);
+        getUpdateIndex().convention(true);
+        getOlderVersionPolicy().convention(OlderVersionPolicy.ALLOW);
     }
 
     /**
@@ -79,12 +136,65 @@ public abstract class DebPublishTask extends DefaultTask {
     public abstract Property<@NonNull String> getRepositoryPassword();
 
     /**
-     * Obtains the Debian tasks whose packages need to be published.
+     * Obtains the maximum number of packages published concurrently. Uploads to a remote repository share a pool
+     * of connections of this size.
      *
-     * @return Debian tasks to publish
+     * @return Maximum number of concurrent uploads. Default is {@value #DEFAULT_UPLOAD_PARALLELISM}.
      */
     @Internal
-    public abstract SetProperty<@NonNull DebTask> getDebTasks();
+    public abstract Property<@NonNull Integer> getUploadParallelism();
+
+    /**
+     * Obtains whether packages already present in the repository are skipped. A package is only skipped if the
+     * repository contains a package with the same name and identical contents. For a local repository, the
+     * contents are compared using their SHA-256 digests. For a remote repository, the package is probed at its
+     * pool location (i.e. {@code pool/<first letter>/<package name>/<package file>}) using a HEAD request and
+     * its contents are compared using the checksum reported by the repository. A checksum is obtained from the
+     * {@code X-Checksum-Sha256} header, a Nexus style {@code ETag} header containing the SHA-1 digest, or a
+     * {@code .sha256} file alongside the package. If the repository does not provide a checksum, the package is
+     * published.
+     *
+     * @return Whether packages already in the repository are skipped. Default is {@code false}.
+     */
+    @Input
+    @Optional
+    public abstract Property<@NonNull Boolean> getSkipExisting();
+
+    /**
+     * Obtains whether the index files of a local repository are updated after publishing. The {@code Packages},
+     * {@code Packages.gz}, {@code Packages.xz} and {@code Release} files of a flat repository are updated
+     * incrementally, so that only the packages that have changed since the last update are read. Remote
+     * repositories maintain their own indexes.
+     *
+     * @return Whether local repository indexes are updated. Default is {@code true}.
+     */
+    @Input
+    @Optional
+    public abstract Property<@NonNull Boolean> getUpdateIndex();
+
+    /**
+     * Obtains the action taken when publishing a package that is older than a version of the same package already in
+     * a local repository. The versions in the repository are obtained from its {@code Packages} index, so the policy
+     * has no effect if the repository does not have an index. A package in the repository is considered the same
+     * package if it has the same name and either the same architecture or one of the packages is architecture
+     * independent. The policy is not applied to remote repositories.
+     *
+     * @return Policy for publishing older package versions. Default is {@link OlderVersionPolicy#ALLOW}.
+     */
+    @Input
+    @Optional
+    public abstract Property<@NonNull OlderVersionPolicy> getOlderVersionPolicy();
+
+    /**
+     * Obtains the packages to publish. Directories in the collection are searched for packages, and only files with
+     * a {@code .deb} extension are published, so the outputs of {@link DebTask} instances can be added directly
+     * (e.g. {@code packages.from(tasks.withType<DebTask>())}), which also makes this task depend on them.
+     *
+     * @return Packages to publish.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getPackages();
 
     /**
      * Performs the publishing of the DEB packages to the APT repository.
@@ -97,10 +207,13 @@ public abstract class DebPublishTask extends DefaultTask {
         } else {
             try {
                 final URI repoUri = new URI(repoUrl.endsWith("/") ? repoUrl : (repoUrl + "/"));
-                final Consumer<File> publishProc = "file".equals(repoUri.getScheme())
-                                                   ? artifact -> publishLocal(artifact.toPath(), repoUri)
-                                                   : artifact -> publishRemote(artifact.toPath(), repoUri);
-                getDebTasks().get().forEach(debTask -> debTask.getArtifacts().forEach(publishProc));
+                final List<File> artifacts = new ArrayList<>();
+                for (final File file : getPackages().getAsFileTree().getFiles()) {
+                    if (file.getName().endsWith(AptIndex.DEB_EXTENSION)) {
+                        artifacts.add(file);
+                    }
+                }
+                publishArtifacts(artifacts, repoUri);
             } catch (final URISyntaxException ex) {
                 throw new TaskExecutionException(this, ex);
             }
@@ -108,22 +221,276 @@ public abstract class DebPublishTask extends DefaultTask {
     }
 
     /**
-     * Publishes the package to the local filesystem.
+     * Publishes the specified artifacts to the repository. Up to {@link #getUploadParallelism()} artifacts are
+     * published concurrently. Publishing continues if an artifact fails to publish, and all failures are reported
+     * together once all artifacts have been attempted. Packages that are older than those already in a local
+     * repository are handled according to {@link #getOlderVersionPolicy()}.
+     *
+     * @param candidates Artifacts to publish
+     * @param repoUri URI of the repository. For a local repository, the URI must use the {@code file} scheme.
+     */
+    void publishArtifacts(final List<File> candidates, final URI repoUri) {
+        final boolean local = "file".equals(repoUri.getScheme());
+        final List<File> artifacts;
+        if (local) {
+            try {
+                artifacts = filterOlderVersions(candidates, repoUri);
+            } catch (final IOException ex) {
+                throw new TaskExecutionException(this, ex);
+            }
+        } else {
+            if (getOlderVersionPolicy().get() != OlderVersionPolicy.ALLOW) {
+                getLogger().info("Older version policy is not applied to remote repository {}", repoUri);
+            }
+            artifacts = candidates;
+        }
+        if (artifacts.isEmpty()) {
+            return;
+        }
+
+        final int parallelism = Math.max(1, Math.min(getUploadParallelism().get(), artifacts.size()));
+        final boolean skipExisting = getSkipExisting().get();
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "deb-publish");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (CloseableHttpClient client = local ? null : createClient(parallelism)) {
+            final Map<File, Future<?>> uploads = new LinkedHashMap<>();
+            for (final File artifact : artifacts) {
+                uploads.put(artifact, executor.submit(() -> {
+                    final Path file = artifact.toPath();
+                    if (client == null) {
+                        if (skipExisting && isPublishedLocal(file, repoUri)) {
+                            getLogger().lifecycle("Skipping {}, already published", file.getFileName());
+                        } else {
+                            publishLocal(file, repoUri);
+                        }
+                    } else {
+                        if (skipExisting && isPublishedRemote(client, file, repoUri)) {
+                            getLogger().lifecycle("Skipping {}, already published", file.getFileName());
+                        } else {
+                            publishRemote(client, file, repoUri);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            final List<Throwable> failures = new ArrayList<>();
+            for (final Map.Entry<File, Future<?>> upload : uploads.entrySet()) {
+                try {
+                    upload.getValue().get();
+                } catch (final ExecutionException ex) {
+                    getLogger().error("Unable to publish {}: {}", upload.getKey().getName(),
+                                      ex.getCause().getMessage());
+                    failures.add(ex.getCause());
+                }
+            }
+
+            // The index reflects the packages in the repository, so it is updated even if some packages
+            // could not be published.
+            if (local && getUpdateIndex().get()) {
+                updateLocalIndex(artifacts, repoUri);
+            }
+
+            if (!failures.isEmpty()) {
+                final GradleException ex = new GradleException(String.format("Unable to publish %d of %d artifacts",
+                                                                             failures.size(), artifacts.size()));
+                failures.forEach(ex::addSuppressed);
+                throw new TaskExecutionException(this, ex);
+            }
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TaskExecutionException(this, ex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Applies the older version policy to the artifacts being published to a local repository.
+     *
+     * @param artifacts Artifacts to publish
+     * @param uri URI whose path is the local repository
+     * @return Artifacts that should be published. Skipped packages are removed along with their package
+     *      information files.
+     * @throws IOException if there was a problem reading the repository index or the packages
+     */
+    private List<File> filterOlderVersions(final List<File> artifacts, final URI uri) throws IOException {
+        final OlderVersionPolicy policy = getOlderVersionPolicy().get();
+        final Path packagesFile = Path.of(uri.getPath()).resolve(AptIndex.PACKAGES);
+        if (policy == OlderVersionPolicy.ALLOW || !Files.isRegularFile(packagesFile)) {
+            return artifacts;
+        }
+
+        final PackagesIndex index = PackagesIndex.open(packagesFile);
+        final Set<String> skipped = new HashSet<>();
+        int olderCount = 0;
+        for (final File artifact : artifacts) {
+            if (!artifact.getName().endsWith(AptIndex.DEB_EXTENSION)) {
+                continue;
+            }
+
+            final Path deb = artifact.toPath();
+            final ControlFile control = readControl(deb);
+            final String newerVersion = findNewerVersion(index, control);
+            if (newerVersion == null) {
+                continue;
+            }
+
+            olderCount++;
+            if (policy == OlderVersionPolicy.SKIP) {
+                getLogger().lifecycle("Skipping {}, repository contains newer version {}", deb.getFileName(),
+                                      newerVersion);
+                skipped.add(artifact.getName());
+                skipped.add(AptIndex.getInfoFile(deb).getFileName().toString());
+            } else {
+                getLogger().error("Unable to publish {}, repository contains newer version {}", deb.getFileName(),
+                                  newerVersion);
+            }
+        }
+
+        if (policy == OlderVersionPolicy.FAIL && olderCount > 0) {
+            throw new TaskExecutionException(this, new GradleException(
+                    String.format("Unable to publish %d packages older than those in the repository", olderCount)));
+        }
+
+        return skipped.isEmpty()
+               ? artifacts
+               : artifacts.stream().filter(artifact -> !skipped.contains(artifact.getName())).toList();
+    }
+
+    /**
+     * Finds the newest version of a package in a repository index that is newer than the specified package.
+     *
+     * @param index Index of the repository
+     * @param control Control file of the package to publish
+     * @return Newest version of the package in the repository, or {@code null} if the repository does not contain a
+     *      newer version of the package.
+     */
+    private static @Nullable String findNewerVersion(final PackagesIndex index, final ControlFile control) {
+        final String name = control.getPackage();
+        final String version = control.getVersion();
+        if (name == null || version == null) {
+            return null;
+        }
+
+        final ControlFile newest = index.findNewest(name, control.getArchitecture());
+        final String newestVersion = (newest == null) ? null : newest.getVersion();
+        return (newestVersion != null && DebianVersion.compare(newestVersion, version) > 0) ? newestVersion : null;
+    }
+
+    /**
+     * Reads the control file of a package. The control file is read from the package information file, if present,
+     * to avoid reading the package.
+     *
+     * @param deb Package whose control file is to be read
+     * @return Control file of the package.
+     * @throws IOException if the control file could not be read
+     */
+    private static ControlFile readControl(final Path deb) throws IOException {
+        final Path infoFile = AptIndex.getInfoFile(deb);
+        if (Files.isRegularFile(infoFile)) {
+            try (InputStream ins = Files.newInputStream(infoFile)) {
+                return ControlFile.parse(ins);
+            }
+        }
+        return ControlFile.parse(new ByteArrayInputStream(AptIndex.readPackageControl(deb)));
+    }
+
+    /**
+     * Creates an HTTP client whose connections are pooled and shared by all uploads.
+     *
+     * @param parallelism Maximum number of concurrent connections
+     * @return HTTP client for uploading packages.
+     */
+    private static CloseableHttpClient createClient(final int parallelism) {
+        final PoolingHttpClientConnectionManager connectionManager =
+                PoolingHttpClientConnectionManagerBuilder.create()
+                                                         .setMaxConnTotal(parallelism)
+                                                         .setMaxConnPerRoute(parallelism)
+                                                         .build();
+        final RequestConfig config = RequestConfig.custom()
+                                                  .setConnectionRequestTimeout(REPO_TIMEOUT)
+                                                  .setResponseTimeout(REPO_TIMEOUT)
+                                                  .build();
+        return HttpClients.custom()
+                          .setConnectionManager(connectionManager)
+                          .setDefaultRequestConfig(config)
+                          .build();
+    }
+
+    /**
+     * Publishes the package to the local filesystem. Readers of the repository never see a partially written
+     * package because the package is placed in the repository under a temporary name and then atomically renamed.
+     * If the package and the repository are on the same filesystem, the package is hard linked rather than copied.
+     * This is safe because packages are replaced rather than rewritten when they are rebuilt. Otherwise, the
+     * package is copied by the operating system using {@link FileChannel#transferTo(long, long,
+     * java.nio.channels.WritableByteChannel)} and flushed to storage before being renamed.
      *
      * @param file Pathname of the Debian package to publish
      * @param uri URI whose path is the destination on the local filesystem.
+     * @throws IOException if the package could not be published
      */
-    private void publishLocal(final Path file, final URI uri) {
+    private void publishLocal(final Path file, final URI uri) throws IOException {
         getLogger().info("Publishing {} to local destination {}", file.getFileName(), uri);
 
-        final Path path = Path.of(uri.getPath());
+        final Path path = Files.createDirectories(Path.of(uri.getPath()));
+        final Path target = path.resolve(file.getFileName());
+        if (Files.exists(target) && Files.isSameFile(file, target)) {
+            return;
+        }
+
+        final Path tempFile = path.resolve("." + file.getFileName() + "." + UUID.randomUUID() + ".tmp");
         try {
-            if (Files.notExists(path)) {
-                Files.createDirectories(path);
+            try {
+                Files.createLink(tempFile, file);
+            } catch (final IOException | UnsupportedOperationException ex) {
+                getLogger().debug("Unable to link {} into {}, copying: {}", file, path, ex.getMessage());
+                transferFile(file, tempFile);
+            }
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Updates the index files of a local repository. The stanzas for the published packages are created from
+     * their package information files.
+     *
+     * @param artifacts Packages that were published
+     * @param uri URI whose path is the local repository
+     * @throws IOException if there was a problem updating the index
+     */
+    private void updateLocalIndex(final List<File> artifacts, final URI uri) throws IOException {
+        final Path path = Files.createDirectories(Path.of(uri.getPath()));
+        final Map<String, Path> infoFiles = new HashMap<>();
+        for (final File artifact : artifacts) {
+            final String filename = artifact.getName();
+            if (filename.endsWith(AptIndex.DEB_EXTENSION)) {
+                infoFiles.put(filename, AptIndex.getInfoFile(artifact.toPath()));
             }
-            Files.copy(file, path.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
-        } catch (final IOException ex) {
-            throw new TaskExecutionException(this, ex);
+        }
+
+        final AptIndex index = new AptIndex(path);
+        index.update(infoFiles);
+        getLogger().info("Updated index for {} ({} packages read)", uri, index.getIndexedCount());
+    }
+
+    private static void transferFile(final Path src, final Path dst) throws IOException {
+        try (FileChannel srcChannel = FileChannel.open(src, StandardOpenOption.READ);
+             FileChannel dstChannel = FileChannel.open(dst, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            final long size = srcChannel.size();
+            long position = 0;
+            while (position < size) {
+                position += srcChannel.transferTo(position, size - position, dstChannel);
+            }
+            dstChannel.force(true);
         }
     }
 
@@ -132,38 +499,135 @@ public abstract class DebPublishTask extends DefaultTask {
      * using a multipart POST. The Apache HTTP client is used because the Java HTTP client does not have
      * built-in multipart support and Nexus is very finicky about multipart uploads.
      *
+     * @param client HTTP client with which to upload the package
      * @param file Pathname of the Debian package to publish
      * @param uri URI of the repository to which the package should be published
+     * @throws IOException if the package could not be published
      */
-    private void publishRemote(final Path file, final URI uri) {
+    private void publishRemote(final CloseableHttpClient client, final Path file, final URI uri) throws IOException {
         getLogger().info("Publishing {} to remote destination {}", file.getFileName(), uri);
 
         final HttpPost post = new HttpPost(uri);
         post.setHeader("Content-Type", MULTIPART_FORM_DATA);
         post.setEntity(new PathEntity(file, ContentType.create(MULTIPART_FORM_DATA)));
+        authorize(post);
+
+        client.execute(post, response -> {
+            final int status = response.getCode();
+            final HttpEntity resEntity = response.getEntity();
+            final String body = resEntity != null ? EntityUtils.toString(resEntity) : null;
+            if (status >= HttpStatus.SC_OK && status < HttpStatus.SC_MULTIPLE_CHOICES) {
+                return body;
+            } else {
+                throw new IOException("Unable to upload file `" + file + "' - HTTP status " + status);
+            }
+        });
+    }
+
+    /**
+     * Determines whether a package with identical contents is present in a local repository.
+     *
+     * @param file Pathname of the Debian package to publish
+     * @param uri URI whose path is the destination on the local filesystem.
+     * @return {@code true} if the repository already contains the package.
+     * @throws IOException if there was a problem reading the packages
+     */
+    private static boolean isPublishedLocal(final Path file, final URI uri) throws IOException {
+        final Path published = Path.of(uri.getPath()).resolve(file.getFileName());
+        return Files.isRegularFile(published)
+                && Files.size(published) == Files.size(file)
+                && Checksums.of(published).sha256().equals(Checksums.of(file).sha256());
+    }
+
+    /**
+     * Determines whether a package with identical contents is present in a remote repository.
+     *
+     * @param client HTTP client with which to probe the repository
+     * @param file Pathname of the Debian package to publish
+     * @param uri URI of the repository to which the package should be published
+     * @return {@code true} if the repository already contains the package.
+     * @throws IOException if there was a problem probing the repository or reading the package
+     */
+    private boolean isPublishedRemote(final CloseableHttpClient client, final Path file, final URI uri)
+            throws IOException {
+        final URI packageUri = uri.resolve(getPoolPath(file.getFileName().toString()));
+        final HttpHead head = new HttpHead(packageUri);
+        authorize(head);
+        final RemotePackage remote = client.execute(head, response -> new RemotePackage(
+                response.getCode(),
+                getHeader(response, "Content-Length"),
+                getHeader(response, "X-Checksum-Sha256"),
+                getHeader(response, "ETag")));
+        if (remote.status() != HttpStatus.SC_OK) {
+            getLogger().info("Package {} not found in repository (HTTP status {})", packageUri, remote.status());
+            return false;
+        }
+        if (remote.length() != null && Long.parseLong(remote.length()) != Files.size(file)) {
+            return false;
+        }
+
+        if (remote.sha256() != null) {
+            return remote.sha256().equalsIgnoreCase(Checksums.of(file).sha256());
+        }
+
+        if (remote.etag() != null) {
+            final Matcher matcher = NEXUS_SHA1_ETAG.matcher(remote.etag());
+            if (matcher.find()) {
+                return matcher.group(1).equalsIgnoreCase(sha1(file));
+            }
+        }
+
+        final HttpGet get = new HttpGet(URI.create(packageUri + ".sha256"));
+        authorize(get);
+        final String sha256 = client.execute(get, response -> {
+            final HttpEntity entity = response.getEntity();
+            final String body = entity != null ? EntityUtils.toString(entity) : null;
+            return (response.getCode() == HttpStatus.SC_OK && body != null && !body.isBlank())
+                   ? body.trim().split("\\s+")[0] : null;
+        });
+        if (sha256 != null) {
+            return sha256.equalsIgnoreCase(Checksums.of(file).sha256());
+        }
+
+        getLogger().info("Repository does not provide a checksum for {}, publishing", packageUri);
+        return false;
+    }
+
+    /**
+     * Obtains the location of a package in an APT repository's pool, relative to the repository root.
+     *
+     * @param filename Package filename (i.e. {@code <package>_<version>_<architecture>.deb})
+     * @return Location of the package in the repository pool.
+     */
+    static String getPoolPath(final String filename) {
+        final int pos = filename.indexOf('_');
+        final String packageName = pos > 0 ? filename.substring(0, pos) : filename;
+        return "pool/" + packageName.substring(0, 1).toLowerCase(Locale.ROOT) + "/" + packageName + "/" + filename;
+    }
+
+    private void authorize(final HttpUriRequestBase request) {
         if (getRepositoryUsername().isPresent() && getRepositoryPassword().isPresent()) {
             final String authStr = getRepositoryUsername().get() + ":" + getRepositoryPassword().get();
             final String auth = Base64.getEncoder().encodeToString(authStr.getBytes(StandardCharsets.UTF_8));
-            post.setHeader("Authorization", "Basic " + auth);
+            request.setHeader("Authorization", "Basic " + auth);
         }
+    }
 
-        final RequestConfig config = RequestConfig.custom()
-                                                  .setConnectionRequestTimeout(REPO_TIMEOUT)
-                                                  .setResponseTimeout(REPO_TIMEOUT)
-                                                  .build();
+    private static @Nullable String getHeader(final ClassicHttpResponse response, final String name) {
+        final Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
 
-        try (CloseableHttpClient client = HttpClients.custom().setDefaultRequestConfig(config).build()) {
-            client.execute(post, response -> {
-                final int status = response.getCode();
-                if (status >= HttpStatus.SC_OK && status < HttpStatus.SC_MULTIPLE_CHOICES) {
-                    final HttpEntity resEntity = response.getEntity();
-                    return resEntity != null ? EntityUtils.toString(resEntity) : null;
-                } else {
-                    throw new IOException("Unable to upload file `" + file + "' - HTTP status " + status);
-                }
-            });
-        } catch (final IOException ex) {
-            throw new TaskExecutionException(this, ex);
+    private static String sha1(final Path file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new GradleException("Could not obtain SHA-1 digest", ex);
+        }
+        try (InputStream ins = new DigestInputStream(Files.newInputStream(file), digest)) {
+            ins.transferTo(OutputStream.nullOutputStream());
         }
+        return HexFormat.of().formatHex(digest.digest());
     }
 }
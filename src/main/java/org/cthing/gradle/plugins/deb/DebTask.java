@@ -4,25 +4,31 @@
  */
 package org.cthing.gradle.plugins.deb;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.io.OutputStream;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.PosixFilePermissions;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -30,10 +36,12 @@ import javax.inject.Inject;
 
 import org.apache.commons.io.FileUtils;
 import org.cthing.projectversion.ProjectVersion;
+import org.gradle.api.Action;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.CopySpec;
 import org.gradle.api.file.ProjectLayout;
-import org.gradle.api.internal.file.FileOperations;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
@@ -41,70 +49,92 @@ import org.gradle.api.plugins.BasePluginExtension;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.SetProperty;
+import org.gradle.api.services.ServiceReference;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
-import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.Sync;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.TaskExecutionException;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
 
-import freemarker.cache.FileTemplateLoader;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
-import freemarker.template.TemplateExceptionHandler;
 
 
 /**
  * Builds a Debian package based on a specified control file. To avoid duplication of information a number of
  * properties defined in the build file are made available to the control file as template variables prefixed with
- * 'project_' (e.g. project_name, project_version).
+ * 'project_' (e.g. project_name, project_version). The task is cacheable. Its file inputs are tracked relative to
+ * their directories and its outputs are the package directory and the manifest, so that packages built on one
+ * machine can be reused from the build cache on another.
  */
 @SuppressWarnings("LoggingSimilarMessage")
+@CacheableTask
 public abstract class DebTask extends DefaultTask {
 
+    static final String DPKG_BUILDPACKAGE_TOOL = "/usr/bin/dpkg-buildpackage";
+    static final String LINTIAN_TOOL = "/usr/bin/lintian";
+    static final String SOURCE_DATE_EPOCH = "SOURCE_DATE_EPOCH";
+    static final Duration DEFAULT_BUILD_TIMEOUT = Duration.ofMinutes(60);
+    static final Duration DEFAULT_LINT_TIMEOUT = Duration.ofMinutes(15);
+
     private static final Logger LOGGER = Logging.getLogger(DebTask.class);
-    private static final String DPKG_BUILDPACKAGE_TOOL = "/usr/bin/dpkg-buildpackage";
     private static final String DPKG_GENCONTROL_TOOL = "/usr/bin/dpkg-gencontrol";
     private static final String DH_TOOL = "/usr/bin/dh";
-    private static final String LINTIAN_TOOL = "/usr/bin/lintian";
-
-    private final SourceSetContainer sourceSets;
-    private final freemarker.template.Configuration templateConfig;
-
-    @SuppressWarnings({ "this-escape", "AssignmentOrReturnOfFieldWithMutableType" })
-    @Inject
-    public DebTask(final SourceSetContainer sourceSets) {
-        this.sourceSets = sourceSets;
-
+    private static final long MILLIS_PER_SECOND = 1000;
+    private static final String SOURCE_DIR = "source";
+    private static final String DEBIAN_DIR = "debian";
+    private static final String STAGING_MANIFEST = "staging.manifest";
+    private static final String CONTENTS_DIR = ".contents";
+    private static final String CONTENTS_MANIFEST = "contents.manifest";
+    private static final String[] CONFIG_FILES = { "control", "copyright", "changelog" };
+    private static final DateTimeFormatter CHANGELOG_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("EEE, d MMM yyyy HH:mm:ss Z", Locale.ENGLISH).withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter BUILD_YEAR_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy", Locale.ENGLISH).withZone(ZoneId.systemDefault());
+
+    private transient @Nullable Set<File> artifacts;
+    private transient @Nullable TemplateVariables templateVariables;
+
+    @SuppressWarnings("this-escape")
+    public DebTask() {
         setDescription("Create a Debian package");
         setGroup("Packaging");
 
-        final File defaultWorkingDir = new File(getProjectLayout().getBuildDirectory().get().getAsFile(),
-                                                "debian-build/" + getName());
-        getWorkingDir().convention(defaultWorkingDir);
-
-        this.templateConfig = new freemarker.template.Configuration(freemarker.template.Configuration.VERSION_2_3_28);
-        try {
-            this.templateConfig.setTemplateLoader(new FileTemplateLoader(new File("/"), true));
-            this.templateConfig.setDefaultEncoding(StandardCharsets.UTF_8.name());
-            this.templateConfig.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
-            this.templateConfig.setLogTemplateExceptions(false);
-            this.templateConfig.setWrapUncheckedExceptions(true);
-        } catch (final IOException ex) {
-            throw new TaskExecutionException(this, ex);
-        }
+        final String name = getName();
+        getWorkingDir().convention(getProjectLayout().getBuildDirectory()
+                                                     .map(dir -> dir.dir("debian-build/" + name).getAsFile()));
+        getManifestFile().convention(getProjectLayout().getBuildDirectory()
+                                                       .map(dir -> dir.file("debian-manifests/" + name + ".json")
+                                                                      .getAsFile()));
+        getBuildEngine().convention(BuildEngine.DPKG);
+        getCompression().convention(Compression.GZIP);
+        getIsolation().convention(WorkerIsolation.NONE);
+        getBuildTimeout().convention(DEFAULT_BUILD_TIMEOUT);
+        getLintTimeout().convention(DEFAULT_LINT_TIMEOUT);
+        getStagingChecksums().convention(false);
     }
 
     /**
-     * Obtains an instance of the Gradle file operations object.
+     * Obtains an instance of the Gradle worker executor.
      *
-     * @return Gradle file operations object
+     * @return Gradle worker executor
      */
     @Inject
-    protected abstract FileOperations getFileOperations();
+    protected abstract WorkerExecutor getWorkerExecutor();
 
     /**
      * Obtains an instance of the Gradle project layout object.
@@ -139,13 +169,49 @@ public abstract class DebTask extends DefaultTask {
     public abstract Property<@NonNull Object> getProjectVersion();
 
     /**
-     * Obtains the root directory of the project.
+     * Obtains the timestamp used to make the package reproducible. The modification times of the package members are
+     * set to, or in the case of {@code dpkg-buildpackage} clamped to, this timestamp.
+     *
+     * @return Timestamp in seconds since the epoch. Default is determined by
+     *      {@link #getDefaultSourceDateEpoch(Object, String)}.
+     */
+    @Input
+    public abstract Property<@NonNull Long> getSourceDateEpoch();
+
+    /**
+     * Obtains the root directory of the project. The directory is only used to define the {@code project_root_dir}
+     * variable, so its contents are not tracked as an input of the task. Files that the {@code rules} file installs
+     * from the project should be specified using {@link #getPayload()}.
      *
      * @return Project root directory
      */
-    @InputDirectory
+    @Internal
     public abstract Property<@NonNull File> getRootDir();
 
+    /**
+     * Obtains the files that the {@code rules} file installs into the package. The files are tracked as inputs of
+     * the task, so that the package is rebuilt when they change, and tasks producing them are run before this task.
+     * The absolute paths of the files, separated by spaces, are available to the configuration files as the
+     * {@code project_payload} variable and to the {@code rules} file as the {@code PROJECT_PAYLOAD} environment
+     * variable.
+     *
+     * @return Files installed by the rules file. Default is no files.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getPayload();
+
+    /**
+     * Obtains the resources output directories of the project's source sets. Each directory defines a
+     * {@code project_<source set name>_resources_dir} variable. The directories are only used to define the
+     * variables, so their contents are not tracked as an input of the task.
+     *
+     * @return Map of source set names to their resources output directories. Default is the source sets of
+     *      the project, if the {@code java} plugin is applied.
+     */
+    @Internal
+    public abstract MapProperty<@NonNull String, @NonNull File> getResourceDirs();
+
     /**
      * Obtains the directory containing the control and other configuration files. The directory is copied to the
      * working directory and variable replacement is performed.
@@ -153,16 +219,157 @@ public abstract class DebTask extends DefaultTask {
      * @return Debian configuration directory.
      */
     @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
     public abstract Property<@NonNull File> getDebianDir();
 
     /**
-     * Obtains the directory where the package will be generated.
+     * Obtains the directory containing the files to install in the package, laid out as they will be on the target
+     * system (e.g. {@code opt/myapp/lib/myapp.jar}). The staging directory is only used by the
+     * {@link BuildEngine#NATIVE} build engine. If a staging directory is not specified, the contents of the
+     * {@code debian/<package>} directory in the working directory are packaged.
+     *
+     * @return Package staging directory.
+     */
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @Optional
+    public abstract Property<@NonNull File> getStagingDir();
+
+    /**
+     * Obtains the directory containing the files assembled by {@link #contents(Action)}, laid out as they will be
+     * on the target system. The directory is set by {@link #contents(Action)} and is the destination of the
+     * {@code <task name>Contents} task, which assembles the files.
+     *
+     * @return Package contents directory. Not present unless {@link #contents(Action)} has been called.
+     */
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @Optional
+    public abstract Property<@NonNull File> getContentsDir();
+
+    /**
+     * Specifies the files to install in the package using a Gradle copy specification. Destination paths are
+     * relative to the root of the target system (e.g. {@code into("opt/myapp") { from(jar) }}), and file and
+     * directory permissions can be set using the copy specification (e.g. {@code filePermissions}). The files are
+     * assembled by a {@code <task name>Contents} task, which is created the first time this method is called, and
+     * are staged into the working directory before the package is built. Staging is incremental and uses hard links
+     * where possible, so unchanged files are neither copied nor linked again.
+     *
+     * <p>
+     * For the {@link BuildEngine#DPKG} build engine, the staged files are installed by {@code dh_install}, so the
+     * {@code rules} file must use the {@code dh} command sequencer. For the {@link BuildEngine#NATIVE} build
+     * engine, the staged files are packaged directly and a {@link #getStagingDir() staging directory} cannot also
+     * be specified. Regardless of the permissions specified, the packaging tools normalize the permissions of the
+     * packaged files based on whether they are executable, and all packaged files are owned by root.
+     * </p>
+     *
+     * @param action Configures the copy specification of the package contents. This method can be called multiple
+     *      times to add to the contents.
+     */
+    public void contents(final Action<? super CopySpec> action) {
+        final TaskContainer tasks = getProject().getTasks();
+        final String contentsTaskName = getName() + "Contents";
+        final TaskProvider<Sync> contentsTask;
+        if (tasks.getNames().contains(contentsTaskName)) {
+            contentsTask = tasks.named(contentsTaskName, Sync.class);
+        } else {
+            final String name = getName();
+            contentsTask = tasks.register(contentsTaskName, Sync.class, task -> {
+                task.setDescription("Assembles the contents of the " + name + " package");
+                task.setGroup(getGroup());
+                task.into(getProjectLayout().getBuildDirectory().dir("debian-contents/" + name));
+            });
+            getContentsDir().set(contentsTask.map(Sync::getDestinationDir));
+            dependsOn(contentsTask);
+        }
+
+        // The contents are configured as a child of the task's copy specification so that a destination specified
+        // by the action is relative to the package root rather than replacing the task's destination directory.
+        final CopySpec spec = getProject().copySpec(action);
+        contentsTask.configure(task -> task.with(spec));
+    }
+
+    /**
+     * Obtains the mechanism used to build the package.
+     *
+     * @return Package build engine. Default is {@link BuildEngine#DPKG}.
+     */
+    @Input
+    public abstract Property<@NonNull BuildEngine> getBuildEngine();
+
+    /**
+     * Obtains the compression method for the package control and data archives. The compression method is only
+     * used by the {@link BuildEngine#NATIVE} build engine.
+     *
+     * @return Package archive compression method. Default is {@link Compression#GZIP}.
+     */
+    @Input
+    public abstract Property<@NonNull Compression> getCompression();
+
+    /**
+     * Obtains the isolation mode for the work items that build and lint the package.
+     *
+     * @return Work item isolation mode. Default is {@link WorkerIsolation#NONE}.
+     */
+    @Internal
+    public abstract Property<@NonNull WorkerIsolation> getIsolation();
+
+    /**
+     * Obtains the maximum time that {@code dpkg-buildpackage} and {@code dpkg-gencontrol} are allowed to run. A
+     * tool that runs longer is terminated, together with all processes it started, and the task fails. A zero
+     * duration allows the tools to run indefinitely.
+     *
+     * @return Package build timeout. Default is 60 minutes.
+     */
+    @Internal
+    public abstract Property<@NonNull Duration> getBuildTimeout();
+
+    /**
+     * Obtains the maximum time that Lintian is allowed to run. Lintian is terminated, together with all processes
+     * it started, if it runs longer and the task fails. A zero duration allows Lintian to run indefinitely.
+     *
+     * @return Package lint timeout. Default is 15 minutes.
+     */
+    @Internal
+    public abstract Property<@NonNull Duration> getLintTimeout();
+
+    /**
+     * Obtains the service limiting the number of packages built concurrently.
+     *
+     * @return Packaging tool service.
+     */
+    @ServiceReference(DebToolService.NAME)
+    public abstract Property<@NonNull DebToolService> getToolService();
+
+    /**
+     * Obtains the service providing the shared template engine used to process the configuration files.
      *
-     * @return Package directory. Default is {@link BasePluginExtension#getDistsDirectory()}.
+     * @return Template service.
+     */
+    @ServiceReference(TemplateService.NAME)
+    public abstract Property<@NonNull TemplateService> getTemplateService();
+
+    /**
+     * Obtains the directory where the package will be generated. The directory is the output of the task, so it
+     * must not be shared with other tasks. Only the package and package information files generated by the most
+     * recent execution of the task are kept in the directory.
+     *
+     * @return Package directory. Default is a subdirectory of {@link BasePluginExtension#getDistsDirectory()}
+     *      named after the task (e.g. {@code build/distributions/<task name>}).
      */
     @OutputDirectory
     public abstract Property<@NonNull File> getDestinationDir();
 
+    /**
+     * Obtains the location of the JSON manifest describing the artifacts produced by the task. For each package
+     * and package information file, the manifest lists the file location, size, SHA-256 and MD5 digests, and
+     * the package name, version and architecture. The duration of each phase of the task is also recorded.
+     *
+     * @return Manifest file. Default is {@code build/debian-manifests/<task name>.json}.
+     */
+    @OutputFile
+    public abstract Property<@NonNull File> getManifestFile();
+
     /**
      * Obtains the root directory for the Debian package build process.
      *
@@ -171,6 +378,18 @@ public abstract class DebTask extends DefaultTask {
     @Internal
     public abstract Property<@NonNull File> getWorkingDir();
 
+    /**
+     * Obtains whether the contents of files are hashed when staging the debian directory into the working
+     * directory. The debian directory is staged incrementally, with files copied only when their size or
+     * modification time has changed since the last build. Enabling hashing avoids copying files whose modification
+     * time has changed but whose contents have not (e.g. following a source control checkout), at the expense of
+     * reading those files.
+     *
+     * @return Whether staged file contents are hashed. Default is {@code false}.
+     */
+    @Internal
+    public abstract Property<@NonNull Boolean> getStagingChecksums();
+
     /**
      * Obtains the organization creating the package.
      *
@@ -284,39 +503,18 @@ public abstract class DebTask extends DefaultTask {
 
     /**
      * Provides the DEB package artifacts that will be generated by this task. This method should only be called
-     * after the task has been fully configured (e.g. debian directory specified).
+     * after the task has been fully configured (e.g. debian directory specified). The artifacts are determined
+     * from the control and changelog files, and are only determined once. If the package name or architecture
+     * in the control file contain substitution variables, the Debian packaging tools are used to resolve them.
      *
      * @return DEB artifacts generated by this task.
      */
     @Internal
-    public Set<File> getArtifacts() {
-        final Set<File> artifacts = new HashSet<>();
-
-            try {
-            final File tempDir = Files.createTempDirectory(getWorkingDir().get().toPath(), "ctrl").toFile();
-                createDebianDir(tempDir);
-
-                final List<String> dpkgBuildArgs = new ArrayList<>();
-                dpkgBuildArgs.add(DPKG_GENCONTROL_TOOL);
-                dpkgBuildArgs.add("-ObinaryControl");
-
-                LOGGER.info("Running {} in {}", DPKG_GENCONTROL_TOOL, tempDir);
-                final ProcessBuilder processBuilder = new ProcessBuilder(dpkgBuildArgs);
-                processBuilder.directory(tempDir);
-                final Process process = processBuilder.start();
-                final String errorOutput = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8);
-                final int status = process.waitFor();
-                if (status != 0) {
-                    throw new IOException(errorOutput);
-                }
-
-                final ControlFile controlFile = parseControlFile(tempDir.toPath().resolve("binaryControl"));
-            artifacts.add(new File(getDestinationDir().get(), controlFile.getPackageFilename()));
-            } catch (final IOException | InterruptedException ex) {
-                throw new TaskExecutionException(this, ex);
-            }
-
-        return artifacts;
+    public synchronized Set<File> getArtifacts() {
+        if (this.artifacts == null) {
+            this.artifacts = Set.of(new File(getDestinationDir().get(), resolveBinaryControl().getPackageFilename()));
+        }
+        return this.artifacts;
     }
 
     /**
@@ -339,43 +537,199 @@ public abstract class DebTask extends DefaultTask {
     public void run() {
         getLogging().captureStandardOutput(LogLevel.INFO);
 
-        if (!toolsExist()) {
+        // Template variables are computed once per execution so that they reflect the final task configuration.
+        synchronized (this) {
+            this.templateVariables = null;
+        }
+
+        final BuildEngine engine = getBuildEngine().get();
+        if (engine == BuildEngine.DPKG && !toolsExist()) {
             throw new GradleException("Could not find Debian packaging tools (e.g. " + DPKG_BUILDPACKAGE_TOOL + ")");
         }
+        if (getLintianEnable().get() && !new File(LINTIAN_TOOL).exists()) {
+            throw new GradleException("Could not find " + LINTIAN_TOOL + ". Install it or disable package linting.");
+        }
 
-        // Start with a clean working directory.
-        final File wdir = getWorkingDir().get();
-        FileUtils.deleteQuietly(wdir);
+        // Start with a clean build directory. Each task builds in its own directory so that tasks running in
+        // parallel never see each other's intermediate files. The package source is placed in a subdirectory
+        // because the packaging tools write the built package to the parent of the source directory. Everything
+        // other than the staged debian directory is removed. The debian directory is synchronized incrementally.
+        final PackageManifest manifest = new PackageManifest();
+        long phaseStart = System.nanoTime();
+        final File buildRoot = getWorkingDir().get();
+        final File sourceDir = new File(buildRoot, SOURCE_DIR);
+        cleanDirectory(buildRoot, SOURCE_DIR, STAGING_MANIFEST, CONTENTS_MANIFEST);
+        cleanDirectory(sourceDir, DEBIAN_DIR, CONTENTS_DIR);
 
         // Create the working and configuration directories.
-        final File dstDebianDir = createDebianDir(wdir);
+        final StagingSync staging = new StagingSync(buildRoot.toPath().resolve(STAGING_MANIFEST),
+                                                    getStagingChecksums().get());
+        final File dstDebianDir = createDebianDir(sourceDir, staging);
+        try {
+            staging.save();
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
+        }
 
         // Ensure the rules file is executable
         makeExecutable(new File(dstDebianDir, "rules"));
 
         final ControlFile sourceControlFile = parseSourceControlFile(dstDebianDir);
+        final String packageName = sourceControlFile.getPackage();
+        final File contentsDir = stageContents(buildRoot, sourceDir, dstDebianDir, packageName, engine);
+        phaseStart = recordPhase(manifest, "stage", phaseStart);
+
+        // Build the package. The build is performed as a work item so that the task does not hold a worker
+        // while the packaging tools run.
+        final Map<String, String> environment = new HashMap<>();
+        if (engine == BuildEngine.DPKG) {
+            createEnvironmentVariables(packageName, readRulesFile(dstDebianDir)).forEach((name, value) -> {
+                if (value != null) {
+                    environment.put(name, value);
+                }
+            });
+        }
 
-        // Build the package.
-        final File packageFile = buildPackage(wdir, dstDebianDir, sourceControlFile.getPackage());
+        final WorkQueue workQueue = createWorkQueue();
+        workQueue.submit(DebBuildAction.class, params -> {
+            params.getWorkingDir().set(sourceDir);
+            params.getOutputDir().set(buildRoot);
+            params.getPackageName().set(packageName);
+            params.getBuildEngine().set(engine);
+            params.getEnvironment().set(environment);
+            if (contentsDir != null && engine == BuildEngine.NATIVE) {
+                params.getStagingDir().set(contentsDir);
+            } else {
+                params.getStagingDir().set(getStagingDir());
+            }
+            params.getCompression().set(getCompression());
+            params.getTimestamp().set(getSourceDateEpoch());
+            params.getTimeout().set(getBuildTimeout());
+        });
+        workQueue.await();
+        phaseStart = recordPhase(manifest, "build", phaseStart);
+
+        final File packageFile = copyArtifacts(buildRoot, dstDebianDir, packageName, manifest);
+        synchronized (this) {
+            this.artifacts = Set.of(new File(getDestinationDir().get(), packageFile.getName()));
+        }
+        phaseStart = recordPhase(manifest, "copy", phaseStart);
 
         // Lint the built package if desired.
         if (getLintianEnable().get()) {
-            lintPackage(packageFile);
+            workQueue.submit(DebLintAction.class, params -> {
+                params.getPackageFile().set(packageFile);
+                params.getSuppressedTags().set(createLintianTags());
+                params.getTimeout().set(getLintTimeout());
+            });
+            workQueue.await();
+            recordPhase(manifest, "lint", phaseStart);
+        }
+
+        try {
+            manifest.write(getManifestFile().get().toPath());
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
         }
     }
 
-    private File createDebianDir(final File baseDir) {
-        // Create the working and configuration directories.
-        final File dstDebianDir = new File(baseDir, "debian");
+    /**
+     * Records the duration of a task phase in the manifest.
+     *
+     * @param manifest Manifest in which to record the duration
+     * @param phase Name of the phase
+     * @param start Start time of the phase as returned by {@link System#nanoTime()}
+     * @return Start time of the next phase.
+     */
+    private static long recordPhase(final PackageManifest manifest, final String phase, final long start) {
+        final long end = System.nanoTime();
+        manifest.addTiming(phase, TimeUnit.NANOSECONDS.toMillis(end - start));
+        return end;
+    }
+
+    private WorkQueue createWorkQueue() {
+        return (getIsolation().get() == WorkerIsolation.PROCESS)
+               ? getWorkerExecutor().processIsolation()
+               : getWorkerExecutor().noIsolation();
+    }
+
+    /**
+     * Stages the files assembled by {@link #contents(Action)}, if any, into the package source directory. For the
+     * {@link BuildEngine#DPKG} build engine, the staged files are listed in the package's {@code .install} file,
+     * following any entries from the debian directory, so that {@code dh_install} installs them into the package.
+     * The files cannot be staged directly into the {@code debian/<package>} directory because {@code dh_prep}
+     * removes that directory at the start of the build.
+     *
+     * @param buildRoot Root of the working directory
+     * @param sourceDir Package source directory
+     * @param dstDebianDir Staged debian directory
+     * @param packageName Name of the package
+     * @param engine Build engine used to create the package
+     * @return Directory containing the staged files, or {@code null} if no contents are specified.
+     */
+    private @Nullable File stageContents(final File buildRoot, final File sourceDir, final File dstDebianDir,
+                                         final String packageName, final BuildEngine engine) {
+        final File contentsDir = new File(sourceDir, CONTENTS_DIR);
+        if (!getContentsDir().isPresent()) {
+            try {
+                FileUtils.deleteDirectory(contentsDir);
+            } catch (final IOException ex) {
+                throw new TaskExecutionException(this, ex);
+            }
+            return null;
+        }
+        if (engine == BuildEngine.NATIVE && getStagingDir().isPresent()) {
+            throw new GradleException("A staging directory and package contents cannot both be specified for the "
+                                              + "native build engine");
+        }
+
         try {
-            FileUtils.createParentDirectories(dstDebianDir);
+            final StagingSync staging = new StagingSync(buildRoot.toPath().resolve(CONTENTS_MANIFEST),
+                                                        getStagingChecksums().get(), true);
+            staging.sync(getContentsDir().get().toPath(), contentsDir.toPath(), Set.of());
+            staging.save();
+
+            final String[] entries = contentsDir.list();
+            if (engine == BuildEngine.DPKG && entries != null && entries.length > 0) {
+                final Path installFile = dstDebianDir.toPath().resolve(packageName + ".install");
+                final StringBuilder buffer = new StringBuilder();
+                if (Files.exists(installFile)) {
+                    buffer.append(Files.readString(installFile, StandardCharsets.UTF_8).strip());
+                }
+                Arrays.sort(entries);
+                for (final String entry : entries) {
+                    if (buffer.length() > 0) {
+                        buffer.append('\n');
+                    }
+                    buffer.append(CONTENTS_DIR).append('/').append(entry).append(" /");
+                }
+                buffer.append('\n');
+                Files.writeString(installFile, buffer, StandardCharsets.UTF_8);
+            }
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
+        }
 
-            // Copy the debian directory to the working directory.
+        return contentsDir;
+    }
+
+    private File createDebianDir(final File baseDir, final StagingSync staging) {
+        // Create the working and configuration directories.
+        final File dstDebianDir = new File(baseDir, DEBIAN_DIR);
+        try {
+            // Synchronize the debian directory to the working directory. The configuration files are excluded
+            // because they are generated by variable replacement.
             final File srcDebianDir = getDebianDir().get();
-            FileUtils.copyDirectory(srcDebianDir, dstDebianDir);
+            final Set<String> configFiles = new HashSet<>();
+            for (final String confFilename : CONFIG_FILES) {
+                if (new File(srcDebianDir, confFilename).exists()) {
+                    configFiles.add(confFilename);
+                }
+            }
+            staging.sync(srcDebianDir.toPath(), dstDebianDir.toPath(), configFiles);
 
             // Perform variable replacement on specific configuration files.
-            processConfigFiles(srcDebianDir, dstDebianDir, "control", "copyright", "changelog");
+            processConfigFiles(srcDebianDir, dstDebianDir, staging, configFiles);
         } catch (final IOException ex) {
             throw new TaskExecutionException(this, ex);
         }
@@ -383,21 +737,124 @@ public abstract class DebTask extends DefaultTask {
         return dstDebianDir;
     }
 
-    private void processConfigFiles(final File srcDebianDir, final File dstDebianDir, final String... confFilenames) {
-        final Map<String, String> variables = createTemplateVariables();
+    private void processConfigFiles(final File srcDebianDir, final File dstDebianDir, final StagingSync staging,
+                                    final Set<String> confFilenames) {
+        final TemplateVariables variables = templateVariables();
 
         for (final String confFilename : confFilenames) {
-            final File srcConfFile = new File(srcDebianDir, confFilename);
-            if (srcConfFile.exists()) {
-                final Path dstConfFile = dstDebianDir.toPath().resolve(srcConfFile.getName());
-                try (Writer writer = new OutputStreamWriter(Files.newOutputStream(dstConfFile),
-                                                            StandardCharsets.UTF_8)) {
-                    final Template temp = this.templateConfig.getTemplate(srcConfFile.getPath());
-                    temp.process(variables, writer);
-                } catch (final IOException | TemplateException ex) {
-                    throw new TaskExecutionException(this, ex);
+            final Path dstConfFile = dstDebianDir.toPath().resolve(confFilename);
+            try {
+                staging.write(dstConfFile, processConfigFile(new File(srcDebianDir, confFilename), variables)
+                        .getBytes(StandardCharsets.UTF_8));
+            } catch (final IOException ex) {
+                throw new TaskExecutionException(this, ex);
+            }
+        }
+    }
+
+    private String processConfigFile(final File confFile, final TemplateVariables variables) {
+        final StringWriter writer = new StringWriter();
+        try {
+            final Template temp = getTemplateService().get().getTemplate(confFile);
+            temp.process(variables, writer);
+        } catch (final IOException | TemplateException ex) {
+            // A shared template may have been parsed from a copy of the file with a different name, so the
+            // error is reported against the file being processed.
+            throw new TaskExecutionException(this, new GradleException("Could not process " + confFile, ex));
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Determines the binary package control file fields needed to name the package. The control and changelog
+     * files are processed in memory. The Debian packaging tools are only run if the package name or architecture
+     * contain substitution variables, which only the tools can resolve.
+     *
+     * @return Binary package control file containing at least the package name, version and architecture.
+     */
+    private ControlFile resolveBinaryControl() {
+        final File srcDebianDir = getDebianDir().get();
+        final TemplateVariables variables = templateVariables();
+        final String control = processConfigFile(new File(srcDebianDir, "control"), variables);
+        final ControlFile sourceControlFile =
+                ControlFile.parseSource(new ByteArrayInputStream(control.getBytes(StandardCharsets.UTF_8)));
+
+        if (getBuildEngine().get() == BuildEngine.DPKG
+                && (hasSubstvar(sourceControlFile.getPackage()) || hasSubstvar(sourceControlFile.getArchitecture()))) {
+            return generateBinaryControl();
+        }
+
+        final File changelogFile = new File(srcDebianDir, "changelog");
+        final String version = DebAssembler.parseChangelogVersion(processConfigFile(changelogFile, variables),
+                                                                  changelogFile.getPath());
+        final DebAssembler assembler = new DebAssembler(srcDebianDir.toPath(), sourceControlFile.getPackage(),
+                                                        srcDebianDir.toPath(), getCompression().get(), 0);
+        return assembler.createBinaryControl(sourceControlFile, version, 0);
+    }
+
+    /**
+     * Generates the binary package control file using {@code dpkg-gencontrol}. The debian directory is staged into
+     * a temporary directory, which is deleted once the control file has been generated.
+     *
+     * @return Binary package control file.
+     */
+    private ControlFile generateBinaryControl() {
+        File tempDir = null;
+        try {
+            final Path workingDir = Files.createDirectories(getWorkingDir().get().toPath());
+            tempDir = Files.createTempDirectory(workingDir, "ctrl").toFile();
+            final StagingSync staging = new StagingSync(tempDir.toPath().resolve(STAGING_MANIFEST), false);
+            createDebianDir(tempDir, staging);
+
+            final List<String> dpkgBuildArgs = new ArrayList<>();
+            dpkgBuildArgs.add(DPKG_GENCONTROL_TOOL);
+            dpkgBuildArgs.add("-ObinaryControl");
+
+            LOGGER.info("Running {} in {}", DPKG_GENCONTROL_TOOL, tempDir);
+            final ProcessBuilder processBuilder = new ProcessBuilder(dpkgBuildArgs);
+            processBuilder.directory(tempDir);
+            final ToolRunner.Result result = new ToolRunner(LogLevel.INFO, LogLevel.INFO)
+                    .run(processBuilder, getBuildTimeout().getOrNull());
+            if (!result.isSuccess()) {
+                throw new IOException(result.getFailureMessage());
+            }
+
+            return parseControlFile(tempDir.toPath().resolve("binaryControl"));
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new TaskExecutionException(this, ex);
+        } finally {
+            FileUtils.deleteQuietly(tempDir);
+        }
+    }
+
+    private static boolean hasSubstvar(final @Nullable String value) {
+        return value != null && value.contains("${");
+    }
+
+    /**
+     * Deletes the contents of a directory with the exception of the specified entries. The directory is created
+     * if it does not exist.
+     *
+     * @param dir Directory to clean
+     * @param keep Names of the directory entries to retain
+     */
+    private void cleanDirectory(final File dir, final String... keep) {
+        try {
+            Files.createDirectories(dir.toPath());
+            final Set<String> keepNames = Set.of(keep);
+            final File[] entries = dir.listFiles();
+            if (entries != null) {
+                for (final File entry : entries) {
+                    if (!keepNames.contains(entry.getName())) {
+                        FileUtils.forceDelete(entry);
+                    }
                 }
             }
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
         }
     }
 
@@ -411,51 +868,84 @@ public abstract class DebTask extends DefaultTask {
         }
     }
 
-    private File buildPackage(final File wdir, final File dstDebianDir, final String packageName) {
-        final List<String> dpkgBuildArgs = new ArrayList<>();
-        dpkgBuildArgs.add(DPKG_BUILDPACKAGE_TOOL);
-        dpkgBuildArgs.add("--build=binary");
-        dpkgBuildArgs.add("--no-sign");
-
-        LOGGER.info("Running {} in  {}", DPKG_BUILDPACKAGE_TOOL, wdir);
-        final ProcessBuilder processBuilder = new ProcessBuilder(dpkgBuildArgs);
-        processBuilder.directory(wdir);
-        processBuilder.environment().putAll(createEnvironmentVariables(packageName));
+    private String readRulesFile(final File dstDebianDir) {
         try {
-            final Process process = processBuilder.start();
-            final String errorOutput = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8);
-            final int status = process.waitFor();
-            if (status != 0) {
-                throw new IOException(errorOutput);
-            }
-        } catch (final IOException | InterruptedException ex) {
+            return Files.readString(dstDebianDir.toPath().resolve("rules"), StandardCharsets.UTF_8);
+        } catch (final IOException ex) {
             throw new TaskExecutionException(this, ex);
         }
+    }
 
+    private File copyArtifacts(final File buildRoot, final File dstDebianDir, final String packageName,
+                               final PackageManifest manifest) {
         final ControlFile controlFile = parseBinaryControlFile(dstDebianDir, packageName);
-        final File packageFile = new File(wdir.getParentFile(), controlFile.getPackageFilename());
-
-        // Copy the package file to the destination directory
-        getFileOperations().copy(cs -> {
-            cs.from(packageFile);
-            cs.into(getDestinationDir());
-        });
+        final File packageFile = new File(buildRoot, controlFile.getPackageFilename());
+        final Path destDir = getDestinationDir().get().toPath();
 
-        // Copy the package information file (i.e. generated control file) to the destination directory.
-        // The information file has the same name as the package file but with a ".info" extension instead
-        // of a ".deb" extension.
-        getFileOperations().copy(cs -> {
-            cs.from(getBinaryControlFile(dstDebianDir, packageName));
-            cs.into(getDestinationDir());
-            cs.rename("control", controlFile.getInfoFilename());
-        });
+        try {
+            Files.createDirectories(destDir);
+
+            // Copy the package file to the destination directory
+            final Path dstPackageFile = destDir.resolve(controlFile.getPackageFilename());
+            final Checksums packageChecksums = publishArtifact(packageFile.toPath(), dstPackageFile);
+            manifest.addArtifact(createArtifact(PackageManifest.TYPE_DEB, dstPackageFile, packageChecksums,
+                                                controlFile));
+
+            // Copy the package information file (i.e. generated control file) to the destination directory.
+            // The information file has the same name as the package file but with a ".info" extension instead
+            // of a ".deb" extension.
+            final Path dstInfoFile = destDir.resolve(controlFile.getInfoFilename());
+            final Checksums infoChecksums = publishArtifact(getBinaryControlFile(dstDebianDir, packageName),
+                                                            dstInfoFile);
+            manifest.addArtifact(createArtifact(PackageManifest.TYPE_INFO, dstInfoFile, infoChecksums, controlFile));
+
+            // Remove the files published by previous executions of the task (e.g. for a different version).
+            cleanDirectory(destDir.toFile(), controlFile.getPackageFilename(), controlFile.getInfoFilename());
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
+        }
 
         return packageFile;
     }
 
+    private static PackageManifest.Artifact createArtifact(final String type, final Path file,
+                                                           final Checksums checksums, final ControlFile controlFile) {
+        return new PackageManifest.Artifact(type, file.toFile(), checksums, controlFile.getPackage(),
+                                            controlFile.getVersion(), controlFile.getArchitecture());
+    }
+
+    /**
+     * Copies an artifact to the destination directory such that readers of the directory never see a partially
+     * written file. The artifact is copied to a temporary file in the destination directory, which is then
+     * atomically renamed to the artifact's final name. The checksums of the artifact are calculated as it is
+     * copied, so that the artifact is only read once.
+     *
+     * @param src Artifact to copy
+     * @param dst Final location of the artifact
+     * @return Checksums of the artifact.
+     * @throws IOException if the artifact could not be copied
+     */
+    static Checksums publishArtifact(final Path src, final Path dst) throws IOException {
+        final Path tempFile = Files.createTempFile(dst.getParent(), "." + dst.getFileName(), ".tmp");
+        try {
+            final Checksums checksums;
+            try (InputStream ins = Files.newInputStream(src);
+                 OutputStream outs = Files.newOutputStream(tempFile)) {
+                checksums = Checksums.copy(ins, outs);
+            }
+            Files.move(tempFile, dst, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return checksums;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
     private ControlFile parseSourceControlFile(final File dstDebianDir) {
-        final Path ctrlFile = dstDebianDir.toPath().resolve("control");
-        return parseControlFile(ctrlFile);
+        try (InputStream ins = Files.newInputStream(dstDebianDir.toPath().resolve("control"))) {
+            return ControlFile.parseSource(ins);
+        } catch (final IOException ex) {
+            throw new TaskExecutionException(this, ex);
+        }
     }
 
     private ControlFile parseBinaryControlFile(final File dstDebianDir, final String packageName) {
@@ -475,39 +965,31 @@ public abstract class DebTask extends DefaultTask {
         }
     }
 
-    private void lintPackage(final File packageFile) {
-        final List<String> lintianArgs = new ArrayList<>();
-        lintianArgs.add(LINTIAN_TOOL);
-        createLintianTags().forEach(tag -> {
-            lintianArgs.add("--suppress-tags");
-            lintianArgs.add(tag);
-        });
-        lintianArgs.add(packageFile.getPath());
-
-        LOGGER.info("Running {} on package file {}", LINTIAN_TOOL, packageFile);
-        final ProcessBuilder processBuilder = new ProcessBuilder(lintianArgs);
-        try {
-            final Process process = processBuilder.start();
-            final String errorOutput = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8);
-            final int status = process.waitFor();
-            if (status != 0) {
-                throw new IOException(errorOutput);
-            }
-        } catch (final IOException | InterruptedException ex) {
-            throw new TaskExecutionException(this, ex);
-        }
-    }
-
     /**
-     * Creates the template variables for use in the Debian configuration files (e.g. control).
+     * Creates the template variables for use in the Debian configuration files (e.g. control). The values of all
+     * variables are obtained, including those defined by lambdas.
      *
      * @return Map of variable names to their values.
      */
     Map<String, String> createTemplateVariables() {
+        return templateVariables().toMap();
+    }
+
+    /**
+     * Obtains the template variables, creating them the first time they are requested. Additional variables are
+     * deferred so that lambdas are only called if a variable is referenced.
+     *
+     * @return Template variables.
+     */
+    private synchronized TemplateVariables templateVariables() {
+        if (this.templateVariables != null) {
+            return this.templateVariables;
+        }
+
         final Object projectVersion = getProjectVersion().get();
         final ProjectVersion version = (projectVersion instanceof ProjectVersion)
                                         ? (ProjectVersion)projectVersion : ProjectVersion.NO_VERSION;
-        final Map<String, String> variables = new HashMap<>();
+        final TemplateVariables variables = new TemplateVariables();
         variables.put("project_group", getProjectGroup().get().toString());
         variables.put("project_name", getProjectName().get());
         variables.put("project_version", version.toString());
@@ -521,6 +1003,10 @@ public abstract class DebTask extends DefaultTask {
         variables.put("project_root_dir", getRootDir().get().getAbsolutePath());
         variables.put("project_dir", getProjectLayout().getProjectDirectory().getAsFile().getAbsolutePath());
         variables.put("project_build_dir", getProjectLayout().getBuildDirectory().get().getAsFile().getAbsolutePath());
+        variables.put("project_payload", getPayload().getFiles()
+                                                     .stream()
+                                                     .map(File::getAbsolutePath)
+                                                     .collect(Collectors.joining(" ")));
 
         final StringBuilder buffer = new StringBuilder();
         buffer.append("XB-Cthing-Build-Number: ").append(version.getBuildNumber()).append('\n')
@@ -535,16 +1021,13 @@ public abstract class DebTask extends DefaultTask {
         }
         variables.put("cthing_metadata", buffer.toString());
 
-        this.sourceSets.forEach(sourceSet -> {
-            final File resourcesDir = sourceSet.getOutput().getResourcesDir();
-            if (resourcesDir != null) {
-                variables.put(String.format("project_%s_resources_dir", sourceSet.getName()),
-                              resourcesDir.getAbsolutePath());
-            }
-        });
+        getResourceDirs().get().forEach((sourceSetName, resourcesDir) ->
+                variables.put(String.format("project_%s_resources_dir", sourceSetName),
+                              resourcesDir.getAbsolutePath()));
 
-        getAdditionalVariables().get().forEach((key, value) -> variables.put(key, stringize(value)));
+        getAdditionalVariables().get().forEach(variables::putDeferred);
 
+        this.templateVariables = variables;
         return variables;
     }
 
@@ -556,12 +1039,71 @@ public abstract class DebTask extends DefaultTask {
      * @return Map of environment variable names to their values.
      */
     Map<String, String> createEnvironmentVariables(final String packageName) {
-        final Map<String, String> templateVariables = createTemplateVariables();
-        templateVariables.put("PROJECT_PACKAGE_NAME", packageName);
-        templateVariables.put("PROJECT_DEBIAN_DIR", "debian/" + packageName);
-        return templateVariables.entrySet()
-                                .stream()
-                                .collect(Collectors.toMap(entry -> entry.getKey().toUpperCase(), Map.Entry::getValue));
+        return createEnvironmentVariables(packageName, null);
+    }
+
+    /**
+     * Creates the environment variables for use in the Debian rules file. The variables are a super set of those
+     * used for templates but the names are capitalized to follow environment variable naming conventions. The
+     * {@code SOURCE_DATE_EPOCH} variable is set so that the Debian packaging tools produce a reproducible package
+     * (see {@link #getSourceDateEpoch()}). If the contents of the rules file are specified, additional
+     * variables defined by lambdas are only exported, and therefore only evaluated, if the rules file references
+     * them.
+     *
+     * @param packageName Name of the package from the control file
+     * @param rules Contents of the rules file, or {@code null} to export all variables
+     * @return Map of environment variable names to their values.
+     */
+    Map<String, String> createEnvironmentVariables(final String packageName, @Nullable final String rules) {
+        final TemplateVariables variables = templateVariables();
+        final Map<String, String> environment = new HashMap<>();
+        final List<String> unexported = new ArrayList<>();
+        for (final String name : variables.getNames()) {
+            final String envName = name.toUpperCase(Locale.ROOT);
+            if (rules == null || !variables.isComputed(name) || rules.contains(envName)) {
+                environment.put(envName, variables.getValue(name));
+            } else {
+                unexported.add(envName);
+            }
+        }
+        if (!unexported.isEmpty()) {
+            // Scripts run by the rules file cannot read these variables, so they are listed to aid diagnosis.
+            LOGGER.info("Not exporting {} to the rules environment because the rules file does not reference them",
+                        String.join(", ", unexported));
+        }
+        environment.put("PROJECT_PACKAGE_NAME", packageName);
+        environment.put("PROJECT_DEBIAN_DIR", "debian/" + packageName);
+        if (getContentsDir().isPresent()) {
+            environment.put("PROJECT_CONTENTS_DIR", CONTENTS_DIR);
+        }
+        environment.put(SOURCE_DATE_EPOCH, String.valueOf(getSourceDateEpoch().get()));
+        return environment;
+    }
+
+    /**
+     * Obtains the default timestamp used to make the package reproducible (see {@link #getSourceDateEpoch()}). The
+     * timestamp is the build date of the project version, so that every build of the same version produces the same
+     * package. If the project version is not a {@link ProjectVersion}, the value of the {@code SOURCE_DATE_EPOCH}
+     * environment variable is used if it is defined. Otherwise, the current time is used.
+     *
+     * @param projectVersion Version of the project
+     * @param epoch Value of the {@code SOURCE_DATE_EPOCH} environment variable, or {@code null} if it is not defined
+     * @return Timestamp in seconds since the epoch.
+     */
+    static long getDefaultSourceDateEpoch(final Object projectVersion, final @Nullable String epoch) {
+        if (projectVersion instanceof ProjectVersion) {
+            return ((ProjectVersion)projectVersion).getBuildDateMillis() / MILLIS_PER_SECOND;
+        }
+
+        if (epoch != null) {
+            try {
+                return Long.parseLong(epoch.trim());
+            } catch (final NumberFormatException ex) {
+                throw new GradleException("Invalid " + SOURCE_DATE_EPOCH + " value '" + epoch + "'", ex);
+            }
+        }
+
+        return System.currentTimeMillis() / MILLIS_PER_SECOND;
     }
 
     /**
@@ -571,8 +1113,7 @@ public abstract class DebTask extends DefaultTask {
      * @return Build date formatted in accordance with the Debian changelog file requirements.
      */
     static String getChangelogDate(final ProjectVersion version) {
-        final DateFormat changelogDateFormat = new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z");
-        return changelogDateFormat.format(new Date(version.getBuildDateMillis()));
+        return CHANGELOG_DATE_FORMAT.format(Instant.ofEpochMilli(version.getBuildDateMillis()));
     }
 
     /**
@@ -582,8 +1123,7 @@ public abstract class DebTask extends DefaultTask {
      * @return Year in which the build occurred
      */
     private static String getBuildYear(final ProjectVersion version) {
-        final DateFormat currentYearFormat = new SimpleDateFormat("yyyy");
-        return currentYearFormat.format(new Date(version.getBuildDateMillis()));
+        return BUILD_YEAR_FORMAT.format(Instant.ofEpochMilli(version.getBuildDateMillis()));
     }
 
     /**
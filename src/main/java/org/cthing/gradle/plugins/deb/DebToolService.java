@@ -0,0 +1,28 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+
+/**
+ * Build scoped service used to limit the number of packaging tasks that run the Debian packaging tools at the same
+ * time. The service is registered with a maximum number of parallel usages, so Gradle will not run more than that
+ * number of {@link DebTask} instances concurrently, regardless of the number of projects in the build. The maximum
+ * is set by the {@value #MAX_PARALLEL_PROPERTY} Gradle property and defaults to the number of available processors.
+ */
+public abstract class DebToolService implements BuildService<BuildServiceParameters.None> {
+
+    /**
+     * Name under which the service is registered.
+     */
+    public static final String NAME = "cthingDebTools";
+
+    /**
+     * Gradle property specifying the maximum number of packages that can be built concurrently.
+     */
+    public static final String MAX_PARALLEL_PROPERTY = "cthing.deb.maxParallelBuilds";
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import org.gradle.api.GradleException;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * A Debian package version of the form {@code [epoch:]upstream_version[-debian_revision]}. Versions are ordered
+ * using the algorithm implemented by {@code dpkg --compare-versions}. The epochs are compared numerically, and then
+ * the upstream versions and revisions are compared by alternately comparing runs of non-digits, where letters sort
+ * before non-letters and a tilde sorts before anything (even the end of the version), and runs of digits, which are
+ * compared numerically.
+ *
+ * <p>
+ * A version is parsed once into the boundaries of its components within the version string. Comparing versions
+ * operates directly on the characters of the version strings and does not allocate, so versions can be used as sort
+ * keys for large numbers of packages. Versions that dpkg considers equal (e.g. {@code 1.0} and {@code 0:1.00-0}) are
+ * equal and have the same hash code.
+ * </p>
+ */
+public final class DebianVersion implements Comparable<DebianVersion> {
+
+    private static final char EPOCH_SEPARATOR = ':';
+    private static final char REVISION_SEPARATOR = '-';
+    private static final char TILDE = '~';
+    private static final int NON_LETTER_OFFSET = 256;
+    private static final int HASH_MULTIPLIER = 31;
+    private static final int RADIX = 10;
+
+    private final String version;
+    private final long epoch;
+    private final int upstreamStart;
+    private final int upstreamEnd;
+    private final int revisionStart;
+
+    private DebianVersion(final String version, final long epoch, final int upstreamStart, final int upstreamEnd,
+                          final int revisionStart) {
+        this.version = version;
+        this.epoch = epoch;
+        this.upstreamStart = upstreamStart;
+        this.upstreamEnd = upstreamEnd;
+        this.revisionStart = revisionStart;
+    }
+
+    /**
+     * Parses a Debian package version.
+     *
+     * @param version Version to parse
+     * @return Parsed version.
+     * @throws GradleException if the version is not a valid Debian package version
+     */
+    public static DebianVersion parse(final String version) {
+        if (version.isEmpty()) {
+            throw new GradleException("Debian version is empty");
+        }
+
+        final int colonPos = version.indexOf(EPOCH_SEPARATOR);
+        final int hyphenPos = version.lastIndexOf(REVISION_SEPARATOR);
+        final int upstreamStart = colonPos + 1;
+        final int upstreamEnd = (hyphenPos > colonPos) ? hyphenPos : version.length();
+        final int revisionStart = (hyphenPos > colonPos) ? hyphenPos + 1 : version.length();
+
+        final long epoch = parseEpoch(version, colonPos);
+        if (upstreamStart == upstreamEnd) {
+            throw new GradleException("Debian version '" + version + "' has an empty upstream version");
+        }
+        if (hyphenPos > colonPos && revisionStart == version.length()) {
+            throw new GradleException("Debian version '" + version + "' has an empty revision");
+        }
+
+        for (int i = upstreamStart; i < upstreamEnd; i++) {
+            final char c = version.charAt(i);
+            if (!isAlphanumeric(c) && c != '.' && c != '+' && c != TILDE && c != REVISION_SEPARATOR
+                    && c != EPOCH_SEPARATOR) {
+                throw new GradleException("Invalid character '" + c + "' in Debian version '" + version + "'");
+            }
+        }
+        for (int i = revisionStart; i < version.length(); i++) {
+            final char c = version.charAt(i);
+            if (!isAlphanumeric(c) && c != '.' && c != '+' && c != TILDE) {
+                throw new GradleException("Invalid character '" + c + "' in Debian revision of '" + version + "'");
+            }
+        }
+
+        return new DebianVersion(version, epoch, upstreamStart, upstreamEnd, revisionStart);
+    }
+
+    /**
+     * Compares two Debian package versions without creating {@link DebianVersion} instances. The versions are not
+     * validated beyond their epochs.
+     *
+     * @param version1 First version to compare
+     * @param version2 Second version to compare
+     * @return A negative number, zero, or a positive number if the first version is older than, the same as, or
+     *      newer than the second version, respectively.
+     * @throws GradleException if the epoch of either version is not a number
+     */
+    public static int compare(final String version1, final String version2) {
+        final int colonPos1 = version1.indexOf(EPOCH_SEPARATOR);
+        final int colonPos2 = version2.indexOf(EPOCH_SEPARATOR);
+        final int result = Long.compare(parseEpoch(version1, colonPos1), parseEpoch(version2, colonPos2));
+        if (result != 0) {
+            return result;
+        }
+
+        final int hyphenPos1 = version1.lastIndexOf(REVISION_SEPARATOR);
+        final int hyphenPos2 = version2.lastIndexOf(REVISION_SEPARATOR);
+        final int upstreamEnd1 = (hyphenPos1 > colonPos1) ? hyphenPos1 : version1.length();
+        final int upstreamEnd2 = (hyphenPos2 > colonPos2) ? hyphenPos2 : version2.length();
+        return compareComponents(version1, colonPos1 + 1, upstreamEnd1, version2, colonPos2 + 1, upstreamEnd2);
+    }
+
+    /**
+     * Obtains the epoch of the version.
+     *
+     * @return Epoch of the version. Returns 0 if the version does not specify an epoch.
+     */
+    public long getEpoch() {
+        return this.epoch;
+    }
+
+    /**
+     * Obtains the upstream portion of the version.
+     *
+     * @return Upstream version.
+     */
+    public String getUpstreamVersion() {
+        return this.version.substring(this.upstreamStart, this.upstreamEnd);
+    }
+
+    /**
+     * Obtains the Debian revision portion of the version.
+     *
+     * @return Debian revision. Returns an empty string if the version does not have a revision.
+     */
+    public String getRevision() {
+        return this.version.substring(this.revisionStart);
+    }
+
+    @Override
+    public int compareTo(final DebianVersion other) {
+        final int result = Long.compare(this.epoch, other.epoch);
+        if (result != 0) {
+            return result;
+        }
+        return compareComponents(this.version, this.upstreamStart, this.upstreamEnd,
+                                 other.version, other.upstreamStart, other.upstreamEnd);
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        return obj instanceof DebianVersion && compareTo((DebianVersion)obj) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Long.hashCode(this.epoch);
+        hash = hashComponent(hash, this.version, this.upstreamStart, this.upstreamEnd);
+        return hashComponent(hash, this.version, this.revisionStart, this.version.length());
+    }
+
+    /**
+     * Obtains the version as it was parsed.
+     *
+     * @return Version string.
+     */
+    @Override
+    public String toString() {
+        return this.version;
+    }
+
+    private static long parseEpoch(final String version, final int colonPos) {
+        if (colonPos < 0) {
+            return 0;
+        }
+        if (colonPos == 0) {
+            throw new GradleException("Debian version '" + version + "' has an empty epoch");
+        }
+
+        long epoch = 0;
+        for (int i = 0; i < colonPos; i++) {
+            final char c = version.charAt(i);
+            if (!isDigit(c)) {
+                throw new GradleException("Debian version '" + version + "' has an invalid epoch");
+            }
+            epoch = epoch * RADIX + (c - '0');
+            if (epoch > Integer.MAX_VALUE) {
+                throw new GradleException("Debian version '" + version + "' has an epoch that is too large");
+            }
+        }
+        return epoch;
+    }
+
+    /**
+     * Compares the upstream versions and, if they are equal, the revisions of two versions. The revision of each
+     * version starts after its upstream version, if it ends with a hyphen.
+     */
+    private static int compareComponents(final String version1, final int upstreamStart1, final int upstreamEnd1,
+                                         final String version2, final int upstreamStart2, final int upstreamEnd2) {
+        final int result = compareParts(version1, upstreamStart1, upstreamEnd1, version2, upstreamStart2, upstreamEnd2);
+        if (result != 0) {
+            return result;
+        }
+
+        final int revisionStart1 = Math.min(upstreamEnd1 + 1, version1.length());
+        final int revisionStart2 = Math.min(upstreamEnd2 + 1, version2.length());
+        return compareParts(version1, revisionStart1, version1.length(), version2, revisionStart2, version2.length());
+    }
+
+    /**
+     * Compares an upstream version or revision in the manner of dpkg's {@code verrevcmp} function.
+     */
+    private static int compareParts(final String str1, final int start1, final int end1,
+                                    final String str2, final int start2, final int end2) {
+        int pos1 = start1;
+        int pos2 = start2;
+
+        while (pos1 < end1 || pos2 < end2) {
+            // Compare the non-digit runs
+            while ((pos1 < end1 && !isDigit(str1.charAt(pos1))) || (pos2 < end2 && !isDigit(str2.charAt(pos2)))) {
+                final int order1 = (pos1 < end1) ? order(str1.charAt(pos1)) : 0;
+                final int order2 = (pos2 < end2) ? order(str2.charAt(pos2)) : 0;
+                if (order1 != order2) {
+                    return order1 - order2;
+                }
+                pos1++;
+                pos2++;
+            }
+
+            // Compare the digit runs numerically
+            while (pos1 < end1 && str1.charAt(pos1) == '0') {
+                pos1++;
+            }
+            while (pos2 < end2 && str2.charAt(pos2) == '0') {
+                pos2++;
+            }
+
+            int firstDiff = 0;
+            while (pos1 < end1 && pos2 < end2 && isDigit(str1.charAt(pos1)) && isDigit(str2.charAt(pos2))) {
+                if (firstDiff == 0) {
+                    firstDiff = str1.charAt(pos1) - str2.charAt(pos2);
+                }
+                pos1++;
+                pos2++;
+            }
+
+            if (pos1 < end1 && isDigit(str1.charAt(pos1))) {
+                return 1;
+            }
+            if (pos2 < end2 && isDigit(str2.charAt(pos2))) {
+                return -1;
+            }
+            if (firstDiff != 0) {
+                return firstDiff;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Hashes an upstream version or revision consistently with {@link #compareParts}. Each run of non-digits is
+     * hashed followed by its run of digits without leading zeros. A trailing run consisting only of zeros is ignored
+     * because it compares equal to the absence of a run.
+     */
+    private static int hashComponent(final int initialHash, final String str, final int start, final int end) {
+        int hash = initialHash;
+        int pos = start;
+        while (pos < end) {
+            final int runStart = pos;
+            while (pos < end && !isDigit(str.charAt(pos))) {
+                hash = HASH_MULTIPLIER * hash + str.charAt(pos);
+                pos++;
+            }
+            final boolean hasNonDigits = pos > runStart;
+
+            while (pos < end && str.charAt(pos) == '0') {
+                pos++;
+            }
+            final int digitsStart = pos;
+            while (pos < end && isDigit(str.charAt(pos))) {
+                hash = HASH_MULTIPLIER * hash + str.charAt(pos);
+                pos++;
+            }
+
+            if (hasNonDigits || pos > digitsStart || pos < end) {
+                hash = HASH_MULTIPLIER * hash + REVISION_SEPARATOR;
+            }
+        }
+        return hash;
+    }
+
+    private static int order(final char c) {
+        if (isDigit(c)) {
+            return 0;
+        }
+        if (isLetter(c)) {
+            return c;
+        }
+        if (c == TILDE) {
+            return -1;
+        }
+        return c + NON_LETTER_OFFSET;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isAlphanumeric(final char c) {
+        return isDigit(c) || isLetter(c);
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+/**
+ * Actions taken when publishing a package whose version is older than a version of the same package already in
+ * the repository. Versions are compared using {@link DebianVersion}.
+ */
+public enum OlderVersionPolicy {
+    /**
+     * Publishes the package regardless of the versions already in the repository.
+     */
+    ALLOW,
+
+    /**
+     * Does not publish the package. Other packages are still published.
+     */
+    SKIP,
+
+    /**
+     * Fails the publication without publishing any packages.
+     */
+    FAIL
+}
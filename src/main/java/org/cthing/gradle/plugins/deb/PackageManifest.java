@@ -0,0 +1,233 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FilenameUtils;
+import org.gradle.api.GradleException;
+import org.jspecify.annotations.Nullable;
+
+import groovy.json.JsonOutput;
+import groovy.json.JsonSlurper;
+
+
+/**
+ * Describes the artifacts produced by a {@link DebTask} execution. The manifest is written as JSON so that it can be
+ * consumed by other tasks and by deployment tooling without rediscovering the artifacts. The manifest has the
+ * following structure:
+ * <pre>
+ * {
+ *   "timings": { "stage": 12, "build": 3456, "copy": 78, "lint": 901 },
+ *   "artifacts": [
+ *     {
+ *       "type": "deb",
+ *       "file": "../distributions/generateDeb/test-package_1.2.3_amd64.deb",
+ *       "size": 12345,
+ *       "sha256": "...",
+ *       "md5": "...",
+ *       "package": "test-package",
+ *       "version": "1.2.3",
+ *       "architecture": "amd64"
+ *     }
+ *   ]
+ * }
+ * </pre>
+ * Timings are in milliseconds and are listed in the order in which the phases were performed. Artifact files are
+ * written relative to the directory containing the manifest, so that the manifest remains valid when it is restored
+ * from the build cache into a different location.
+ */
+final class PackageManifest {
+
+    /**
+     * Type of a Debian package artifact.
+     */
+    static final String TYPE_DEB = "deb";
+
+    /**
+     * Type of a package information file artifact.
+     */
+    static final String TYPE_INFO = "info";
+
+    private static final String TIMINGS = "timings";
+    private static final String ARTIFACTS = "artifacts";
+    private static final String TYPE = "type";
+    private static final String FILE = "file";
+    private static final String SIZE = "size";
+    private static final String SHA256 = "sha256";
+    private static final String MD5 = "md5";
+    private static final String PACKAGE = "package";
+    private static final String VERSION = "version";
+    private static final String ARCHITECTURE = "architecture";
+
+    private final Map<String, Long> timings;
+    private final List<Artifact> artifacts;
+
+    /**
+     * An artifact produced by the task.
+     *
+     * @param type Type of artifact (i.e. {@link #TYPE_DEB} or {@link #TYPE_INFO})
+     * @param file Location of the artifact
+     * @param checksums Size and digests of the artifact
+     * @param packageName Name of the package
+     * @param version Version of the package
+     * @param architecture Architecture of the package
+     */
+    record Artifact(String type, File file, Checksums checksums, String packageName, String version,
+                    String architecture) {
+    }
+
+    /**
+     * Creates an empty manifest.
+     */
+    PackageManifest() {
+        this.timings = new LinkedHashMap<>();
+        this.artifacts = new ArrayList<>();
+    }
+
+    /**
+     * Records the duration of a phase of the task execution.
+     *
+     * @param phase Name of the phase
+     * @param millis Duration of the phase in milliseconds
+     */
+    void addTiming(final String phase, final long millis) {
+        this.timings.put(phase, millis);
+    }
+
+    /**
+     * Obtains the duration of each phase of the task execution.
+     *
+     * @return Phase durations in milliseconds, in the order the phases were performed.
+     */
+    Map<String, Long> getTimings() {
+        return Collections.unmodifiableMap(this.timings);
+    }
+
+    /**
+     * Adds an artifact to the manifest.
+     *
+     * @param artifact Artifact to add
+     */
+    void addArtifact(final Artifact artifact) {
+        this.artifacts.add(artifact);
+    }
+
+    /**
+     * Obtains the artifacts in the manifest.
+     *
+     * @return Artifacts produced by the task.
+     */
+    List<Artifact> getArtifacts() {
+        return Collections.unmodifiableList(this.artifacts);
+    }
+
+    /**
+     * Writes the manifest as JSON.
+     *
+     * @param file File to which the manifest is written. Parent directories are created as needed.
+     * @throws IOException if there was a problem writing the manifest
+     */
+    void write(final Path file) throws IOException {
+        final Path manifestDir = file.toAbsolutePath().getParent();
+        final List<Map<String, Object>> artifactList = new ArrayList<>();
+        for (final Artifact artifact : this.artifacts) {
+            final Map<String, Object> artifactMap = new LinkedHashMap<>();
+            artifactMap.put(TYPE, artifact.type());
+            artifactMap.put(FILE, toManifestPath(manifestDir, artifact.file()));
+            artifactMap.put(SIZE, artifact.checksums().size());
+            artifactMap.put(SHA256, artifact.checksums().sha256());
+            artifactMap.put(MD5, artifact.checksums().md5());
+            artifactMap.put(PACKAGE, artifact.packageName());
+            artifactMap.put(VERSION, artifact.version());
+            artifactMap.put(ARCHITECTURE, artifact.architecture());
+            artifactList.add(artifactMap);
+        }
+
+        final Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put(TIMINGS, this.timings);
+        manifest.put(ARTIFACTS, artifactList);
+
+        if (manifestDir != null) {
+            Files.createDirectories(manifestDir);
+        }
+        Files.writeString(file, JsonOutput.prettyPrint(JsonOutput.toJson(manifest)) + "\n", StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a manifest previously written using {@link #write(Path)}.
+     *
+     * @param file Manifest file to read
+     * @return Manifest read from the file.
+     * @throws IOException if there was a problem reading the manifest
+     */
+    @SuppressWarnings("unchecked")
+    static PackageManifest read(final Path file) throws IOException {
+        final Object parsed = new JsonSlurper().parseText(Files.readString(file, StandardCharsets.UTF_8));
+        if (!(parsed instanceof Map<?, ?> manifestMap)) {
+            throw new GradleException("Invalid package manifest " + file);
+        }
+
+        final Path manifestDir = file.toAbsolutePath().getParent();
+        final PackageManifest manifest = new PackageManifest();
+        final Map<String, Number> timingMap = (Map<String, Number>)manifestMap.get(TIMINGS);
+        if (timingMap != null) {
+            timingMap.forEach((phase, millis) -> manifest.addTiming(phase, millis.longValue()));
+        }
+
+        final List<Map<String, Object>> artifactList = (List<Map<String, Object>>)manifestMap.get(ARTIFACTS);
+        if (artifactList != null) {
+            for (final Map<String, Object> artifactMap : artifactList) {
+                final Checksums checksums = new Checksums(((Number)artifactMap.get(SIZE)).longValue(),
+                                                          (String)artifactMap.get(SHA256),
+                                                          (String)artifactMap.get(MD5));
+                manifest.addArtifact(new Artifact((String)artifactMap.get(TYPE),
+                                                  fromManifestPath(manifestDir, (String)artifactMap.get(FILE)),
+                                                  checksums,
+                                                  (String)artifactMap.get(PACKAGE),
+                                                  (String)artifactMap.get(VERSION),
+                                                  (String)artifactMap.get(ARCHITECTURE)));
+            }
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Converts the location of an artifact to its representation in the manifest, which is relative to the directory
+     * containing the manifest and uses forward slashes.
+     *
+     * @param manifestDir Directory containing the manifest
+     * @param file Artifact file
+     * @return Location of the artifact relative to the manifest.
+     */
+    private static String toManifestPath(@Nullable final Path manifestDir, final File file) {
+        final Path path = file.toPath().toAbsolutePath();
+        return (manifestDir == null) ? path.toString()
+                                     : FilenameUtils.separatorsToUnix(manifestDir.relativize(path).toString());
+    }
+
+    /**
+     * Converts the location of an artifact in the manifest to a file. Absolute locations are used as is.
+     *
+     * @param manifestDir Directory containing the manifest
+     * @param location Location of the artifact in the manifest
+     * @return Artifact file.
+     */
+    private static File fromManifestPath(@Nullable final Path manifestDir, final String location) {
+        final Path path = Path.of(location);
+        return (manifestDir == null || path.isAbsolute()) ? path.toFile()
+                                                          : manifestDir.resolve(path).normalize().toFile();
+    }
+}
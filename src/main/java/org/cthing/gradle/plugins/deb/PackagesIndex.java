@@ -0,0 +1,249 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Read-only index of the packages listed in one or more APT repository {@code Packages} files. The files are memory
+ * mapped and scanned once to record the location of each package's paragraph by package name and by package name
+ * and version. Looking up a package only parses the paragraphs of the matching packages, so questions such as whether
+ * a version of a package is in a repository can be answered without rescanning the files.
+ *
+ * <p>
+ * A package name and version can appear more than once (e.g. for different architectures), so lookups return all
+ * matching packages in the order in which they appear in the files. The mapped files must not be modified while the
+ * index is in use. The mappings are released when the index is garbage collected. The index is safe for use by
+ * multiple threads.
+ * </p>
+ */
+public final class PackagesIndex {
+
+    private static final char KEY_SEPARATOR = '_';
+    private static final String PACKAGE_FIELD = "Package";
+    private static final String VERSION_FIELD = "Version";
+    private static final String ARCH_ALL = "all";
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int[] NO_ENTRIES = new int[0];
+
+    private final ByteBuffer[] buffers;
+    private final Map<String, int[]> byName;
+    private final Map<String, int[]> byNameVersion;
+    private int[] entryBuffers;
+    private int[] entryOffsets;
+    private int size;
+
+    private PackagesIndex(final ByteBuffer[] buffers) {
+        this.buffers = buffers;
+        this.byName = new HashMap<>();
+        this.byNameVersion = new HashMap<>();
+        this.entryBuffers = new int[INITIAL_CAPACITY];
+        this.entryOffsets = new int[INITIAL_CAPACITY];
+
+        for (int i = 0; i < buffers.length; i++) {
+            final ControlFileReader reader = new ControlFileReader(buffers[i]);
+            while (reader.hasNext()) {
+                final ControlFile paragraph = reader.next();
+                final String name = paragraph.get(PACKAGE_FIELD);
+                if (name == null) {
+                    continue;
+                }
+
+                final int entry = addEntry(i, (int)reader.getOffset());
+                addToIndex(this.byName, name, entry);
+
+                final String version = paragraph.get(VERSION_FIELD);
+                if (version != null) {
+                    addToIndex(this.byNameVersion, key(name, version), entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an index of the specified {@code Packages} files. The files must be uncompressed.
+     *
+     * @param files {@code Packages} files to index
+     * @return Index of the packages in the files.
+     * @throws IOException if a file could not be mapped (e.g. it does not exist or it is larger than 2GB)
+     */
+    public static PackagesIndex open(final Path... files) throws IOException {
+        return open(Arrays.asList(files));
+    }
+
+    /**
+     * Creates an index of the specified {@code Packages} files. The files must be uncompressed.
+     *
+     * @param files {@code Packages} files to index
+     * @return Index of the packages in the files.
+     * @throws IOException if a file could not be mapped (e.g. it does not exist or it is larger than 2GB)
+     */
+    public static PackagesIndex open(final List<Path> files) throws IOException {
+        final ByteBuffer[] buffers = new ByteBuffer[files.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = map(files.get(i));
+        }
+        return new PackagesIndex(buffers);
+    }
+
+    /**
+     * Obtains the number of packages in the index.
+     *
+     * @return Number of package paragraphs in the indexed files.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Obtains the names of the packages in the index.
+     *
+     * @return Names of the indexed packages.
+     */
+    public Set<String> getPackageNames() {
+        return Collections.unmodifiableSet(this.byName.keySet());
+    }
+
+    /**
+     * Obtains all versions of the specified package.
+     *
+     * @param name Name of the package
+     * @return Paragraphs for the package in the order in which they appear in the indexed files. Returns an empty
+     *      list if the package is not in the index.
+     */
+    public List<ControlFile> find(final String name) {
+        return read(this.byName.getOrDefault(name, NO_ENTRIES));
+    }
+
+    /**
+     * Obtains the specified version of a package.
+     *
+     * @param name Name of the package
+     * @param version Version of the package
+     * @return Paragraphs for the package version in the order in which they appear in the indexed files. Returns an
+     *      empty list if the package version is not in the index.
+     */
+    public List<ControlFile> find(final String name, final String version) {
+        return read(this.byNameVersion.getOrDefault(key(name, version), NO_ENTRIES));
+    }
+
+    /**
+     * Obtains the newest version of the specified package. Versions are ordered using the dpkg comparison rules (see
+     * {@link DebianVersion}).
+     *
+     * @param name Name of the package
+     * @return Paragraph for the newest version of the package. If the newest version appears more than once, the
+     *      first paragraph is returned. Returns {@code null} if the package is not in the index.
+     */
+    public @Nullable ControlFile findNewest(final String name) {
+        return findNewest(name, null);
+    }
+
+    /**
+     * Obtains the newest version of the specified package that shares an architecture with the specified
+     * architecture. A package shares an architecture if it has the same architecture, or if either architecture is
+     * {@code all}. Versions are ordered using the dpkg comparison rules (see {@link DebianVersion}).
+     *
+     * @param name Name of the package
+     * @param architecture Architecture of the package, or {@code null} to consider all architectures
+     * @return Paragraph for the newest version of the package. If the newest version appears more than once, the
+     *      first paragraph is returned. Returns {@code null} if the package is not in the index for the architecture.
+     */
+    public @Nullable ControlFile findNewest(final String name, final @Nullable String architecture) {
+        ControlFile newest = null;
+        String newestVersion = null;
+        for (final ControlFile paragraph : find(name)) {
+            final String version = paragraph.getVersion();
+            if (version == null) {
+                continue;
+            }
+
+            final String paragraphArchitecture = paragraph.getArchitecture();
+            if (architecture != null && !architecture.equals(paragraphArchitecture)
+                    && !ARCH_ALL.equals(architecture) && !ARCH_ALL.equals(paragraphArchitecture)) {
+                continue;
+            }
+
+            if (newestVersion == null || DebianVersion.compare(version, newestVersion) > 0) {
+                newest = paragraph;
+                newestVersion = version;
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Determines whether the specified version of a package is in the index. The paragraphs of the package are not
+     * parsed.
+     *
+     * @param name Name of the package
+     * @param version Version of the package
+     * @return {@code true} if the package version is in the index.
+     */
+    public boolean contains(final String name, final String version) {
+        return this.byNameVersion.containsKey(key(name, version));
+    }
+
+    private static MappedByteBuffer map(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Packages file too large to index: " + file);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+    }
+
+    /**
+     * Creates the version index key. Package names and versions cannot contain an underscore, so the key is
+     * unambiguous.
+     */
+    private static String key(final String name, final String version) {
+        return name + KEY_SEPARATOR + version;
+    }
+
+    private int addEntry(final int buffer, final int offset) {
+        if (this.size == this.entryOffsets.length) {
+            this.entryBuffers = Arrays.copyOf(this.entryBuffers, this.size * 2);
+            this.entryOffsets = Arrays.copyOf(this.entryOffsets, this.size * 2);
+        }
+        this.entryBuffers[this.size] = buffer;
+        this.entryOffsets[this.size] = offset;
+        return this.size++;
+    }
+
+    private static void addToIndex(final Map<String, int[]> index, final String key, final int entry) {
+        index.merge(key, new int[] { entry }, (existing, added) -> {
+            final int[] merged = Arrays.copyOf(existing, existing.length + 1);
+            merged[existing.length] = entry;
+            return merged;
+        });
+    }
+
+    private List<ControlFile> read(final int[] entries) {
+        final List<ControlFile> paragraphs = new ArrayList<>(entries.length);
+        for (final int entry : entries) {
+            final ByteBuffer buffer = this.buffers[this.entryBuffers[entry]];
+            final int offset = this.entryOffsets[entry];
+            paragraphs.add(new ControlFileReader(buffer.slice(offset, buffer.limit() - offset)).next());
+        }
+        return paragraphs;
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Incrementally synchronizes a destination directory with a source directory. The size and modification time of
+ * each file copied is recorded in a manifest that is persisted with the destination directory. On subsequent
+ * synchronizations, only files whose source or destination has changed since the last synchronization are copied
+ * and only files no longer present in the source are deleted. Optionally, the SHA-256 hash of each file's contents
+ * is also recorded so that a file whose modification time has changed but whose contents have not (e.g. following
+ * a source control checkout) is not copied again. Files can also be hard linked rather than copied when the source
+ * and destination directories are on the same file system. Linked files must not be modified in place by consumers
+ * of the destination directory, because the modification would also be made to the source file.
+ *
+ * <p>
+ * Files that are generated into the destination directory rather than copied (e.g. rendered templates) are excluded
+ * from the synchronization and written using {@link #write(Path, byte[])}, which only rewrites the file if its
+ * contents have changed.
+ * </p>
+ */
+final class StagingSync {
+
+    private static final Logger LOGGER = Logging.getLogger(StagingSync.class);
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String NO_HASH = "-";
+    private static final String FIELD_SEPARATOR = "\t";
+    private static final int PATH_FIELD = 0;
+    private static final int SRC_SIZE_FIELD = 1;
+    private static final int SRC_MODIFIED_FIELD = 2;
+    private static final int DST_SIZE_FIELD = 3;
+    private static final int DST_MODIFIED_FIELD = 4;
+    private static final int HASH_FIELD = 5;
+    private static final int NUM_FIELDS = 6;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path manifestFile;
+    private final boolean hashContents;
+    private final boolean linkFiles;
+    private final Map<String, Entry> manifest;
+    private int copiedCount;
+    private int deletedCount;
+    private int unchangedCount;
+
+    /**
+     * Records the state of a file at the time it was synchronized.
+     *
+     * @param srcSize Size of the source file in bytes
+     * @param srcModified Modification time of the source file in milliseconds since the epoch
+     * @param dstSize Size of the destination file in bytes
+     * @param dstModified Modification time of the destination file in milliseconds since the epoch
+     * @param hash SHA-256 hash of the file contents or {@link #NO_HASH} if the contents were not hashed
+     */
+    private record Entry(long srcSize, long srcModified, long dstSize, long dstModified, String hash) {
+    }
+
+    /**
+     * Creates a synchronizer using the specified manifest. If the manifest exists, it is read. If the manifest
+     * does not exist or cannot be read, all files are considered changed.
+     *
+     * @param manifestFile File in which the state of the synchronized files is persisted. The file should not be
+     *      located in the destination directory.
+     * @param hashContents {@code true} to compare file contents using a hash when the size of a file is unchanged
+     *      but its modification time has changed.
+     */
+    StagingSync(final Path manifestFile, final boolean hashContents) {
+        this(manifestFile, hashContents, false);
+    }
+
+    /**
+     * Creates a synchronizer using the specified manifest. If the manifest exists, it is read. If the manifest
+     * does not exist or cannot be read, all files are considered changed.
+     *
+     * @param manifestFile File in which the state of the synchronized files is persisted. The file should not be
+     *      located in the destination directory.
+     * @param hashContents {@code true} to compare file contents using a hash when the size of a file is unchanged
+     *      but its modification time has changed.
+     * @param linkFiles {@code true} to hard link files into the destination directory rather than copying them.
+     *      A file is copied if it cannot be linked (e.g. the directories are on different file systems).
+     */
+    StagingSync(final Path manifestFile, final boolean hashContents, final boolean linkFiles) {
+        this.manifestFile = manifestFile;
+        this.hashContents = hashContents;
+        this.linkFiles = linkFiles;
+        this.manifest = readManifest(manifestFile);
+    }
+
+    /**
+     * Synchronizes the destination directory with the source directory. Upon return, the destination directory
+     * contains the same files and directories as the source directory, with the exception of the specified
+     * excluded files. Excluded files are neither copied nor deleted.
+     *
+     * @param srcDir Directory to synchronize from
+     * @param dstDir Directory to synchronize. The directory is created if it does not exist.
+     * @param excludes Paths, relative to the source and destination directories, to exclude from the
+     *      synchronization
+     * @throws IOException if there was a problem synchronizing the directories
+     */
+    void sync(final Path srcDir, final Path dstDir, final Set<String> excludes) throws IOException {
+        final Map<String, BasicFileAttributes> srcFiles = new TreeMap<>();
+        final Set<String> srcDirs = new HashSet<>();
+        Files.walkFileTree(srcDir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                           new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+                srcDirs.add(relativize(srcDir, dir));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                final String path = relativize(srcDir, file);
+                if (!excludes.contains(path)) {
+                    srcFiles.put(path, attrs);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        // Remove anything in the destination that is no longer in the source.
+        if (Files.isDirectory(dstDir, LinkOption.NOFOLLOW_LINKS)) {
+            deleteRemoved(dstDir, srcFiles.keySet(), srcDirs, excludes);
+        }
+
+        // Create the directory structure, including empty directories.
+        for (final String dir : srcDirs) {
+            Files.createDirectories(dstDir.resolve(dir));
+        }
+
+        // Copy new and changed files.
+        for (final Map.Entry<String, BasicFileAttributes> srcFile : srcFiles.entrySet()) {
+            final String path = srcFile.getKey();
+            syncFile(srcDir.resolve(path), dstDir.resolve(path), path, srcFile.getValue());
+        }
+
+        this.manifest.keySet().retainAll(srcFiles.keySet());
+    }
+
+    /**
+     * Writes the specified contents to a file unless the file already has exactly those contents. The file is
+     * not tracked in the manifest because its current contents are compared directly.
+     *
+     * @param file File to write
+     * @param contents Contents to write
+     * @return {@code true} if the file was written.
+     * @throws IOException if there was a problem writing the file
+     */
+    boolean write(final Path file, final byte[] contents) throws IOException {
+        if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) && Files.size(file) == contents.length
+                && Arrays.equals(Files.readAllBytes(file), contents)) {
+            this.unchangedCount++;
+            return false;
+        }
+
+        Files.write(file, contents);
+        this.copiedCount++;
+        return true;
+    }
+
+    /**
+     * Persists the manifest so that it can be used by the next synchronization.
+     *
+     * @throws IOException if there was a problem writing the manifest
+     */
+    void save() throws IOException {
+        Files.createDirectories(this.manifestFile.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(this.manifestFile, StandardCharsets.UTF_8)) {
+            for (final Map.Entry<String, Entry> mapEntry : new TreeMap<>(this.manifest).entrySet()) {
+                final Entry entry = mapEntry.getValue();
+                writer.write(String.join(FIELD_SEPARATOR, mapEntry.getKey(), Long.toString(entry.srcSize()),
+                                         Long.toString(entry.srcModified()), Long.toString(entry.dstSize()),
+                                         Long.toString(entry.dstModified()), entry.hash()));
+                writer.newLine();
+            }
+        }
+
+        LOGGER.info("Staging: {} files written, {} files deleted, {} files unchanged", this.copiedCount,
+                    this.deletedCount, this.unchangedCount);
+    }
+
+    /**
+     * Obtains the number of files copied or written by this synchronizer.
+     *
+     * @return Number of files copied or written.
+     */
+    int getCopiedCount() {
+        return this.copiedCount;
+    }
+
+    /**
+     * Obtains the number of files and directories deleted by this synchronizer.
+     *
+     * @return Number of files and directories deleted.
+     */
+    int getDeletedCount() {
+        return this.deletedCount;
+    }
+
+    /**
+     * Obtains the number of files that did not need to be copied or written by this synchronizer.
+     *
+     * @return Number of unchanged files.
+     */
+    int getUnchangedCount() {
+        return this.unchangedCount;
+    }
+
+    private void syncFile(final Path srcFile, final Path dstFile, final String path, final BasicFileAttributes srcAttrs)
+            throws IOException {
+        final long srcSize = srcAttrs.size();
+        final long srcModified = srcAttrs.lastModifiedTime().toMillis();
+        final BasicFileAttributes dstAttrs = readAttributes(dstFile);
+        final Entry previous = this.manifest.get(path);
+
+        final boolean dstUnchanged = previous != null
+                && dstAttrs != null
+                && dstAttrs.isRegularFile()
+                && dstAttrs.size() == previous.dstSize()
+                && dstAttrs.lastModifiedTime().toMillis() == previous.dstModified();
+        if (dstUnchanged) {
+            if (srcSize == previous.srcSize() && srcModified == previous.srcModified()) {
+                if (this.hashContents && NO_HASH.equals(previous.hash())) {
+                    this.manifest.put(path, new Entry(srcSize, srcModified, previous.dstSize(), previous.dstModified(),
+                                                      hash(dstFile)));
+                }
+                this.unchangedCount++;
+                return;
+            }
+
+            // The source has been touched but its size has not changed. If its contents are the same as those
+            // previously copied, only the modification time needs to be updated.
+            if (this.hashContents && srcSize == previous.srcSize() && !NO_HASH.equals(previous.hash())) {
+                final String hash = hash(srcFile);
+                if (hash.equals(previous.hash())) {
+                    Files.setLastModifiedTime(dstFile, FileTime.fromMillis(srcModified));
+                    this.manifest.put(path, new Entry(srcSize, srcModified, previous.dstSize(), srcModified, hash));
+                    this.unchangedCount++;
+                    return;
+                }
+            }
+        }
+
+        if (dstAttrs != null && dstAttrs.isDirectory()) {
+            FileUtils.deleteDirectory(dstFile.toFile());
+        }
+        if (!this.linkFiles || !link(srcFile, dstFile)) {
+            Files.copy(srcFile, dstFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        this.copiedCount++;
+
+        final BasicFileAttributes copiedAttrs = Files.readAttributes(dstFile, BasicFileAttributes.class,
+                                                                     LinkOption.NOFOLLOW_LINKS);
+        final String hash = this.hashContents ? hash(dstFile) : NO_HASH;
+        this.manifest.put(path, new Entry(srcSize, srcModified, copiedAttrs.size(),
+                                          copiedAttrs.lastModifiedTime().toMillis(), hash));
+    }
+
+    private static boolean link(final Path srcFile, final Path dstFile) throws IOException {
+        Files.deleteIfExists(dstFile);
+        try {
+            Files.createLink(dstFile, srcFile.toRealPath());
+            return true;
+        } catch (final IOException | UnsupportedOperationException ex) {
+            LOGGER.debug("Could not link {} to {}, copying it instead: {}", dstFile, srcFile, ex.getMessage());
+            return false;
+        }
+    }
+
+    private void deleteRemoved(final Path dstDir, final Set<String> srcFiles, final Set<String> srcDirs,
+                               final Set<String> excludes) throws IOException {
+        final List<Path> removed = new ArrayList<>();
+        Files.walkFileTree(dstDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+                final String path = relativize(dstDir, dir);
+                if (path.isEmpty() || srcDirs.contains(path)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                removed.add(dir);
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                final String path = relativize(dstDir, file);
+                if (!srcFiles.contains(path) && !excludes.contains(path)) {
+                    removed.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        for (final Path path : removed) {
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                FileUtils.deleteDirectory(path.toFile());
+            } else {
+                Files.deleteIfExists(path);
+            }
+            this.deletedCount++;
+        }
+    }
+
+    private static @Nullable BasicFileAttributes readAttributes(final Path file) throws IOException {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (final NoSuchFileException ignore) {
+            return null;
+        }
+    }
+
+    private static String relativize(final Path base, final Path path) {
+        final String relative = base.relativize(path).toString();
+        return path.getFileSystem().getSeparator().equals("/") ? relative : relative.replace('\\', '/');
+    }
+
+    private static String hash(final Path file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new GradleException("Could not obtain " + HASH_ALGORITHM + " digest", ex);
+        }
+
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream ins = Files.newInputStream(file)) {
+            int count;
+            while ((count = ins.read(buffer)) >= 0) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static Map<String, Entry> readManifest(final Path manifestFile) {
+        final Map<String, Entry> entries = new HashMap<>();
+        if (!Files.isRegularFile(manifestFile)) {
+            return entries;
+        }
+
+        try {
+            for (final String line : Files.readAllLines(manifestFile, StandardCharsets.UTF_8)) {
+                final String[] fields = line.split(FIELD_SEPARATOR);
+                if (fields.length != NUM_FIELDS) {
+                    continue;
+                }
+                entries.put(fields[PATH_FIELD], new Entry(Long.parseLong(fields[SRC_SIZE_FIELD]),
+                                                          Long.parseLong(fields[SRC_MODIFIED_FIELD]),
+                                                          Long.parseLong(fields[DST_SIZE_FIELD]),
+                                                          Long.parseLong(fields[DST_MODIFIED_FIELD]),
+                                                          fields[HASH_FIELD]));
+            }
+        } catch (final IOException | NumberFormatException ex) {
+            LOGGER.info("Ignoring unreadable staging manifest {}: {}", manifestFile, ex.getMessage());
+            entries.clear();
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/**
+ * Writes a POSIX ustar archive to a stream. Only the entry types needed for Debian packages are supported (i.e.
+ * directories, regular files and symbolic links). All entries are owned by root. Long pathnames and link targets,
+ * and very large files, are described using PAX extended headers.
+ */
+final class TarWriter implements Closeable {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SYMLINK_MODE = 0777;
+    private static final int NAME_LENGTH = 100;
+    private static final int PREFIX_LENGTH = 155;
+    private static final long MAX_SIZE = 077777777777L;
+    private static final byte TYPE_FILE = '0';
+    private static final byte TYPE_SYMLINK = '2';
+    private static final byte TYPE_DIRECTORY = '5';
+    private static final byte TYPE_PAX = 'x';
+    private static final int PAX_MODE = 0644;
+    private static final String PAX_DIRECTORY = "./PaxHeaders/";
+    private static final int UTF8_CONTINUATION_MASK = 0xC0;
+    private static final int UTF8_CONTINUATION = 0x80;
+    private static final String OWNER = "root";
+
+    private static final int MODE_OFFSET = 100;
+    private static final int UID_OFFSET = 108;
+    private static final int GID_OFFSET = 116;
+    private static final int SIZE_OFFSET = 124;
+    private static final int MTIME_OFFSET = 136;
+    private static final int CHECKSUM_OFFSET = 148;
+    private static final int TYPE_OFFSET = 156;
+    private static final int LINKNAME_OFFSET = 157;
+    private static final int MAGIC_OFFSET = 257;
+    private static final int UNAME_OFFSET = 265;
+    private static final int GNAME_OFFSET = 297;
+    private static final int DEVMAJOR_OFFSET = 329;
+    private static final int DEVMINOR_OFFSET = 337;
+    private static final int PREFIX_OFFSET = 345;
+    private static final int MODE_LENGTH = 8;
+    private static final int ID_LENGTH = 8;
+    private static final int SIZE_LENGTH = 12;
+    private static final int MTIME_LENGTH = 12;
+    private static final int CHECKSUM_LENGTH = 8;
+    private static final int OWNER_LENGTH = 32;
+    private static final int DEV_LENGTH = 8;
+    private static final byte[] MAGIC = "ustar\u000000".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream outs;
+    private final byte[] header;
+    private final byte[] buffer;
+
+    /**
+     * Creates a writer for an archive.
+     *
+     * @param outs Stream to which the archive is written. The stream is not closed when the writer is closed.
+     */
+    TarWriter(final OutputStream outs) {
+        this.outs = outs;
+        this.header = new byte[BLOCK_SIZE];
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Adds a directory entry to the archive.
+     *
+     * @param name Name of the directory in the archive (e.g. "./usr/bin/")
+     * @param mode Permissions of the directory
+     * @param mtime Modification time of the directory in seconds since the epoch
+     * @throws IOException if there was a problem writing the entry
+     */
+    void addDirectory(final String name, final int mode, final long mtime) throws IOException {
+        writeHeader(name.endsWith("/") ? name : name + "/", mode, 0, mtime, TYPE_DIRECTORY, "");
+    }
+
+    /**
+     * Adds a symbolic link entry to the archive.
+     *
+     * @param name Name of the link in the archive
+     * @param target Target of the link
+     * @param mtime Modification time of the link in seconds since the epoch
+     * @throws IOException if there was a problem writing the entry
+     */
+    void addSymlink(final String name, final String target, final long mtime) throws IOException {
+        writeHeader(name, SYMLINK_MODE, 0, mtime, TYPE_SYMLINK, target);
+    }
+
+    /**
+     * Adds a regular file entry to the archive. The file contents are streamed into the archive.
+     *
+     * @param name Name of the file in the archive
+     * @param mode Permissions of the file
+     * @param size Size of the file in bytes
+     * @param mtime Modification time of the file in seconds since the epoch
+     * @param contents File contents. Exactly {@code size} bytes are read from the stream.
+     * @throws IOException if there was a problem writing the entry or the stream does not contain the
+     *      expected number of bytes
+     */
+    void addFile(final String name, final int mode, final long size, final long mtime, final InputStream contents)
+            throws IOException {
+        writeHeader(name, mode, size, mtime, TYPE_FILE, "");
+
+        long remaining = size;
+        while (remaining > 0) {
+            final int count = contents.read(this.buffer, 0, (int)Math.min(this.buffer.length, remaining));
+            if (count < 0) {
+                throw new IOException("Unexpected end of file while archiving " + name);
+            }
+            this.outs.write(this.buffer, 0, count);
+            remaining -= count;
+        }
+        pad(size);
+    }
+
+    /**
+     * Adds a regular file entry to the archive using the specified contents.
+     *
+     * @param name Name of the file in the archive
+     * @param mode Permissions of the file
+     * @param mtime Modification time of the file in seconds since the epoch
+     * @param contents File contents
+     * @throws IOException if there was a problem writing the entry
+     */
+    void addFile(final String name, final int mode, final long mtime, final byte[] contents) throws IOException {
+        writeHeader(name, mode, contents.length, mtime, TYPE_FILE, "");
+        this.outs.write(contents);
+        pad(contents.length);
+    }
+
+    /**
+     * Writes the end of archive marker. The underlying stream is flushed but not closed.
+     *
+     * @throws IOException if there was a problem writing the marker
+     */
+    @Override
+    public void close() throws IOException {
+        Arrays.fill(this.header, (byte)0);
+        this.outs.write(this.header);
+        this.outs.write(this.header);
+        this.outs.flush();
+    }
+
+    /**
+     * Writes the header of an entry. Attributes that do not fit in the ustar header (i.e. pathnames that cannot be
+     * split into the prefix and name fields, link targets longer than 100 bytes and sizes of 8GiB or more) are
+     * written to a preceding PAX extended header, as done by GNU tar and therefore {@code dpkg-deb}. The ustar
+     * header then contains a truncated value, which is only used by readers that do not support PAX.
+     */
+    private void writeHeader(final String name, final int mode, final long size, final long mtime, final byte type,
+                             final String linkName) throws IOException {
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        final byte[] linkBytes = linkName.getBytes(StandardCharsets.UTF_8);
+        final int split = (nameBytes.length <= NAME_LENGTH) ? 0 : findPrefixSplit(nameBytes);
+
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        if (split < 0) {
+            addPaxRecord(records, "path", nameBytes);
+        }
+        if (linkBytes.length > NAME_LENGTH) {
+            addPaxRecord(records, "linkpath", linkBytes);
+        }
+        if (size > MAX_SIZE) {
+            addPaxRecord(records, "size", Long.toString(size).getBytes(StandardCharsets.US_ASCII));
+        }
+        if (records.size() > 0) {
+            final byte[] paxName = (PAX_DIRECTORY + getBaseName(name)).getBytes(StandardCharsets.UTF_8);
+            writeHeader(truncate(paxName), 0, PAX_MODE, records.size(), mtime, TYPE_PAX, new byte[0]);
+            records.writeTo(this.outs);
+            pad(records.size());
+        }
+
+        writeHeader(split < 0 ? truncate(nameBytes) : nameBytes, split, mode, size > MAX_SIZE ? 0 : size, mtime, type,
+                    truncate(linkBytes));
+    }
+
+    /**
+     * Writes a ustar header.
+     *
+     * @param nameBytes Pathname of the entry, which must fit in the prefix and name fields
+     * @param split Position of the slash at which the pathname is split into the prefix and name fields, or zero
+     *      if the pathname fits in the name field
+     * @param mode Permissions of the entry
+     * @param size Size of the entry contents
+     * @param mtime Modification time of the entry in seconds since the epoch
+     * @param type Type of the entry
+     * @param linkBytes Link target, which must fit in the link name field
+     * @throws IOException if there was a problem writing the header
+     */
+    private void writeHeader(final byte[] nameBytes, final int split, final int mode, final long size,
+                             final long mtime, final byte type, final byte[] linkBytes) throws IOException {
+        Arrays.fill(this.header, (byte)0);
+
+        if (split <= 0) {
+            System.arraycopy(nameBytes, 0, this.header, 0, nameBytes.length);
+        } else {
+            System.arraycopy(nameBytes, split + 1, this.header, 0, nameBytes.length - split - 1);
+            System.arraycopy(nameBytes, 0, this.header, PREFIX_OFFSET, split);
+        }
+        System.arraycopy(linkBytes, 0, this.header, LINKNAME_OFFSET, linkBytes.length);
+
+        writeOctal(mode, MODE_OFFSET, MODE_LENGTH);
+        writeOctal(0, UID_OFFSET, ID_LENGTH);
+        writeOctal(0, GID_OFFSET, ID_LENGTH);
+        writeOctal(size, SIZE_OFFSET, SIZE_LENGTH);
+        writeOctal(mtime, MTIME_OFFSET, MTIME_LENGTH);
+        this.header[TYPE_OFFSET] = type;
+        System.arraycopy(MAGIC, 0, this.header, MAGIC_OFFSET, MAGIC.length);
+        writeString(OWNER, UNAME_OFFSET, OWNER_LENGTH);
+        writeString(OWNER, GNAME_OFFSET, OWNER_LENGTH);
+        writeOctal(0, DEVMAJOR_OFFSET, DEV_LENGTH);
+        writeOctal(0, DEVMINOR_OFFSET, DEV_LENGTH);
+
+        // The checksum is calculated with the checksum field filled with spaces.
+        Arrays.fill(this.header, CHECKSUM_OFFSET, CHECKSUM_OFFSET + CHECKSUM_LENGTH, (byte)' ');
+        long checksum = 0;
+        for (final byte b : this.header) {
+            checksum += Byte.toUnsignedInt(b);
+        }
+        writeOctal(checksum, CHECKSUM_OFFSET, CHECKSUM_LENGTH - 1);
+        this.header[CHECKSUM_OFFSET + CHECKSUM_LENGTH - 1] = ' ';
+
+        this.outs.write(this.header);
+    }
+
+    /**
+     * Adds a record to the contents of a PAX extended header. A record has the form "length key=value\n", where
+     * the length is the number of bytes in the record including the length itself.
+     *
+     * @param records Contents of the extended header
+     * @param key Name of the attribute
+     * @param value Value of the attribute
+     */
+    private static void addPaxRecord(final ByteArrayOutputStream records, final String key, final byte[] value) {
+        final int base = key.length() + value.length + 3;
+        int length = base + Integer.toString(base).length();
+        if (Integer.toString(length).length() != Integer.toString(base).length()) {
+            length++;
+        }
+        records.writeBytes((length + " " + key + "=").getBytes(StandardCharsets.US_ASCII));
+        records.writeBytes(value);
+        records.write('\n');
+    }
+
+    /**
+     * Truncates a UTF-8 encoded value to fit in a name field without splitting a multibyte character.
+     *
+     * @param bytes Value to truncate
+     * @return Value of at most 100 bytes.
+     */
+    private static byte[] truncate(final byte[] bytes) {
+        if (bytes.length <= NAME_LENGTH) {
+            return bytes;
+        }
+        int length = NAME_LENGTH;
+        while (length > 0 && (bytes[length] & UTF8_CONTINUATION_MASK) == UTF8_CONTINUATION) {
+            length--;
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    private static String getBaseName(final String name) {
+        final String trimmed = name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+        return trimmed.substring(trimmed.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Finds the position of the slash at which a long pathname can be split into the ustar prefix and name fields.
+     *
+     * @param nameBytes Pathname to split
+     * @return Position of the slash or -1 if the pathname cannot be split.
+     */
+    private static int findPrefixSplit(final byte[] nameBytes) {
+        // Trailing slashes on directory names cannot be used as the split point.
+        final int end = (nameBytes[nameBytes.length - 1] == '/') ? nameBytes.length - 2 : nameBytes.length - 1;
+        for (int i = Math.min(PREFIX_LENGTH, end); i > 0; i--) {
+            if (nameBytes[i] == '/' && (nameBytes.length - i - 1) <= NAME_LENGTH) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes a zero padded, NUL terminated octal number into the header.
+     */
+    private void writeOctal(final long value, final int offset, final int length) {
+        final String octal = Long.toOctalString(value);
+        final int digits = length - 1;
+        int pos = offset;
+        for (int i = octal.length(); i < digits; i++) {
+            this.header[pos++] = '0';
+        }
+        for (int i = 0; i < octal.length(); i++) {
+            this.header[pos++] = (byte)octal.charAt(i);
+        }
+        this.header[pos] = 0;
+    }
+
+    private void writeString(final String value, final int offset, final int length) {
+        final byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, this.header, offset, Math.min(bytes.length, length));
+    }
+
+    private void pad(final long size) throws IOException {
+        final int remainder = (int)(size % BLOCK_SIZE);
+        if (remainder != 0) {
+            Arrays.fill(this.header, (byte)0);
+            this.outs.write(this.header, 0, BLOCK_SIZE - remainder);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.jspecify.annotations.Nullable;
+
+import freemarker.cache.FileTemplateLoader;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateExceptionHandler;
+
+
+/**
+ * Build scoped service that owns the FreeMarker template engine used to perform variable replacement on Debian
+ * configuration files. Parsed templates are cached by the SHA-256 hash of their contents and the directory
+ * containing them, so a template is parsed once per build regardless of the number of {@link DebTask} instances
+ * that use it. The directory is part of the key because FreeMarker resolves relative includes against the location
+ * of the template, and reports errors against it. A modified template has a different hash and is therefore parsed
+ * again.
+ */
+public abstract class TemplateService implements BuildService<BuildServiceParameters.None> {
+
+    /**
+     * Name under which the service is registered.
+     */
+    public static final String NAME = "cthingDebTemplates";
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final Configuration config;
+    private final Map<TemplateKey, Template> templates;
+
+    /**
+     * Identifies a parsed template.
+     *
+     * @param hash SHA-256 hash of the template contents
+     * @param directory Directory containing the template file
+     */
+    private record TemplateKey(String hash, @Nullable Path directory) {
+    }
+
+    /**
+     * Creates and configures the template engine.
+     */
+    @SuppressWarnings("this-escape")
+    public TemplateService() {
+        this.config = new Configuration(Configuration.VERSION_2_3_28);
+        try {
+            this.config.setTemplateLoader(new FileTemplateLoader(new File("/"), true));
+        } catch (final IOException ex) {
+            throw new GradleException("Could not create template loader", ex);
+        }
+        this.config.setDefaultEncoding(StandardCharsets.UTF_8.name());
+        this.config.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+        this.config.setLogTemplateExceptions(false);
+        this.config.setWrapUncheckedExceptions(true);
+
+        this.templates = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Obtains the parsed template for the specified file. The file is read to determine its hash, but it is only
+     * parsed if a template with the same contents in the same directory has not already been parsed during the
+     * build.
+     *
+     * @param templateFile Template file to obtain
+     * @return Parsed template. The template is shared and can be processed concurrently.
+     * @throws IOException if there was a problem reading or parsing the template
+     */
+    public Template getTemplate(final File templateFile) throws IOException {
+        final Path path = templateFile.toPath().toAbsolutePath();
+        final String contents = Files.readString(path, StandardCharsets.UTF_8);
+
+        try {
+            return this.templates.computeIfAbsent(new TemplateKey(hash(contents), path.getParent()), key -> {
+                try {
+                    return new Template(path.toString(), new StringReader(contents), this.config);
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (final UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Obtains the number of distinct templates parsed during the build.
+     *
+     * @return Number of parsed templates.
+     */
+    public int getTemplateCount() {
+        return this.templates.size();
+    }
+
+    private static String hash(final String contents) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            return HexFormat.of().formatHex(digest.digest(contents.getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new GradleException("Could not obtain " + HASH_ALGORITHM + " digest", ex);
+        }
+    }
+}
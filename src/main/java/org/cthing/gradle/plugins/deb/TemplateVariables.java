@@ -0,0 +1,129 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+import org.jspecify.annotations.Nullable;
+
+import freemarker.template.SimpleScalar;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateModel;
+
+
+/**
+ * Variables available to the Debian configuration file templates and, as environment variables, to the
+ * {@code rules} file. A variable is either defined with its value or with an object from which the value is
+ * obtained using {@link DebTask#stringize(Object)}. The value of such a variable is only obtained when the variable
+ * is first referenced, and is then remembered, so that a {@link Supplier} or {@link Callable} is called at most once
+ * and only if a template or the {@code rules} file uses it. The variables are exposed directly to FreeMarker as a
+ * hash model. The variables are safe for use by multiple threads.
+ */
+final class TemplateVariables implements TemplateHashModel {
+
+    private final Map<String, @Nullable Object> sources;
+    private final Map<String, @Nullable String> values;
+
+    TemplateVariables() {
+        this.sources = new LinkedHashMap<>();
+        this.values = new HashMap<>();
+    }
+
+    /**
+     * Defines a variable with the specified value. An existing variable with the same name is replaced.
+     *
+     * @param name Name of the variable
+     * @param value Value of the variable
+     */
+    synchronized void put(final String name, @Nullable final String value) {
+        this.sources.put(name, value);
+        this.values.put(name, value);
+    }
+
+    /**
+     * Defines a variable whose value is obtained from the specified object when the variable is first referenced.
+     * An existing variable with the same name is replaced.
+     *
+     * @param name Name of the variable
+     * @param source Object from which to obtain the value of the variable (e.g. a {@link Supplier})
+     */
+    synchronized void putDeferred(final String name, @Nullable final Object source) {
+        this.sources.put(name, source);
+        this.values.remove(name);
+    }
+
+    /**
+     * Obtains the value of the specified variable. If the value has not been obtained yet, it is obtained and
+     * remembered.
+     *
+     * @param name Name of the variable
+     * @return Value of the variable. Returns {@code null} if the variable is not defined or its value is
+     *      {@code null}.
+     */
+    synchronized @Nullable String getValue(final String name) {
+        if (this.values.containsKey(name)) {
+            return this.values.get(name);
+        }
+        if (!this.sources.containsKey(name)) {
+            return null;
+        }
+
+        final String value = DebTask.stringize(this.sources.get(name));
+        this.values.put(name, value);
+        return value;
+    }
+
+    /**
+     * Indicates whether the value of the specified variable is computed by calling a {@link Supplier} or
+     * {@link Callable}, and is therefore potentially expensive to obtain.
+     *
+     * @param name Name of the variable
+     * @return {@code true} if the variable's value is computed by a lambda.
+     */
+    synchronized boolean isComputed(final String name) {
+        final Object source = this.sources.get(name);
+        return source instanceof Supplier || source instanceof Callable;
+    }
+
+    /**
+     * Obtains the names of the defined variables.
+     *
+     * @return Names of the variables in the order in which they were first defined.
+     */
+    synchronized Set<String> getNames() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(this.sources.keySet()));
+    }
+
+    /**
+     * Obtains the values of all variables. The values of all deferred variables are obtained.
+     *
+     * @return Map of variable names to their values. Values may be {@code null}.
+     */
+    synchronized Map<String, String> toMap() {
+        final Map<String, String> map = new HashMap<>();
+        for (final String name : this.sources.keySet()) {
+            map.put(name, getValue(name));
+        }
+        return map;
+    }
+
+    @Override
+    public @Nullable TemplateModel get(final String key) {
+        final String value = getValue(key);
+        return value == null ? null : new SimpleScalar(value);
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return this.sources.isEmpty();
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.gradle.api.logging.LogLevel;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Runs an external tool, such as {@code dpkg-buildpackage} or {@code lintian}. The standard output and standard
+ * error streams of the tool are drained concurrently, so that a tool producing a large amount of output on either
+ * stream can never block on a full pipe. Each line of output is logged as it is produced, and only the last lines
+ * of the combined output are retained for use in error messages, so that the memory used does not depend on the
+ * amount of output.
+ *
+ * <p>
+ * A tool that does not exit within its timeout, or whose calling thread is interrupted (e.g. because the build was
+ * cancelled), is terminated together with all of its descendant processes, so that no orphaned processes (e.g.
+ * {@code make} started by {@code dh}) are left running. Tools still running when the JVM exits are terminated in
+ * the same way by a shutdown hook.
+ * </p>
+ */
+final class ToolRunner {
+
+    /**
+     * Default number of output lines retained for error messages.
+     */
+    static final int DEFAULT_TAIL_LINES = 50;
+
+    private static final Logger LOGGER = Logging.getLogger(ToolRunner.class);
+    private static final int MAX_LINE_LENGTH = 1024;
+    private static final Duration DESTROY_GRACE_PERIOD = Duration.ofSeconds(5);
+    private static final Set<Process> RUNNING = ConcurrentHashMap.newKeySet();
+    private static boolean shutdownHookRegistered;
+
+    private final LogLevel outputLevel;
+    private final LogLevel errorLevel;
+    private final int tailLines;
+
+    /**
+     * Result of running a tool.
+     *
+     * @param tool Path of the tool that was run
+     * @param exitStatus Exit status of the tool, or -1 if the tool timed out
+     * @param timeout Timeout that the tool exceeded, or {@code null} if the tool exited within its timeout
+     * @param tail Last lines of the combined standard output and standard error of the tool
+     */
+    record Result(String tool, int exitStatus, @Nullable Duration timeout, String tail) {
+
+        /**
+         * Indicates whether the tool completed successfully.
+         *
+         * @return {@code true} if the tool exited within its timeout with a status of zero.
+         */
+        boolean isSuccess() {
+            return this.timeout == null && this.exitStatus == 0;
+        }
+
+        /**
+         * Creates a message describing the failure of the tool, including the last lines of its output.
+         *
+         * @return Failure message.
+         */
+        String getFailureMessage() {
+            final String message = (this.timeout == null)
+                                   ? this.tool + " failed with exit status " + this.exitStatus
+                                   : this.tool + " did not complete within " + this.timeout.toSeconds() + " seconds";
+            return this.tail.isEmpty() ? message : message + '\n' + this.tail;
+        }
+    }
+
+    /**
+     * Creates a runner that logs the output of a tool at the specified levels and retains
+     * {@link #DEFAULT_TAIL_LINES} lines of output.
+     *
+     * @param outputLevel Level at which the lines written to the standard output are logged
+     * @param errorLevel Level at which the lines written to the standard error are logged
+     */
+    ToolRunner(final LogLevel outputLevel, final LogLevel errorLevel) {
+        this(outputLevel, errorLevel, DEFAULT_TAIL_LINES);
+    }
+
+    /**
+     * Creates a runner that logs the output of a tool at the specified levels.
+     *
+     * @param outputLevel Level at which the lines written to the standard output are logged
+     * @param errorLevel Level at which the lines written to the standard error are logged
+     * @param tailLines Number of lines of output retained for error messages
+     */
+    ToolRunner(final LogLevel outputLevel, final LogLevel errorLevel, final int tailLines) {
+        this.outputLevel = outputLevel;
+        this.errorLevel = errorLevel;
+        this.tailLines = tailLines;
+    }
+
+    /**
+     * Runs the tool described by the specified process builder and waits for it to exit. The standard input of
+     * the tool is closed. If the calling thread is interrupted while waiting, the tool and its descendants are
+     * terminated.
+     *
+     * @param processBuilder Describes the tool to run, its arguments, working directory and environment. The
+     *      redirection of the output streams is ignored.
+     * @return Result of running the tool.
+     * @throws IOException if the tool could not be started
+     * @throws InterruptedException if the calling thread was interrupted while waiting for the tool to exit
+     */
+    Result run(final ProcessBuilder processBuilder) throws IOException, InterruptedException {
+        return run(processBuilder, null);
+    }
+
+    /**
+     * Runs the tool described by the specified process builder and waits for it to exit. The standard input of
+     * the tool is closed. If the tool does not exit within the specified timeout, or the calling thread is
+     * interrupted while waiting, the tool and its descendants are terminated.
+     *
+     * @param processBuilder Describes the tool to run, its arguments, working directory and environment. The
+     *      redirection of the output streams is ignored.
+     * @param timeout Maximum time to wait for the tool to exit. A {@code null}, zero or negative timeout waits
+     *      indefinitely.
+     * @return Result of running the tool.
+     * @throws IOException if the tool could not be started
+     * @throws InterruptedException if the calling thread was interrupted while waiting for the tool to exit
+     */
+    Result run(final ProcessBuilder processBuilder, @Nullable final Duration timeout)
+            throws IOException, InterruptedException {
+        final String tool = processBuilder.command().get(0);
+        final Deque<String> tail = new ArrayDeque<>();
+        final long timeoutNanos = (timeout == null || timeout.isNegative()) ? 0 : timeout.toNanos();
+
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.PIPE);
+        processBuilder.redirectError(ProcessBuilder.Redirect.PIPE);
+        registerShutdownHook();
+        final Process process = processBuilder.start();
+        RUNNING.add(process);
+        try {
+            process.getOutputStream().close();
+
+            final Thread outputDrainer = drain(process.getInputStream(), this.outputLevel, tail, tool + " stdout");
+            final Thread errorDrainer = drain(process.getErrorStream(), this.errorLevel, tail, tool + " stderr");
+
+            final boolean exited;
+            if (timeoutNanos > 0) {
+                exited = process.waitFor(timeoutNanos, TimeUnit.NANOSECONDS);
+            } else {
+                process.waitFor();
+                exited = true;
+            }
+            if (!exited) {
+                LOGGER.warn("{} did not complete within {} seconds, terminating it", tool,
+                            TimeUnit.NANOSECONDS.toSeconds(timeoutNanos));
+                destroyTree(process);
+            }
+
+            // The streams reach their end when the tool and any descendants sharing them have exited. The wait
+            // is bounded in case a descendant that detached from the tool keeps a stream open.
+            outputDrainer.join(DESTROY_GRACE_PERIOD.toMillis());
+            errorDrainer.join(DESTROY_GRACE_PERIOD.toMillis());
+
+            synchronized (tail) {
+                return exited ? new Result(tool, process.exitValue(), null, String.join("\n", tail))
+                              : new Result(tool, -1, Duration.ofNanos(timeoutNanos), String.join("\n", tail));
+            }
+        } catch (final InterruptedException ex) {
+            LOGGER.info("Interrupted while running {}, terminating it", tool);
+            destroyTree(process);
+            throw ex;
+        } finally {
+            RUNNING.remove(process);
+        }
+    }
+
+    /**
+     * Terminates the specified process and all of its descendants. The descendants are determined before any
+     * process is terminated, because a descendant is no longer associated with the process once its parent has
+     * exited. The processes are first asked to terminate, so that they can clean up, and are forcibly terminated
+     * if they have not exited within a grace period.
+     *
+     * @param process Process to terminate
+     */
+    static void destroyTree(final Process process) {
+        final List<ProcessHandle> handles = new ArrayList<>();
+        handles.add(process.toHandle());
+        process.descendants().forEach(handles::add);
+        handles.forEach(ProcessHandle::destroy);
+
+        final long deadline = System.nanoTime() + DESTROY_GRACE_PERIOD.toNanos();
+        for (final ProcessHandle handle : handles) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                handle.onExit().get(remaining, TimeUnit.NANOSECONDS);
+            } catch (final ExecutionException | TimeoutException ignore) {
+                break;
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        handles.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+    }
+
+    /**
+     * Registers, once, a shutdown hook that terminates the tools still running when the JVM exits (e.g. when the
+     * Gradle daemon or a worker process is stopped).
+     */
+    private static synchronized void registerShutdownHook() {
+        if (!shutdownHookRegistered) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> RUNNING.forEach(ToolRunner::destroyTree),
+                                                            "Debian packaging tool cleanup"));
+            shutdownHookRegistered = true;
+        }
+    }
+
+    /**
+     * Starts a thread that reads the specified stream line by line until it is exhausted, logging each line and
+     * retaining the last lines in the specified buffer. Platform threads are used because this project targets
+     * Java 17. The threads are daemon threads so that they never prevent the JVM from exiting.
+     *
+     * @param ins Stream to drain
+     * @param level Level at which to log each line
+     * @param tail Buffer of the last lines of output shared by the streams of the tool
+     * @param name Name of the thread
+     * @return Thread draining the stream.
+     */
+    private Thread drain(final InputStream ins, final LogLevel level, final Deque<String> tail, final String name) {
+        final Thread thread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(ins, StandardCharsets.UTF_8))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    LOGGER.log(level, line);
+                    synchronized (tail) {
+                        if (tail.size() >= this.tailLines && !tail.isEmpty()) {
+                            tail.removeFirst();
+                        }
+                        if (this.tailLines > 0) {
+                            tail.addLast(line.length() > MAX_LINE_LENGTH ? line.substring(0, MAX_LINE_LENGTH)
+                                                                         : line);
+                        }
+                    }
+                }
+            } catch (final IOException ex) {
+                LOGGER.debug("Stopped reading {}: {}", name, ex.getMessage());
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
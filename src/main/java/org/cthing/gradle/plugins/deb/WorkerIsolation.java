@@ -0,0 +1,20 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+/**
+ * Isolation modes for the work items that build and lint a package.
+ */
+public enum WorkerIsolation {
+    /**
+     * Work items run in the Gradle daemon without classloader isolation.
+     */
+    NONE,
+
+    /**
+     * Work items run in a separate Gradle worker daemon process.
+     */
+    PROCESS
+}
@@ -0,0 +1,442 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.file.PathUtils;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.util.GradleVersion;
+import org.jspecify.annotations.Nullable;
+
+import groovy.json.JsonOutput;
+
+
+/**
+ * End-to-end benchmark of packaging builds. The integration test fixture projects and synthetic projects consisting
+ * of a number of subprojects with large payloads are built repeatedly using the Gradle TestKit in the following
+ * scenarios:
+ *
+ * <ul>
+ *     <li>Cold - a fresh copy of the project is built by a new Gradle daemon with an empty build cache</li>
+ *     <li>Warm - the project is cleaned and built by a daemon that has already built it, without the build cache</li>
+ *     <li>Up-to-date - the project is built again without changes</li>
+ *     <li>Cache hit - the project is cleaned and built using a build cache populated by a previous build</li>
+ * </ul>
+ *
+ * <p>
+ * The wall clock time of each build is measured along with the configuration and execution phase times, the time
+ * and outcome of each task, and the peak resident set size of the Gradle daemon. The measurements and a summary
+ * are written as JSON. The benchmark is configured using the following system properties:
+ * </p>
+ *
+ * <ul>
+ *     <li>{@code benchmark.fixturesDir} - directory containing the fixture projects</li>
+ *     <li>{@code benchmark.workDir} - directory in which projects are built</li>
+ *     <li>{@code benchmark.output} - JSON file to which the results are written</li>
+ *     <li>{@code benchmark.fixtures} - comma separated names of the fixtures to build (default all)</li>
+ *     <li>{@code benchmark.subprojects} - comma separated subproject counts of the synthetic projects (default 10)</li>
+ *     <li>{@code benchmark.payloadMb} - size of the payload of each synthetic subproject in MB (default 4)</li>
+ *     <li>{@code benchmark.iterations} - number of measured builds for each warm scenario (default 3)</li>
+ *     <li>{@code benchmark.coldIterations} - number of measured cold builds (default 1)</li>
+ * </ul>
+ */
+public final class PackagingBenchmark {
+
+    private static final String DEFAULT_TASK = "generateDeb";
+    private static final Map<String, String> FIXTURE_TASKS = Map.of("publish-package", "publish");
+    private static final String SCALED_TEMPLATE = "native-package";
+    private static final String INIT_SCRIPT = "benchmark-init.gradle";
+    private static final int MEGABYTE = 1024 * 1024;
+
+    private static final String SCALED_BUILD_FILE = """
+            import org.cthing.gradle.plugins.deb.BuildEngine
+            import org.cthing.gradle.plugins.deb.DebTask
+            import org.cthing.projectversion.BuildType
+            import org.cthing.projectversion.ProjectVersion
+
+            plugins {
+                id("org.cthing.cthing-deb")
+            }
+
+            version = ProjectVersion("1.2.3", BuildType.release)
+            group = "org.cthing"
+
+            tasks.register("generateDeb", DebTask::class.java) {
+                debianDir = file("debian")
+                organization = "C Thing Software"
+                buildEngine = BuildEngine.NATIVE
+                stagingDir = file("staging")
+                lintianEnable.set(false)
+            }
+            """;
+
+    /**
+     * Build scenarios measured for each project.
+     */
+    enum Scenario {
+        COLD,
+        WARM,
+        UP_TO_DATE,
+        CACHE_HIT
+    }
+
+    /**
+     * Project to benchmark.
+     *
+     * @param name Name of the project
+     * @param sourceDir Directory containing the project, which is copied before it is built
+     * @param task Task that builds the packages of the project
+     */
+    record BenchmarkProject(String name, Path sourceDir, String task) {
+    }
+
+    /**
+     * Measurements of a single build.
+     *
+     * @param project Name of the project built
+     * @param scenario Scenario measured
+     * @param iteration Iteration of the scenario
+     * @param wallMillis Wall clock time of the build, including connecting to the daemon
+     * @param configurationMillis Time from the start of the build to the start of the first task
+     * @param executionMillis Time from the start of the first task to the end of the last task
+     * @param peakRssKb Peak resident set size of the daemon in kilobytes, or -1 if not available
+     * @param tasks Outcome and duration of each task executed, keyed by task path
+     */
+    record Measurement(String project, Scenario scenario, int iteration, long wallMillis, long configurationMillis,
+                       long executionMillis, long peakRssKb, Map<String, TaskTiming> tasks) {
+    }
+
+    /**
+     * Outcome and duration of a task.
+     *
+     * @param outcome Task outcome (e.g. SUCCESS, UP_TO_DATE, FROM_CACHE)
+     * @param millis Duration of the task
+     */
+    record TaskTiming(String outcome, long millis) {
+    }
+
+    private final Path fixturesDir;
+    private final Path workDir;
+    private final Path outputFile;
+    private final int iterations;
+    private final int coldIterations;
+    private final Path initScript;
+    private final List<Measurement> measurements;
+
+    private PackagingBenchmark() throws IOException {
+        this.fixturesDir = Path.of(System.getProperty("benchmark.fixturesDir", "src/test/resources")).toAbsolutePath();
+        this.workDir = Path.of(System.getProperty("benchmark.workDir", "build/packaging-benchmark")).toAbsolutePath();
+        this.outputFile = Path.of(System.getProperty("benchmark.output", this.workDir.resolve("results.json").toString()));
+        this.iterations = Integer.getInteger("benchmark.iterations", 3);
+        this.coldIterations = Integer.getInteger("benchmark.coldIterations", 1);
+        this.measurements = new ArrayList<>();
+
+        Files.createDirectories(this.workDir);
+        this.initScript = this.workDir.resolve(INIT_SCRIPT);
+        try (InputStream ins = PackagingBenchmark.class.getResourceAsStream(INIT_SCRIPT)) {
+            if (ins == null) {
+                throw new IOException("Could not find " + INIT_SCRIPT);
+            }
+            Files.write(this.initScript, ins.readAllBytes());
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final PackagingBenchmark benchmark = new PackagingBenchmark();
+        final List<BenchmarkProject> projects = new ArrayList<>(benchmark.findFixtures());
+
+        final int payloadMb = Integer.getInteger("benchmark.payloadMb", 4);
+        for (final String count : System.getProperty("benchmark.subprojects", "10").split(",")) {
+            if (!count.isBlank()) {
+                projects.add(benchmark.createScaledProject(Integer.parseInt(count.trim()), payloadMb));
+            }
+        }
+
+        for (final BenchmarkProject project : projects) {
+            benchmark.benchmark(project);
+        }
+
+        benchmark.writeResults();
+    }
+
+    /**
+     * Finds the fixture projects to build. Fixtures that use the dpkg build engine are skipped if the Debian
+     * packaging tools are not installed.
+     */
+    private List<BenchmarkProject> findFixtures() throws IOException {
+        final String selected = System.getProperty("benchmark.fixtures", "");
+        final List<String> names = selected.isBlank() ? List.of() : Arrays.asList(selected.split(","));
+
+        final List<BenchmarkProject> fixtures = new ArrayList<>();
+        try (Stream<Path> dirs = Files.list(this.fixturesDir)) {
+            for (final Path dir : dirs.sorted().toList()) {
+                final String name = dir.getFileName().toString();
+                final Path buildFile = dir.resolve("build.gradle.kts");
+                if (!Files.isRegularFile(buildFile) || (!names.isEmpty() && !names.contains(name))) {
+                    continue;
+                }
+                if (!DebTask.toolsExist() && !Files.readString(buildFile).contains("BuildEngine.NATIVE")) {
+                    System.out.printf("Skipping %s, Debian packaging tools not installed%n", name);
+                    continue;
+                }
+                fixtures.add(new BenchmarkProject(name, dir, FIXTURE_TASKS.getOrDefault(name, DEFAULT_TASK)));
+            }
+        }
+        return fixtures;
+    }
+
+    /**
+     * Creates a project consisting of the specified number of subprojects, each of which builds a package using the
+     * native engine. The Debian directory of each subproject is based on the native package fixture, and the payload
+     * of each package consists of incompressible files totalling the specified size.
+     */
+    private BenchmarkProject createScaledProject(final int subprojects, final int payloadMb) throws IOException {
+        final String name = "scaled-" + subprojects;
+        final Path projectDir = this.workDir.resolve("sources").resolve(name);
+        if (Files.exists(projectDir)) {
+            PathUtils.deleteDirectory(projectDir);
+        }
+        Files.createDirectories(projectDir);
+
+        final StringBuilder settings = new StringBuilder();
+        settings.append("rootProject.name = \"").append(name).append("\"\n");
+
+        final Path templateDebianDir = this.fixturesDir.resolve(SCALED_TEMPLATE).resolve("debian");
+        final byte[] payload = new byte[MEGABYTE];
+        for (int i = 0; i < subprojects; i++) {
+            final String packageName = "scaled-package" + i;
+            final Path subprojectDir = projectDir.resolve(packageName);
+            settings.append("include(\"").append(packageName).append("\")\n");
+
+            final Path debianDir = Files.createDirectories(subprojectDir.resolve("debian"));
+            try (Stream<Path> files = Files.list(templateDebianDir)) {
+                for (final Path file : files.toList()) {
+                    final String contents = Files.readString(file, StandardCharsets.UTF_8);
+                    Files.writeString(debianDir.resolve(file.getFileName()),
+                                      contents.replace("test-package", packageName), StandardCharsets.UTF_8);
+                }
+            }
+            Files.writeString(subprojectDir.resolve("build.gradle.kts"), SCALED_BUILD_FILE, StandardCharsets.UTF_8);
+
+            final Path payloadDir = Files.createDirectories(subprojectDir.resolve("staging/usr/share")
+                                                                         .resolve(packageName));
+            final Random random = new Random(i);
+            for (int j = 0; j < payloadMb; j++) {
+                random.nextBytes(payload);
+                Files.write(payloadDir.resolve("data" + j + ".bin"), payload);
+            }
+        }
+        Files.writeString(projectDir.resolve("settings.gradle.kts"), settings, StandardCharsets.UTF_8);
+
+        return new BenchmarkProject(name, projectDir, DEFAULT_TASK);
+    }
+
+    /**
+     * Measures all scenarios for a project.
+     */
+    private void benchmark(final BenchmarkProject project) throws IOException {
+        System.out.printf("Benchmarking %s%n", project.name());
+
+        final Path projectDir = this.workDir.resolve("projects").resolve(project.name());
+        final Path cacheDir = this.workDir.resolve("caches").resolve(project.name());
+
+        // Each cold build uses its own TestKit directory, and therefore its own daemon
+        for (int i = 0; i < this.coldIterations; i++) {
+            reset(project, projectDir, cacheDir);
+            final Path testKitDir = this.workDir.resolve("testkit-cold").resolve(project.name() + "-" + i);
+            if (Files.exists(testKitDir)) {
+                PathUtils.deleteDirectory(testKitDir);
+            }
+            build(project, Scenario.COLD, i, projectDir, cacheDir, testKitDir, project.task(), "--build-cache");
+        }
+
+        final Path testKitDir = this.workDir.resolve("testkit");
+        reset(project, projectDir, cacheDir);
+        build(project, null, 0, projectDir, cacheDir, testKitDir, project.task(), "--no-build-cache");
+        for (int i = 0; i < this.iterations; i++) {
+            build(project, Scenario.WARM, i, projectDir, cacheDir, testKitDir, "clean", project.task(),
+                  "--no-build-cache");
+        }
+
+        for (int i = 0; i < this.iterations; i++) {
+            build(project, Scenario.UP_TO_DATE, i, projectDir, cacheDir, testKitDir, project.task(),
+                  "--no-build-cache");
+        }
+
+        build(project, null, 0, projectDir, cacheDir, testKitDir, "clean", project.task(), "--build-cache");
+        for (int i = 0; i < this.iterations; i++) {
+            build(project, Scenario.CACHE_HIT, i, projectDir, cacheDir, testKitDir, "clean", project.task(),
+                  "--build-cache");
+        }
+    }
+
+    private static void reset(final BenchmarkProject project, final Path projectDir, final Path cacheDir)
+            throws IOException {
+        for (final Path dir : List.of(projectDir, cacheDir)) {
+            if (Files.exists(dir)) {
+                PathUtils.deleteDirectory(dir);
+            }
+        }
+        PathUtils.copyDirectory(project.sourceDir(), projectDir);
+    }
+
+    /**
+     * Builds a project and records the measurements of the build.
+     *
+     * @param scenario Scenario being measured, or {@code null} if the build is not measured (e.g. a warm up build)
+     */
+    private void build(final BenchmarkProject project, @Nullable final Scenario scenario, final int iteration,
+                       final Path projectDir, final Path cacheDir, final Path testKitDir, final String... tasks)
+            throws IOException {
+        final Path timingsFile = this.workDir.resolve("timings.txt");
+        Files.deleteIfExists(timingsFile);
+
+        final List<String> arguments = new ArrayList<>();
+        arguments.add("--init-script");
+        arguments.add(this.initScript.toString());
+        arguments.add("-PbenchmarkTimings=" + timingsFile);
+        arguments.add("-PbenchmarkCacheDir=" + cacheDir);
+        arguments.add("--parallel");
+        arguments.addAll(Arrays.asList(tasks));
+
+        final long start = System.nanoTime();
+        GradleRunner.create()
+                    .withProjectDir(projectDir.toFile())
+                    .withTestKitDir(testKitDir.toFile())
+                    .withArguments(arguments)
+                    .withPluginClasspath()
+                    .build();
+        final long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        if (scenario != null) {
+            final Measurement measurement = parseTimings(project, scenario, iteration, wallMillis, timingsFile);
+            this.measurements.add(measurement);
+            System.out.printf("  %-10s #%d  wall %6d ms  configuration %6d ms  execution %6d ms  peak RSS %7d KB%n",
+                              scenario, iteration, measurement.wallMillis(), measurement.configurationMillis(),
+                              measurement.executionMillis(), measurement.peakRssKb());
+        }
+    }
+
+    private static Measurement parseTimings(final BenchmarkProject project, final Scenario scenario,
+                                            final int iteration, final long wallMillis, final Path timingsFile)
+            throws IOException {
+        long buildStart = 0;
+        long firstTaskStart = Long.MAX_VALUE;
+        long lastTaskEnd = 0;
+        long peakRss = -1;
+        final Map<String, TaskTiming> tasks = new TreeMap<>();
+
+        for (final String line : Files.readAllLines(timingsFile, StandardCharsets.UTF_8)) {
+            final String[] fields = line.split("\t");
+            switch (fields[0]) {
+                case "start" -> buildStart = Long.parseLong(fields[1]);
+                case "rss" -> peakRss = Long.parseLong(fields[1]);
+                case "task" -> {
+                    final long taskStart = Long.parseLong(fields[3]);
+                    final long taskEnd = Long.parseLong(fields[4]);
+                    firstTaskStart = Math.min(firstTaskStart, taskStart);
+                    lastTaskEnd = Math.max(lastTaskEnd, taskEnd);
+                    tasks.put(fields[1], new TaskTiming(fields[2], taskEnd - taskStart));
+                }
+                default -> throw new IOException("Unexpected timing record: " + line);
+            }
+        }
+
+        final long configurationMillis = tasks.isEmpty() ? 0 : firstTaskStart - buildStart;
+        final long executionMillis = tasks.isEmpty() ? 0 : lastTaskEnd - firstTaskStart;
+        return new Measurement(project.name(), scenario, iteration, wallMillis, configurationMillis, executionMillis,
+                               peakRss, tasks);
+    }
+
+    /**
+     * Writes the measurements and a summary of each project and scenario as JSON.
+     */
+    private void writeResults() throws IOException {
+        final List<Map<String, Object>> results = new ArrayList<>();
+        for (final Measurement measurement : this.measurements) {
+            final Map<String, Object> result = new LinkedHashMap<>();
+            result.put("project", measurement.project());
+            result.put("scenario", measurement.scenario().name().toLowerCase(Locale.ROOT));
+            result.put("iteration", measurement.iteration());
+            result.put("wallMillis", measurement.wallMillis());
+            result.put("configurationMillis", measurement.configurationMillis());
+            result.put("executionMillis", measurement.executionMillis());
+            result.put("peakRssKb", measurement.peakRssKb());
+
+            final Map<String, Object> tasks = new LinkedHashMap<>();
+            measurement.tasks().forEach((path, timing) -> tasks.put(path, Map.of("outcome", timing.outcome(),
+                                                                                 "millis", timing.millis())));
+            result.put("tasks", tasks);
+            results.add(result);
+        }
+
+        final Map<String, List<Measurement>> groups = new LinkedHashMap<>();
+        for (final Measurement measurement : this.measurements) {
+            groups.computeIfAbsent(measurement.project() + " " + measurement.scenario(), key -> new ArrayList<>())
+                  .add(measurement);
+        }
+
+        final List<Map<String, Object>> summary = new ArrayList<>();
+        System.out.printf("%n%-28s %-10s %10s %10s %10s %10s%n", "Project", "Scenario", "Wall", "Config",
+                          "Execution", "Peak RSS");
+        for (final List<Measurement> group : groups.values()) {
+            final Measurement first = group.get(0);
+            final Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("project", first.project());
+            entry.put("scenario", first.scenario().name().toLowerCase(Locale.ROOT));
+            entry.put("builds", group.size());
+            entry.put("medianWallMillis", median(group, Measurement::wallMillis));
+            entry.put("minWallMillis", group.stream().mapToLong(Measurement::wallMillis).min().orElse(0));
+            entry.put("medianConfigurationMillis", median(group, Measurement::configurationMillis));
+            entry.put("medianExecutionMillis", median(group, Measurement::executionMillis));
+            entry.put("maxPeakRssKb", group.stream().mapToLong(Measurement::peakRssKb).max().orElse(-1));
+
+            final Map<String, Integer> outcomes = new TreeMap<>();
+            group.forEach(measurement -> measurement.tasks().values()
+                                                    .forEach(timing -> outcomes.merge(timing.outcome(), 1,
+                                                                                      Integer::sum)));
+            entry.put("taskOutcomes", outcomes);
+            summary.add(entry);
+
+            System.out.printf("%-28s %-10s %7d ms %7d ms %7d ms %7d KB%n", first.project(), first.scenario(),
+                              entry.get("medianWallMillis"), entry.get("medianConfigurationMillis"),
+                              entry.get("medianExecutionMillis"), entry.get("maxPeakRssKb"));
+        }
+
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("gradleVersion", GradleVersion.current().getVersion());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        report.put("processors", Runtime.getRuntime().availableProcessors());
+        report.put("iterations", this.iterations);
+        report.put("coldIterations", this.coldIterations);
+        report.put("summary", summary);
+        report.put("measurements", results);
+
+        Files.createDirectories(this.outputFile.toAbsolutePath().getParent());
+        Files.writeString(this.outputFile, JsonOutput.prettyPrint(JsonOutput.toJson(report)), StandardCharsets.UTF_8);
+        System.out.printf("%nResults written to %s%n", this.outputFile);
+    }
+
+    private static long median(final List<Measurement> measurements, final ToLongFunction<Measurement> value) {
+        final long[] values = measurements.stream().mapToLong(value).sorted().toArray();
+        return values.length == 0 ? 0 : values[values.length / 2];
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.archivers.ar.ArArchiveEntry;
+import org.apache.commons.compress.archivers.ar.ArArchiveInputStream;
+import org.apache.commons.compress.archivers.ar.ArArchiveOutputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+
+public class AptIndexTest {
+
+    private static final String SOURCE_CONTROL = """
+            Source: test-source
+            Maintainer: Test User <tester@cthing.com>
+            Section: utils
+
+            Package: test-package
+            Architecture: all
+            Depends: libc6
+            Description: Testing package
+             A test package
+            """;
+
+    private static final String OTHER_INFO = """
+            Package: other-package
+            Version: 2.0
+            Architecture: all
+            Description: Other package
+             Another test package
+            """;
+
+    @TempDir
+    private Path tempDir;
+
+    private Path repoDir;
+    private Path debianDir;
+    private Path stagingDir;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        this.repoDir = Files.createDirectories(this.tempDir.resolve("repo"));
+        this.debianDir = Files.createDirectories(this.tempDir.resolve("debian"));
+        this.stagingDir = Files.createDirectories(this.tempDir.resolve("staging"));
+
+        Files.writeString(this.debianDir.resolve("changelog"), """
+                test-package (1.2.3-4) unstable; urgency=low
+                  * Latest release
+                 -- Test User <tester@cthing.com>  Sat, 27 Nov 2021 16:03:03 -0800
+                """);
+        Files.createDirectories(this.stagingDir.resolve("usr/bin"));
+        Files.writeString(this.stagingDir.resolve("usr/bin/SampleFile"), "Hello World\n");
+    }
+
+    @Test
+    public void testReadPackageControl() throws IOException {
+        for (final Compression compression : new Compression[] { Compression.GZIP, Compression.NONE }) {
+            final Path deb = assemble(compression);
+            final ControlFile control = parse(AptIndex.readPackageControl(deb));
+            assertThat(control.getPackage()).isEqualTo("test-package");
+            assertThat(control.getVersion()).isEqualTo("1.2.3-4");
+            assertThat(control.get("Depends")).isEqualTo("libc6");
+        }
+
+        final Path bogus = this.tempDir.resolve("bogus.deb");
+        Files.writeString(bogus, "not a package");
+        assertThatExceptionOfType(IOException.class).isThrownBy(() -> AptIndex.readPackageControl(bogus));
+    }
+
+    @Test
+    public void testReadXzPackageControl() throws IOException {
+        final Path deb = recompressControl(assemble(Compression.NONE));
+        final ControlFile control = parse(AptIndex.readPackageControl(deb));
+        assertThat(control.getPackage()).isEqualTo("test-package");
+        assertThat(control.getVersion()).isEqualTo("1.2.3-4");
+
+        final AptIndex index = new AptIndex(this.repoDir);
+        index.update(Map.of());
+        assertThat(index.getIndexedCount()).isEqualTo(1);
+        assertThat(Files.readString(this.repoDir.resolve(AptIndex.PACKAGES))).contains("Package: test-package");
+    }
+
+    @Test
+    public void testUnreadablePackage() throws IOException {
+        assemble(Compression.GZIP);
+        Files.writeString(this.repoDir.resolve("bogus_1.0_all.deb"), "not a package");
+
+        final AptIndex index = new AptIndex(this.repoDir);
+        index.update(Map.of());
+        assertThat(index.getIndexedCount()).isEqualTo(1);
+        assertThat(Files.readString(this.repoDir.resolve(AptIndex.PACKAGES))).contains("Package: test-package")
+                                                                             .doesNotContain("bogus");
+    }
+
+    @Test
+    public void testGetInfoFile() {
+        assertThat(AptIndex.getInfoFile(Path.of("/repo/test_1.0_all.deb")))
+                .isEqualTo(Path.of("/repo/test_1.0_all.info"));
+    }
+
+    @Test
+    public void testUpdate() throws IOException {
+        final Path deb = assemble(Compression.GZIP);
+        final Checksums checksums = Checksums.of(deb);
+
+        final AptIndex index = new AptIndex(this.repoDir);
+        index.update(Map.of());
+        assertThat(index.getIndexedCount()).isEqualTo(1);
+
+        final byte[] packages = Files.readAllBytes(this.repoDir.resolve(AptIndex.PACKAGES));
+        final ControlFile stanza = parse(packages);
+        assertThat(stanza.getFieldNames()).containsExactly("Package", "Source", "Version", "Architecture",
+                                                           "Maintainer", "Installed-Size", "Depends", "Section",
+                                                           "Filename", "Size", "MD5sum", "SHA256", "Description");
+        assertThat(stanza.get("Filename")).isEqualTo("./test-package_1.2.3-4_all.deb");
+        assertThat(stanza.get("Size")).isEqualTo(Long.toString(checksums.size()));
+        assertThat(stanza.get("MD5sum")).isEqualTo(checksums.md5());
+        assertThat(stanza.get("SHA256")).isEqualTo(checksums.sha256());
+        assertThat(stanza.get("Description")).isEqualTo("Testing package\nA test package");
+
+        try (InputStream ins = new GZIPInputStream(Files.newInputStream(this.repoDir.resolve(AptIndex.PACKAGES_GZ)))) {
+            assertThat(ins.readAllBytes()).isEqualTo(packages);
+        }
+        try (InputStream ins =
+                     new XZCompressorInputStream(Files.newInputStream(this.repoDir.resolve(AptIndex.PACKAGES_XZ)))) {
+            assertThat(ins.readAllBytes()).isEqualTo(packages);
+        }
+
+        final Checksums packagesChecksums = Checksums.of(this.repoDir.resolve(AptIndex.PACKAGES));
+        final Checksums packagesGzChecksums = Checksums.of(this.repoDir.resolve(AptIndex.PACKAGES_GZ));
+        final Checksums packagesXzChecksums = Checksums.of(this.repoDir.resolve(AptIndex.PACKAGES_XZ));
+        final String release = Files.readString(this.repoDir.resolve(AptIndex.RELEASE), StandardCharsets.UTF_8);
+        assertThat(release).startsWith("Date: ")
+                           .contains(String.format(" %s %16d Packages\n", packagesChecksums.sha256(),
+                                                   packagesChecksums.size()))
+                           .contains(String.format(" %s %16d Packages.gz\n", packagesGzChecksums.md5(),
+                                                   packagesGzChecksums.size()))
+                           .contains(String.format(" %s %16d Packages.xz\n", packagesXzChecksums.md5(),
+                                                   packagesXzChecksums.size()))
+                           .contains(String.format(" %s %16d Packages.xz\n", packagesXzChecksums.sha256(),
+                                                   packagesXzChecksums.size()));
+    }
+
+    @Test
+    public void testIncrementalUpdate() throws IOException {
+        assemble(Compression.GZIP);
+        final AptIndex index = new AptIndex(this.repoDir);
+        index.update(Map.of());
+        assertThat(index.getIndexedCount()).isEqualTo(1);
+
+        // Nothing has changed so no packages are read
+        index.update(Map.of());
+        assertThat(index.getIndexedCount()).isEqualTo(0);
+        assertThat(Files.readString(this.repoDir.resolve(AptIndex.PACKAGES))).contains("Package: test-package");
+
+        // A new package is indexed using its information file, which need not be in the repository
+        final Path otherDeb = this.repoDir.resolve("other-package_2.0_all.deb");
+        Files.writeString(otherDeb, "not really a package");
+        final Path otherInfo = this.tempDir.resolve("other-package_2.0_all.info");
+        Files.writeString(otherInfo, OTHER_INFO);
+        index.update(Map.of(otherDeb.getFileName().toString(), otherInfo));
+        assertThat(index.getIndexedCount()).isEqualTo(1);
+        assertThat(Files.readString(this.repoDir.resolve(AptIndex.PACKAGES)))
+                .contains("Package: test-package", "Package: other-package", "Filename: ./other-package_2.0_all.deb")
+                .containsOnlyOnce("\n\n");
+
+        // A replaced package is indexed again
+        Files.move(otherInfo, AptIndex.getInfoFile(otherDeb));
+        Files.writeString(otherDeb, "still not a package");
+        Files.setLastModifiedTime(otherDeb, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        index.update(Map.of());
+        assertThat(index.getIndexedCount()).isEqualTo(1);
+        assertThat(Files.readString(this.repoDir.resolve(AptIndex.PACKAGES)))
+                .contains("SHA256: " + Checksums.of(otherDeb).sha256());
+
+        // A removed package is removed from the index
+        Files.delete(otherDeb);
+        index.update(Map.of());
+        assertThat(index.getIndexedCount()).isEqualTo(0);
+        assertThat(Files.readString(this.repoDir.resolve(AptIndex.PACKAGES)))
+                .contains("Package: test-package")
+                .doesNotContain("other-package");
+    }
+
+    @Test
+    public void testStanzasCarriedOver() throws IOException {
+        assemble(Compression.GZIP);
+        final AptIndex index = new AptIndex(this.repoDir);
+        index.update(Map.of());
+
+        // The stanzas of unchanged packages are reused exactly as written, without being parsed again
+        final Path packagesFile = this.repoDir.resolve(AptIndex.PACKAGES);
+        final String packages = Files.readString(packagesFile)
+                                     .replace("Package: test-package\n",
+                                              "Package: test-package\nX-Custom:   unusual   spacing\n");
+        Files.writeString(packagesFile, packages);
+
+        index.update(Map.of());
+        assertThat(index.getIndexedCount()).isEqualTo(0);
+        assertThat(Files.readString(packagesFile)).isEqualTo(packages);
+    }
+
+    @Test
+    public void testMissingState() throws IOException {
+        assemble(Compression.GZIP);
+        final AptIndex index = new AptIndex(this.repoDir);
+        index.update(Map.of());
+
+        Files.delete(this.repoDir.resolve(AptIndex.STATE));
+        index.update(Map.of());
+        assertThat(index.getIndexedCount()).isEqualTo(1);
+        assertThat(this.repoDir.resolve(AptIndex.STATE)).exists();
+    }
+
+    private Path assemble(final Compression compression) throws IOException {
+        final DebAssembler assembler = new DebAssembler(this.debianDir, "test-package", this.stagingDir, compression,
+                                                        1_638_042_324L);
+        final ControlFile control = assembler.assemble(parse(SOURCE_CONTROL.getBytes(StandardCharsets.UTF_8)),
+                                                       this.repoDir);
+        return this.repoDir.resolve(control.getPackageFilename());
+    }
+
+    // Compresses the control archive of an uncompressed package using xz, which is the dpkg-deb default
+    private static Path recompressControl(final Path deb) throws IOException {
+        final Path rewritten = deb.resolveSibling(deb.getFileName() + ".tmp");
+        try (ArArchiveInputStream ins = new ArArchiveInputStream(Files.newInputStream(deb));
+             ArArchiveOutputStream outs = new ArArchiveOutputStream(Files.newOutputStream(rewritten))) {
+            for (ArArchiveEntry entry = ins.getNextEntry(); entry != null; entry = ins.getNextEntry()) {
+                byte[] contents = ins.readAllBytes();
+                String name = entry.getName();
+                if ("control.tar".equals(name)) {
+                    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                    try (OutputStream xz = new XZCompressorOutputStream(compressed)) {
+                        xz.write(contents);
+                    }
+                    contents = compressed.toByteArray();
+                    name = "control.tar.xz";
+                }
+                outs.putArchiveEntry(new ArArchiveEntry(name, contents.length, 0, 0, entry.getMode(),
+                                                        entry.getLastModified()));
+                outs.write(contents);
+                outs.closeArchiveEntry();
+            }
+        }
+        Files.move(rewritten, deb, StandardCopyOption.REPLACE_EXISTING);
+        return deb;
+    }
+
+    private static ControlFile parse(final byte[] contents) {
+        return ControlFile.parse(new ByteArrayInputStream(contents));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+
+public class ControlFileReaderTest {
+
+    private static final String SOURCE_CONTROL = """
+            # Source package
+            Source: test-source
+            Maintainer: Test User <tester@cthing.com>
+
+            Package: test-package
+            Architecture: all
+            Description: Testing package
+             A test package
+             .
+             More details
+
+
+            Package: test-package-doc
+            Architecture: all
+            Description: Documentation
+            """;
+
+    @Test
+    public void testReadStream() throws IOException {
+        try (ControlFileReader reader = new ControlFileReader(toStream(SOURCE_CONTROL))) {
+            assertThat(reader.getOffset()).isEqualTo(-1);
+
+            assertThat(reader.hasNext()).isTrue();
+            final ControlFile source = reader.next();
+            assertThat(source.getFieldNames()).containsExactly("Source", "Maintainer");
+            assertThat(source.get("Source")).isEqualTo("test-source");
+            assertThat(reader.getOffset()).isEqualTo(SOURCE_CONTROL.indexOf("Source:"));
+
+            final ControlFile pkg = reader.next();
+            assertThat(pkg.getFieldNames()).containsExactly("Package", "Architecture", "Description");
+            assertThat(pkg.getPackage()).isEqualTo("test-package");
+            assertThat(pkg.get("Description")).isEqualTo("Testing package\nA test package\n\nMore details");
+            assertThat(reader.getOffset()).isEqualTo(SOURCE_CONTROL.indexOf("Package: test-package\n"));
+
+            final ControlFile doc = reader.next();
+            assertThat(doc.getPackage()).isEqualTo("test-package-doc");
+            assertThat(reader.getOffset()).isEqualTo(SOURCE_CONTROL.indexOf("Package: test-package-doc"));
+
+            assertThat(reader.hasNext()).isFalse();
+            assertThatExceptionOfType(NoSuchElementException.class).isThrownBy(reader::next);
+        }
+    }
+
+    @Test
+    public void testReadBuffer() throws IOException {
+        final byte[] contents = ("Ignored\n" + SOURCE_CONTROL).getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(contents.length);
+        buffer.put(contents).position("Ignored\n".length());
+
+        try (ControlFileReader reader = new ControlFileReader(buffer)) {
+            final List<String> packages = new ArrayList<>();
+            final List<Long> offsets = new ArrayList<>();
+            while (reader.hasNext()) {
+                packages.add(reader.next().getPackage());
+                offsets.add(reader.getOffset());
+            }
+            assertThat(packages).containsExactly(null, "test-package", "test-package-doc");
+            assertThat(offsets).containsExactly((long)SOURCE_CONTROL.indexOf("Source:"),
+                                                (long)SOURCE_CONTROL.indexOf("Package: test-package\n"),
+                                                (long)SOURCE_CONTROL.indexOf("Package: test-package-doc"));
+        }
+        assertThat(buffer.position()).isEqualTo("Ignored\n".length());
+    }
+
+    @Test
+    public void testCrLf() throws IOException {
+        try (ControlFileReader reader = new ControlFileReader(toStream("Package: a\r\nVersion: 1\r\n\r\nPackage: b"))) {
+            final ControlFile first = reader.next();
+            assertThat(first.getPackage()).isEqualTo("a");
+            assertThat(first.getVersion()).isEqualTo("1");
+            assertThat(reader.next().getPackage()).isEqualTo("b");
+            assertThat(reader.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void testLargeInput() {
+        // Many paragraphs and a value longer than the read buffer
+        final StringBuilder input = new StringBuilder();
+        final String longValue = "x".repeat(200_000);
+        for (int i = 0; i < 10_000; i++) {
+            input.append("Package: pkg").append(i).append('\n');
+            input.append("Version: 1.").append(i).append('\n');
+            if (i == 5000) {
+                input.append("Long: ").append(longValue).append('\n');
+            }
+            input.append('\n');
+        }
+
+        try (Stream<ControlFile> paragraphs = new ControlFileReader(toStream(input.toString())).stream()) {
+            final List<ControlFile> controlFiles = paragraphs.toList();
+            assertThat(controlFiles).hasSize(10_000);
+            assertThat(controlFiles.get(9999).getPackage()).isEqualTo("pkg9999");
+            assertThat(controlFiles.get(9999).getVersion()).isEqualTo("1.9999");
+            assertThat(controlFiles.get(5000).get("Long")).isEqualTo(longValue);
+        }
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        try (ControlFileReader reader = new ControlFileReader(toStream("\n# Comment\n\n"))) {
+            assertThat(reader.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+        try (ControlFileReader reader = new ControlFileReader(toStream("Package: a\n\n continued\n"))) {
+            assertThat(reader.next().getPackage()).isEqualTo("a");
+            assertThatExceptionOfType(GradleException.class).isThrownBy(reader::next)
+                                                            .withMessageContaining("line 3");
+        }
+    }
+
+    private static InputStream toStream(final String contents) {
+        return new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -5,7 +5,9 @@
 package org.cthing.gradle.plugins.deb;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import org.gradle.api.GradleException;
@@ -112,4 +114,121 @@ public class ControlFileTest {
         final InputStream ins = new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
         assertThatExceptionOfType(GradleException.class).isThrownBy(() -> ControlFile.parse(ins));
     }
+
+    @Test
+    public void testParseMultipleParagraphs() {
+        final String input = """
+                        Source: src
+                        Section: utils
+
+                        Package: pkg1
+                        Depends: libc6
+
+                        Package: pkg2
+                        Architecture: all
+                        """;
+
+        final ControlFile controlFile = ControlFile.parse(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        assertThat(controlFile.getFieldNames()).containsExactly("Source", "Section", "Package", "Depends",
+                                                                "Architecture");
+        assertThat(controlFile.getPackage()).isEqualTo("pkg2");
+
+        final ControlFile sourceFile = ControlFile.parseSource(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        assertThat(sourceFile.getFieldNames()).containsExactly("Source", "Section", "Package", "Depends");
+        assertThat(sourceFile.getPackage()).isEqualTo("pkg1");
+        assertThat(sourceFile.getArchitecture()).isNull();
+
+        final ControlFile binaryFile = ControlFile.parseSource(new ByteArrayInputStream("Package: pkg\n\nPackage: other\n".getBytes(StandardCharsets.UTF_8)));
+        assertThat(binaryFile.getPackage()).isEqualTo("pkg");
+    }
+
+    @Test
+    public void testWrite() {
+        final String input = """
+                        Package: pkg
+                        Version: 1.2.3
+                        Description: Summary
+                         Line 1
+                         .
+                          Indented line
+                        """;
+
+        final ControlFile controlFile = ControlFile.parse(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        assertThat(controlFile.getFieldNames()).containsExactly("Package", "Version", "Description");
+
+        final ByteArrayOutputStream outs = new ByteArrayOutputStream();
+        controlFile.write(outs);
+        assertThat(outs.toString(StandardCharsets.UTF_8)).isEqualTo(input);
+    }
+
+    @Test
+    public void testRemove() {
+        final ControlFile controlFile = new ControlFile();
+        controlFile.set("Package", "pkg");
+        assertThat(controlFile.remove("Package")).isEqualTo("pkg");
+        assertThat(controlFile.getPackage()).isNull();
+    }
+
+    @Test
+    public void testCaseInsensitive() {
+        final ControlFile controlFile = new ControlFile();
+        controlFile.set("package", "pkg");
+        controlFile.set("X-Custom", "value1");
+        controlFile.set("VERSION", "1.0");
+        controlFile.set("x-custom", "value2");
+
+        assertThat(controlFile.getFieldNames()).containsExactly("Package", "X-Custom", "Version");
+        assertThat(controlFile.getFieldNames().contains("PACKAGE")).isTrue();
+        assertThat(controlFile.getPackage()).isEqualTo("pkg");
+        assertThat(controlFile.get("PaCkAgE")).isEqualTo("pkg");
+        assertThat(controlFile.get("X-CUSTOM")).isEqualTo("value2");
+        assertThat(controlFile.getVersion()).isEqualTo("1.0");
+
+        assertThat(controlFile.remove("x-CUSTOM")).isEqualTo("value2");
+        assertThat(controlFile.getFieldNames()).containsExactly("Package", "Version");
+        assertThat(controlFile.remove("X-Custom")).isNull();
+    }
+
+    @Test
+    public void testManyFields() {
+        final ControlFile controlFile = new ControlFile();
+        for (int i = 0; i < 20; i++) {
+            controlFile.set("Field" + i, "Value" + i);
+        }
+        controlFile.remove("Field0");
+        controlFile.remove("Field10");
+
+        assertThat(controlFile.getFieldNames()).hasSize(18).startsWith("Field1", "Field2").endsWith("Field19");
+        assertThat(controlFile.get("Field9")).isEqualTo("Value9");
+        assertThat(controlFile.get("Field11")).isEqualTo("Value11");
+        assertThat(controlFile.get("Field10")).isNull();
+    }
+
+    @Test
+    public void testParseBuffer() {
+        final String input = """
+                        package: pkg
+                        Version:   1.2.3\s\s
+                        Description: Summary
+                         Line 1
+                        # Comment
+                         .
+                          Indented line
+                        X-Unicode: caf\u00e9
+                        version: 4.5.6
+                        """;
+
+        final byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        final ControlFile controlFile = new ControlFileReader(buffer).next();
+
+        assertThat(controlFile.getFieldNames()).containsExactly("Package", "Version", "Description", "X-Unicode");
+        assertThat(controlFile.getPackage()).isEqualTo("pkg");
+        assertThat(controlFile.getVersion()).isEqualTo("4.5.6");
+        assertThat(controlFile.get("description")).isEqualTo("Summary\nLine 1\n\n Indented line");
+        assertThat(controlFile.get("X-Unicode")).isEqualTo("caf\u00e9");
+
+        controlFile.set("Version", "7.8.9");
+        assertThat(controlFile.getVersion()).isEqualTo("7.8.9");
+    }
 }
@@ -5,6 +5,8 @@
 package org.cthing.gradle.plugins.deb;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -12,6 +14,8 @@ import java.util.function.Supplier;
 import org.cthing.projectversion.BuildType;
 import org.cthing.projectversion.ProjectVersion;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.tasks.Sync;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.testfixtures.ProjectBuilder;
 import org.jspecify.annotations.NonNull;
@@ -48,9 +52,51 @@ public class DebApplyTest {
                                                                                              DebTask.class);
         assertThat(taskProvider).hasValueSatisfying(task -> {
             assertThat(task.getDebianDir()).isEmpty();
-            assertThat(task.getDestinationDir()).contains(new File(this.buildDir, "distributions"));
+            assertThat(task.getDestinationDir()).contains(new File(this.buildDir, "distributions/generateDeb"));
             assertThat(task.getWorkingDir()).contains(new File(this.buildDir, "debian-build/generateDeb"));
+            assertThat(task.getManifestFile()).contains(new File(this.buildDir, "debian-manifests/generateDeb.json"));
             assertThat(task.getAdditionalVariables()).get(MAP).isEmpty();
+            assertThat(task.getBuildEngine()).contains(BuildEngine.DPKG);
+            assertThat(task.getCompression()).contains(Compression.GZIP);
+            assertThat(task.getIsolation()).contains(WorkerIsolation.NONE);
+            assertThat(task.getBuildTimeout()).contains(Duration.ofMinutes(60));
+            assertThat(task.getLintTimeout()).contains(Duration.ofMinutes(15));
+            assertThat(task.getToolService()).isPresent();
+            assertThat(task.getTemplateService()).isPresent();
+            assertThat(task.getStagingChecksums()).contains(false);
+        });
+    }
+
+    @Test
+    public void testArtifacts() {
+        final TaskProvider<@NonNull DebTask> taskProvider = this.project.getTasks().register("generateDeb",
+                                                                                             DebTask.class);
+        final DebTask task = taskProvider.get();
+        task.getDebianDir().set(new File("src/test/resources/simple-package/debian"));
+
+        final Set<File> artifacts = task.getArtifacts();
+        assertThat(artifacts).containsExactly(new File(this.buildDir,
+                                                       "distributions/generateDeb/test-package_1.2.3_amd64.deb"));
+        assertThat(task.getArtifacts()).isSameAs(artifacts);
+        assertThat(new File(this.buildDir, "debian-build/generateDeb")).doesNotExist();
+    }
+
+    @Test
+    public void testPublishPackages() {
+        final TaskProvider<@NonNull DebTask> taskProvider = this.project.getTasks().register("generateDeb",
+                                                                                             DebTask.class);
+        taskProvider.configure(task -> {
+            task.getDebianDir().set(new File("src/test/resources/simple-package/debian"));
+            // The native engine does not require the Debian packaging tools, so the package is always published
+            task.getBuildEngine().set(BuildEngine.NATIVE);
+        });
+
+        final TaskProvider<@NonNull DebPublishTask> publishProvider =
+                this.project.getTasks().named("publishDeb", DebPublishTask.class);
+        assertThat(publishProvider).hasValueSatisfying(task -> {
+            assertThat(task.getPackages().getFiles()).contains(new File(this.buildDir, "distributions/generateDeb"));
+            assertThat(new ArrayList<Task>(task.getTaskDependencies().getDependencies(task)))
+                    .containsExactly(taskProvider.get());
         });
     }
 
@@ -96,7 +142,8 @@ public class DebApplyTest {
                              .containsEntry("PROJECT_MAIN_RESOURCES_DIR",
                                             new File(this.buildDir, "resources/main").getAbsolutePath())
                              .containsEntry("PROJECT_PACKAGE_NAME", "foobar")
-                             .containsEntry("PROJECT_DEBIAN_DIR", "debian/foobar");
+                             .containsEntry("PROJECT_DEBIAN_DIR", "debian/foobar")
+                             .containsEntry("SOURCE_DATE_EPOCH", String.valueOf(version.getBuildDateMillis() / 1000));
         assertThat(variables.get("PROJECT_BUILD_DATE")).matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}Z");
         assertThat(variables.get("PROJECT_BUILD_YEAR")).matches("\\d{4}");
         assertThat(variables.get("PROJECT_CHANGELOG_DATE")).matches("\\w{3}, \\d{1,2} \\w{3} \\d{4} \\d{2}:\\d{2}:\\d{2} [+\\-]\\d{4}");
@@ -104,6 +151,55 @@ public class DebApplyTest {
         assertThat(variables.get("PROJECT_COMMIT")).isNotNull();
     }
 
+    @Test
+    public void testSourceDateEpoch() {
+        final ProjectVersion version = (ProjectVersion)this.project.getVersion();
+        final TaskProvider<@NonNull DebTask> taskProvider = this.project.getTasks().register("generateDeb",
+                                                                                             DebTask.class);
+        assertThat(taskProvider).hasValueSatisfying(task -> {
+            assertThat(task.getSourceDateEpoch()).contains(version.getBuildDateMillis() / 1000);
+
+            task.getSourceDateEpoch().set(1638042324L);
+            assertThat(task.createEnvironmentVariables("foobar")).containsEntry("SOURCE_DATE_EPOCH", "1638042324");
+        });
+    }
+
+    @Test
+    public void testPayload() {
+        final File payload1 = new File(this.buildDir, "libs/project.jar");
+        final File payload2 = this.project.file("src/dist/project.conf");
+        final String expected = payload1.getAbsolutePath() + " " + payload2.getAbsolutePath();
+        final TaskProvider<@NonNull DebTask> taskProvider = this.project.getTasks().register("generateDeb",
+                                                                                             DebTask.class);
+        assertThat(taskProvider).hasValueSatisfying(task -> {
+            task.getPayload().from(payload1, payload2);
+            assertThat(task.createTemplateVariables()).containsEntry("project_payload", expected);
+            assertThat(task.createEnvironmentVariables("foobar")).containsEntry("PROJECT_PAYLOAD", expected);
+        });
+    }
+
+    @Test
+    public void testContents() {
+        final TaskProvider<@NonNull DebTask> taskProvider = this.project.getTasks().register("generateDeb",
+                                                                                             DebTask.class);
+        assertThat(taskProvider).hasValueSatisfying(task -> {
+            assertThat(task.getContentsDir()).isEmpty();
+            assertThat(task.createEnvironmentVariables("foobar")).doesNotContainKey("PROJECT_CONTENTS_DIR");
+
+            task.contents(spec -> spec.into("opt/project", child -> child.from("build.gradle")));
+            task.contents(spec -> spec.into("etc/project", child -> child.from("project.conf")));
+            assertThat(task.getContentsDir()).contains(new File(this.buildDir, "debian-contents/generateDeb"));
+            assertThat(task.createEnvironmentVariables("foobar")).containsEntry("PROJECT_CONTENTS_DIR", ".contents");
+        });
+
+        final Task contentsTask = this.project.getTasks().getByName("generateDebContents");
+        assertThat(contentsTask).isInstanceOf(Sync.class);
+        assertThat(((Sync)contentsTask).getDestinationDir()).isEqualTo(new File(this.buildDir,
+                                                                                "debian-contents/generateDeb"));
+        assertThat(new ArrayList<Task>(taskProvider.get().getTaskDependencies().getDependencies(taskProvider.get())))
+                .contains(contentsTask);
+    }
+
     @Test
     public void testAdditionalVariables() {
         assertThat(this.project).hasExtensionWithType(DebExtension.class);
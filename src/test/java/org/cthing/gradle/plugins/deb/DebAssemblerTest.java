@@ -0,0 +1,194 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+
+public class DebAssemblerTest {
+
+    private static final String SOURCE_CONTROL = """
+            Source: test-source
+            Maintainer: Test User <tester@cthing.com>
+            Section: utils
+            Build-Depends: debhelper (>= 12)
+
+            Package: test-package
+            Architecture: all
+            Depends: ${misc:Depends}, libc6
+            XB-Cthing-Build-Number: 1234
+            XS-Source-Only: value
+            Description: Testing package
+             A test package
+            """;
+
+    @TempDir
+    private Path tempDir;
+
+    private Path debianDir;
+    private Path stagingDir;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        this.debianDir = Files.createDirectories(this.tempDir.resolve("debian"));
+        this.stagingDir = Files.createDirectories(this.tempDir.resolve("staging"));
+
+        Files.writeString(this.debianDir.resolve("control"), SOURCE_CONTROL);
+        Files.writeString(this.debianDir.resolve("changelog"), """
+                test-package (1.2.3-4) unstable; urgency=low
+                  * Latest release
+                 -- Test User <tester@cthing.com>  Sat, 27 Nov 2021 16:03:03 -0800
+                """);
+        Files.writeString(this.debianDir.resolve("postinst"), "#!/bin/sh\n#DEBHELPER#\nexit 0\n");
+
+        Files.createDirectories(this.stagingDir.resolve("usr/bin"));
+        Files.writeString(this.stagingDir.resolve("usr/bin/SampleFile"), "Hello World\n");
+        Files.createDirectories(this.stagingDir.resolve("etc"));
+        Files.writeString(this.stagingDir.resolve("etc/sample.conf"), "key=value\n");
+    }
+
+    @Test
+    public void testReadChangelogVersion() {
+        assertThat(DebAssembler.readChangelogVersion(this.debianDir.resolve("changelog"))).isEqualTo("1.2.3-4");
+    }
+
+    @Test
+    public void testParseChangelogVersion() {
+        assertThat(DebAssembler.parseChangelogVersion("\ntest-package (1:2.0-1) unstable; urgency=low\n", "changelog"))
+                .isEqualTo("1:2.0-1");
+        assertThatExceptionOfType(GradleException.class)
+                .isThrownBy(() -> DebAssembler.parseChangelogVersion("", "changelog"));
+    }
+
+    @Test
+    public void testReadChangelogVersionMissing() throws IOException {
+        final Path changelog = this.tempDir.resolve("badChangelog");
+        Files.writeString(changelog, "test-package unstable; urgency=low\n");
+        assertThatExceptionOfType(GradleException.class).isThrownBy(() -> DebAssembler.readChangelogVersion(changelog));
+    }
+
+    @Test
+    public void testResolveArchitecture() {
+        assertThat(DebAssembler.resolveArchitecture("all")).isEqualTo("all");
+        assertThat(DebAssembler.resolveArchitecture("amd64")).isEqualTo("amd64");
+        assertThat(DebAssembler.resolveArchitecture("any")).isEqualTo(DebAssembler.getHostArchitecture());
+        assertThat(DebAssembler.resolveArchitecture("linux-any")).isEqualTo(DebAssembler.getHostArchitecture());
+        assertThatExceptionOfType(GradleException.class).isThrownBy(() -> DebAssembler.resolveArchitecture(null));
+    }
+
+    @Test
+    public void testCreateBinaryControl() {
+        final DebAssembler assembler = new DebAssembler(this.debianDir, "test-package", this.stagingDir,
+                                                        Compression.GZIP, 0);
+        final ControlFile binaryControl = assembler.createBinaryControl(parse(SOURCE_CONTROL), "1.2.3-4", 12);
+
+        assertThat(binaryControl.getFieldNames()).containsExactly("Package", "Source", "Version", "Architecture",
+                                                                  "Maintainer", "Installed-Size", "Depends",
+                                                                  "Section", "Description", "Cthing-Build-Number");
+        assertThat(binaryControl.getPackage()).isEqualTo("test-package");
+        assertThat(binaryControl.get("Source")).isEqualTo("test-source");
+        assertThat(binaryControl.getVersion()).isEqualTo("1.2.3-4");
+        assertThat(binaryControl.getArchitecture()).isEqualTo("all");
+        assertThat(binaryControl.get("Installed-Size")).isEqualTo("12");
+        assertThat(binaryControl.get("Depends")).isEqualTo("libc6");
+        assertThat(binaryControl.get("Cthing-Build-Number")).isEqualTo("1234");
+        assertThat(binaryControl.get("Description")).isEqualTo("Testing package\nA test package");
+    }
+
+    @Test
+    public void testAssemble() throws IOException {
+        final DebAssembler assembler = new DebAssembler(this.debianDir, "test-package", this.stagingDir,
+                                                        Compression.GZIP, 1_638_042_324L);
+        final ControlFile binaryControl = assembler.assemble(parse(SOURCE_CONTROL), this.tempDir);
+        assertThat(binaryControl.getPackageFilename()).isEqualTo("test-package_1.2.3-4_all.deb");
+        assertThat(binaryControl.get("Installed-Size")).isEqualTo("5");
+
+        final byte[] contents = Files.readAllBytes(this.tempDir.resolve(binaryControl.getPackageFilename()));
+        assertThat(new String(contents, 0, 8, StandardCharsets.US_ASCII)).isEqualTo("!<arch>\n");
+        assertThat(readMemberNames(contents)).containsExactly("debian-binary", "control.tar.gz", "data.tar.gz");
+    }
+
+    @Test
+    public void testAssembleUncompressed() throws IOException {
+        final DebAssembler assembler = new DebAssembler(this.debianDir, "test-package", this.stagingDir,
+                                                        Compression.NONE, 1_638_042_324L);
+        final ControlFile binaryControl = assembler.assemble(parse(SOURCE_CONTROL), this.tempDir);
+
+        final byte[] contents = Files.readAllBytes(this.tempDir.resolve(binaryControl.getPackageFilename()));
+        assertThat(readMemberNames(contents)).containsExactly("debian-binary", "control.tar", "data.tar");
+        assertThat(new String(contents, StandardCharsets.UTF_8)).contains("./usr/bin/SampleFile", "Hello World",
+                                                                          "/etc/sample.conf", "usr/bin/SampleFile",
+                                                                          "Package: test-package");
+    }
+
+    @Test
+    public void testAssembleCompression() throws IOException {
+        for (final Compression compression : Compression.values()) {
+            final DebAssembler assembler = new DebAssembler(this.debianDir, "test-package", this.stagingDir,
+                                                            compression, 1_638_042_324L);
+            final Path outputDir = Files.createDirectories(this.tempDir.resolve("output-" + compression));
+            final ControlFile binaryControl = assembler.assemble(parse(SOURCE_CONTROL), outputDir);
+            final Path deb = outputDir.resolve(binaryControl.getPackageFilename());
+
+            final String extension = compression.getExtension();
+            assertThat(readMemberNames(Files.readAllBytes(deb)))
+                    .containsExactly("debian-binary", "control.tar" + extension, "data.tar" + extension);
+
+            final ControlFile control = ControlFile.parse(new ByteArrayInputStream(AptIndex.readPackageControl(deb)));
+            assertThat(control.getPackage()).isEqualTo("test-package");
+            assertThat(control.getVersion()).isEqualTo("1.2.3-4");
+            assertThat(control.get("Installed-Size")).isEqualTo("5");
+        }
+    }
+
+    @Test
+    public void testAssembleReproducible() throws IOException {
+        final DebAssembler assembler = new DebAssembler(this.debianDir, "test-package", this.stagingDir,
+                                                        Compression.GZIP, 1_638_042_324L);
+        final Path outputDir1 = Files.createDirectories(this.tempDir.resolve("output1"));
+        final ControlFile binaryControl = assembler.assemble(parse(SOURCE_CONTROL), outputDir1);
+
+        Files.setLastModifiedTime(this.stagingDir.resolve("usr/bin/SampleFile"), FileTime.fromMillis(1_000_000L));
+        Files.setLastModifiedTime(this.stagingDir.resolve("etc"), FileTime.fromMillis(2_000_000L));
+        final Path outputDir2 = Files.createDirectories(this.tempDir.resolve("output2"));
+        assembler.assemble(parse(SOURCE_CONTROL), outputDir2);
+
+        assertThat(outputDir2.resolve(binaryControl.getPackageFilename()))
+                .hasSameBinaryContentAs(outputDir1.resolve(binaryControl.getPackageFilename()));
+    }
+
+    private static ControlFile parse(final String control) {
+        final InputStream ins = new ByteArrayInputStream(control.getBytes(StandardCharsets.UTF_8));
+        return ControlFile.parse(ins);
+    }
+
+    private static List<String> readMemberNames(final byte[] contents) {
+        final List<String> names = new ArrayList<>();
+        int pos = 8;
+        while (pos < contents.length) {
+            final String header = new String(contents, pos, 60, StandardCharsets.US_ASCII);
+            names.add(header.substring(0, 16).trim());
+            final int size = Integer.parseInt(header.substring(48, 58).trim());
+            pos += 60 + size + (size % 2);
+        }
+        return names;
+    }
+}
@@ -4,6 +4,7 @@
  */
 package org.cthing.gradle.plugins.deb;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.Set;
 
@@ -39,6 +40,14 @@ public class DebExtensionTest {
         assertThat(this.extension.getAdditionalVariables()).get(MAP).hasSize(0);
         assertThat(this.extension.getLintianTags()).get(SET).hasSize(0);
         assertThat(this.extension.getLintianEnable()).contains(true);
+        assertThat(this.extension.getBuildEngine()).contains(BuildEngine.DPKG);
+        assertThat(this.extension.getIsolation()).contains(WorkerIsolation.NONE);
+        assertThat(this.extension.getBuildTimeout()).contains(Duration.ofMinutes(60));
+        assertThat(this.extension.getLintTimeout()).contains(Duration.ofMinutes(15));
+        assertThat(this.extension.getUploadParallelism()).contains(4);
+        assertThat(this.extension.getSkipExisting()).contains(false);
+        assertThat(this.extension.getUpdateIndex()).contains(true);
+        assertThat(this.extension.getOlderVersionPolicy()).contains(OlderVersionPolicy.ALLOW);
     }
 
     @Test
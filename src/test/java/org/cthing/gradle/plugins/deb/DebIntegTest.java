@@ -9,7 +9,9 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
 
@@ -32,6 +34,7 @@ import static org.junit.jupiter.params.provider.Arguments.arguments;
 public class DebIntegTest {
     private static final Path BASE_DIR = Path.of(System.getProperty("buildDir"), "integTest");
     private static final Path WORKING_DIR = Path.of(System.getProperty("projectDir"), "testkit");
+    private static final String PACKAGE_DIR = "build/distributions/generateDeb";
 
     static {
         try {
@@ -64,12 +67,12 @@ public class DebIntegTest {
         final BuildResult result = createGradleRunner(gradleVersion, "generateDeb").build();
         verifyBuild(result, "generateDeb");
 
-        final Path packageFile = this.projectDir.resolve("build/distributions/test-package_1.2.3_amd64.deb");
+        final Path packageFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.deb");
         assertThat(packageFile).isNotEmptyFile();
         assertThat(readPackageData(packageFile)).contains("./usr/bin/SampleFile");
         assertThat(readPackageControl(packageFile)).contains("./control", "./md5sums");
 
-        final Path infoFile = this.projectDir.resolve("build/distributions/test-package_1.2.3_amd64.info");
+        final Path infoFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.info");
         assertThat(infoFile).isNotEmptyFile();
     }
 
@@ -81,7 +84,7 @@ public class DebIntegTest {
         final BuildResult result = createGradleRunner(gradleVersion, "generateDeb").build();
         verifyBuild(result, "generateDeb");
 
-        final Path repoDir = this.projectDir.resolve("build/distributions");
+        final Path repoDir = this.projectDir.resolve(PACKAGE_DIR);
         assertThat(repoDir).isDirectoryContaining("regex:.*using-variables_0\\.1\\.0-\\d+\\_all\\.deb");
     }
 
@@ -93,7 +96,7 @@ public class DebIntegTest {
         final BuildResult result = createGradleRunner(gradleVersion, "generateDeb").build();
         verifyBuild(result, "generateDeb");
 
-        final Path packageFile = this.projectDir.resolve("build/distributions/test-package_1.2.3_amd64.deb");
+        final Path packageFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.deb");
         assertThat(packageFile).isNotEmptyFile();
         assertThat(readPackageData(packageFile)).contains("./usr/bin/SampleFile");
         assertThat(readPackageControl(packageFile)).contains("./control", "./md5sums");
@@ -107,7 +110,7 @@ public class DebIntegTest {
         final BuildResult result = createGradleRunner(gradleVersion, "generateDeb").build();
         verifyBuild(result, "generateDeb");
 
-        final Path packageFile = this.projectDir.resolve("build/distributions/test-package_1.2.3_amd64.deb");
+        final Path packageFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.deb");
         assertThat(packageFile).isNotEmptyFile();
         assertThat(readPackageData(packageFile)).contains("./usr/bin/SampleFile");
         assertThat(readPackageControl(packageFile)).contains("./control", "./md5sums", "./postinst",
@@ -122,7 +125,7 @@ public class DebIntegTest {
         final BuildResult result = createGradleRunner(gradleVersion, "generateDeb").build();
         verifyBuild(result, "generateDeb");
 
-        final Path packageFile = this.projectDir.resolve("build/distributions/test-package_1.2.3_amd64.deb");
+        final Path packageFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.deb");
         assertThat(packageFile).isNotEmptyFile();
         assertThat(readPackageData(packageFile)).contains("./usr/bin/SampleFile");
         assertThat(readPackageControl(packageFile)).contains("./control", "./md5sums", "./postinst",
@@ -137,7 +140,7 @@ public class DebIntegTest {
         final BuildResult result = createGradleRunner(gradleVersion, "generateDeb").build();
         verifyBuild(result, "generateDeb");
 
-        final Path packageFile = this.projectDir.resolve("build/distributions/test-package_1.2.3_amd64.deb");
+        final Path packageFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.deb");
         assertThat(packageFile).isNotEmptyFile();
         assertThat(readPackageData(packageFile)).contains("./usr/bin/SampleFile");
         assertThat(readPackageControl(packageFile)).contains("./control", "./md5sums", "./postinst",
@@ -164,7 +167,7 @@ public class DebIntegTest {
         final BuildResult result = createGradleRunner(gradleVersion, "generateDeb").build();
         verifyBuild(result, "generateDeb");
 
-        final Path packageFile = this.projectDir.resolve("build/distributions/test-package_1.2.3_amd64.deb");
+        final Path packageFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.deb");
         assertThat(packageFile).isNotEmptyFile();
         assertThat(readPackageData(packageFile)).contains("./usr/lib/SampleFile.py");
         assertThat(readPackageControl(packageFile)).contains("./control", "./md5sums");
@@ -178,12 +181,154 @@ public class DebIntegTest {
         final BuildResult result = createGradleRunner(gradleVersion, "generateDeb").build();
         verifyBuild(result, "generateDeb");
 
-        final Path packageFile = this.projectDir.resolve("build/distributions/test-package_1.2.3_amd64.deb");
+        final Path packageFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.deb");
         assertThat(packageFile).isNotEmptyFile();
         assertThat(readPackageData(packageFile)).contains("./usr/lib/SampleFile.py");
         assertThat(readPackageControl(packageFile)).contains("./control", "./md5sums");
     }
 
+    @ParameterizedTest
+    @MethodSource("gradleVersionProvider")
+    public void nativePackage(final String gradleVersion) throws IOException {
+        copyProject("native-package");
+
+        final BuildResult result = createGradleRunner(gradleVersion, "generateDeb").build();
+        verifyBuild(result, "generateDeb");
+
+        final Path packageFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.deb");
+        assertThat(packageFile).isNotEmptyFile();
+        assertThat(readPackageData(packageFile)).contains("./usr/bin/SampleFile");
+        assertThat(readPackageControl(packageFile)).contains("./control", "./md5sums");
+
+        final Path infoFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.info");
+        assertThat(infoFile).isNotEmptyFile();
+
+        final Path manifestFile = this.projectDir.resolve("build/debian-manifests/generateDeb.json");
+        final PackageManifest manifest = PackageManifest.read(manifestFile);
+        assertThat(manifest.getTimings()).containsKeys("stage", "build", "copy");
+        assertThat(manifest.getArtifacts()).extracting(PackageManifest.Artifact::file)
+                                           .containsExactly(packageFile.toFile(), infoFile.toFile());
+        assertThat(manifest.getArtifacts().get(0).checksums()).isEqualTo(Checksums.of(packageFile));
+    }
+
+    @ParameterizedTest
+    @MethodSource("gradleVersionProvider")
+    public void contentsPackage(final String gradleVersion) throws IOException {
+        copyProject("simple-package");
+        Files.writeString(this.projectDir.resolve("build.gradle.kts"), """
+
+                          debTask.contents {
+                              into("opt/sample") {
+                                  from("SampleFile.txt")
+                              }
+                          }
+                          """, StandardOpenOption.APPEND);
+
+        final BuildResult result = createGradleRunner(gradleVersion, "generateDeb").build();
+        verifyBuild(result, "generateDeb");
+        final BuildTask contentsTask = result.task(":generateDebContents");
+        assertThat(contentsTask).isNotNull();
+        assertThat(contentsTask.getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+
+        final Path packageFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.deb");
+        assertThat(packageFile).isNotEmptyFile();
+        assertThat(readPackageData(packageFile)).contains("./usr/bin/SampleFile", "./opt/sample/SampleFile.txt");
+    }
+
+    @ParameterizedTest
+    @MethodSource("gradleVersionProvider")
+    public void nativeContentsPackage(final String gradleVersion) throws IOException {
+        copyProject("native-package");
+        Files.writeString(this.projectDir.resolve("build.gradle.kts"), """
+
+                          debTask.stagingDir.set(null as File?)
+                          debTask.contents {
+                              into("usr/share/sample") {
+                                  from("staging/usr/bin")
+                              }
+                          }
+                          """, StandardOpenOption.APPEND);
+
+        final BuildResult result = createGradleRunner(gradleVersion, "generateDeb").build();
+        verifyBuild(result, "generateDeb");
+
+        final Path packageFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.deb");
+        assertThat(packageFile).isNotEmptyFile();
+        assertThat(readPackageData(packageFile)).contains("./usr/share/sample/SampleFile")
+                                                .doesNotContain("./usr/bin/SampleFile");
+    }
+
+    @ParameterizedTest
+    @MethodSource("gradleVersionProvider")
+    public void buildCache(final String gradleVersion) throws IOException {
+        copyProject("native-package");
+        Files.writeString(this.projectDir.resolve("build.gradle.kts"), "\ndebTask.projectVersion.set(\"1.2.3\")\n",
+                          StandardOpenOption.APPEND);
+        Files.writeString(this.projectDir.resolve("settings.gradle.kts"),
+                          "\nbuildCache { local { directory = file(\"build-cache\") } }\n", StandardOpenOption.APPEND);
+
+        final BuildResult result1 = createGradleRunner(gradleVersion, "generateDeb", "--build-cache").build();
+        verifyBuild(result1, "generateDeb");
+
+        final Path packageFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.deb");
+        final Path infoFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.info");
+        final Checksums checksums = Checksums.of(packageFile);
+        PathUtils.deleteDirectory(this.projectDir.resolve("build"));
+
+        final BuildResult result2 = createGradleRunner(gradleVersion, "generateDeb", "--build-cache").build();
+        final BuildTask task = result2.task(":generateDeb");
+        assertThat(task).isNotNull();
+        assertThat(task.getOutcome()).as(result2.getOutput()).isEqualTo(TaskOutcome.FROM_CACHE);
+        assertThat(Checksums.of(packageFile)).isEqualTo(checksums);
+        assertThat(infoFile).isNotEmptyFile();
+
+        final PackageManifest manifest =
+                PackageManifest.read(this.projectDir.resolve("build/debian-manifests/generateDeb.json"));
+        assertThat(manifest.getArtifacts()).extracting(PackageManifest.Artifact::file)
+                                           .containsExactly(packageFile.toFile(), infoFile.toFile());
+    }
+
+    @ParameterizedTest
+    @MethodSource("gradleVersionProvider")
+    public void parallelPackages(final String gradleVersion) throws IOException {
+        copyProject("native-package");
+        Files.writeString(this.projectDir.resolve("build.gradle.kts"), """
+
+                          tasks.register("generateOtherDeb", DebTask::class.java) {
+                              debianDir = file("debian")
+                              organization = "C Thing Software"
+                              buildEngine = BuildEngine.NATIVE
+                              lintianEnable.set(false)
+                              contents {
+                                  into("usr/share/other") {
+                                      from("staging/usr/bin")
+                                  }
+                              }
+                          }
+                          """, StandardOpenOption.APPEND);
+
+        final BuildResult result = createGradleRunner(gradleVersion, "generateDeb", "generateOtherDeb",
+                                                      "--parallel").build();
+        verifyBuild(result, "generateDeb");
+        verifyBuild(result, "generateOtherDeb");
+
+        final Path packageFile = this.projectDir.resolve(PACKAGE_DIR).resolve("test-package_1.2.3_amd64.deb");
+        assertThat(readPackageData(packageFile)).contains("./usr/bin/SampleFile")
+                                                .doesNotContain("./usr/share/other/SampleFile");
+        final Path otherPackageFile =
+                this.projectDir.resolve("build/distributions/generateOtherDeb/test-package_1.2.3_amd64.deb");
+        assertThat(readPackageData(otherPackageFile)).contains("./usr/share/other/SampleFile")
+                                                     .doesNotContain("./usr/bin/SampleFile");
+
+        for (final String taskName : List.of("generateDeb", "generateOtherDeb")) {
+            final PackageManifest manifest =
+                    PackageManifest.read(this.projectDir.resolve("build/debian-manifests/" + taskName + ".json"));
+            for (final PackageManifest.Artifact artifact : manifest.getArtifacts()) {
+                assertThat(Checksums.of(artifact.file().toPath())).isEqualTo(artifact.checksums());
+            }
+        }
+    }
+
     private Set<String> readPackageData(final Path packageFile) {
         final Set<String> files = new HashSet<>();
 
@@ -236,11 +381,11 @@ public class DebIntegTest {
         PathUtils.copyDirectory(Path.of(projectUrl.getPath()), this.projectDir);
     }
 
-    private GradleRunner createGradleRunner(final String gradleVersion, final String taskName) {
+    private GradleRunner createGradleRunner(final String gradleVersion, final String... arguments) {
         return GradleRunner.create()
                            .withProjectDir(this.projectDir.toFile())
                            .withTestKitDir(WORKING_DIR.toFile())
-                           .withArguments(taskName)
+                           .withArguments(arguments)
                            .withPluginClasspath()
                            .withGradleVersion(gradleVersion);
     }
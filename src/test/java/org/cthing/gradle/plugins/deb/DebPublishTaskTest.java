@@ -0,0 +1,318 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.gradle.api.Project;
+import org.gradle.api.tasks.TaskExecutionException;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+
+public class DebPublishTaskTest {
+
+    private static final int NUM_PACKAGES = 8;
+    private static final long UPLOAD_DELAY = 100;
+
+    @TempDir
+    private Path tempDir;
+
+    private HttpServer server;
+    private URI repoUri;
+    private DebPublishTask task;
+    private List<File> packages;
+    private final Set<String> uploads = ConcurrentHashMap.newKeySet();
+    private final Set<String> authorizations = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<String, String>> published = new ConcurrentHashMap<>();
+    private final AtomicInteger activeUploads = new AtomicInteger();
+    private final AtomicInteger maxActiveUploads = new AtomicInteger();
+
+    @BeforeEach
+    public void setup() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.createContext("/repository/apt/", this::handleUpload);
+        this.server.start();
+        this.repoUri = URI.create("http://localhost:" + this.server.getAddress().getPort() + "/repository/apt/");
+
+        final Project project = ProjectBuilder.builder().withProjectDir(this.tempDir.resolve("project").toFile())
+                                              .build();
+        this.task = project.getTasks().register("publishTest", DebPublishTask.class).get();
+        this.task.getRepositoryUsername().set("joe");
+        this.task.getRepositoryPassword().set("secret");
+
+        this.packages = new ArrayList<>();
+        for (int i = 0; i < NUM_PACKAGES; i++) {
+            final Path pkg = this.tempDir.resolve("test-package" + i + "_1.0_all.deb");
+            Files.writeString(pkg, "package " + i);
+            this.packages.add(pkg.toFile());
+        }
+    }
+
+    @AfterEach
+    public void teardown() {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void testPublishRemote() {
+        this.task.publishArtifacts(this.packages, this.repoUri);
+
+        assertThat(this.uploads).hasSize(NUM_PACKAGES).contains("package 0", "package 7");
+        final String auth = Base64.getEncoder().encodeToString("joe:secret".getBytes(StandardCharsets.UTF_8));
+        assertThat(this.authorizations).containsExactly("Basic " + auth);
+        assertThat(this.maxActiveUploads.get()).isGreaterThan(1)
+                                               .isLessThanOrEqualTo(DebPublishTask.DEFAULT_UPLOAD_PARALLELISM);
+    }
+
+    @Test
+    public void testPublishRemoteSerial() {
+        this.task.getUploadParallelism().set(1);
+        this.task.publishArtifacts(this.packages, this.repoUri);
+
+        assertThat(this.uploads).hasSize(NUM_PACKAGES);
+        assertThat(this.maxActiveUploads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testPublishRemoteFailures() throws IOException {
+        final Path bad1 = this.tempDir.resolve("bad1_1.0_all.deb");
+        Files.writeString(bad1, "fail");
+        final Path bad2 = this.tempDir.resolve("bad2_1.0_all.deb");
+        Files.writeString(bad2, "fail");
+        final List<File> artifacts = new ArrayList<>(this.packages);
+        artifacts.add(1, bad1.toFile());
+        artifacts.add(bad2.toFile());
+
+        assertThatExceptionOfType(TaskExecutionException.class)
+                .isThrownBy(() -> this.task.publishArtifacts(artifacts, this.repoUri))
+                .havingCause()
+                .withMessage("Unable to publish 2 of 10 artifacts")
+                .satisfies(ex -> assertThat(ex.getSuppressed()).hasSize(2));
+
+        // Failures do not prevent the remaining artifacts from being published
+        assertThat(this.uploads).hasSize(NUM_PACKAGES);
+    }
+
+    @Test
+    public void testPoolPath() {
+        assertThat(DebPublishTask.getPoolPath("test-package_1.0_all.deb"))
+                .isEqualTo("pool/t/test-package/test-package_1.0_all.deb");
+        assertThat(DebPublishTask.getPoolPath("Zip_1.0_all.deb")).isEqualTo("pool/z/Zip/Zip_1.0_all.deb");
+    }
+
+    @Test
+    public void testSkipExistingRemote() throws IOException {
+        final File pkg0 = this.packages.get(0);
+        final File pkg1 = this.packages.get(1);
+        final File pkg2 = this.packages.get(2);
+        final File pkg3 = this.packages.get(3);
+        this.published.put(pkg0.getName(), Map.of("X-Checksum-Sha256", Checksums.of(pkg0.toPath()).sha256()));
+        this.published.put(pkg1.getName(), Map.of("ETag", "\"{SHA1{" + sha1(pkg1) + "}}\""));
+        this.published.put(pkg2.getName(), Map.of("X-Checksum-Sha256", Checksums.of(pkg3.toPath()).sha256()));
+        this.published.put(pkg3.getName(), Map.of());
+
+        this.task.getSkipExisting().set(true);
+        this.task.publishArtifacts(this.packages, this.repoUri);
+
+        // Packages 0 and 1 are identical to those in the repository. Package 2 differs and the repository does
+        // not provide a checksum for package 3, so both are published.
+        assertThat(this.uploads).hasSize(NUM_PACKAGES - 2).doesNotContain("package 0", "package 1")
+                                .contains("package 2", "package 3");
+    }
+
+    @Test
+    public void testSkipExistingLocal() throws IOException {
+        final Path repoDir = Files.createDirectories(this.tempDir.resolve("repo"));
+        final Path existing = repoDir.resolve(this.packages.get(0).getName());
+        Files.writeString(existing, "package 0");
+        final Path different = repoDir.resolve(this.packages.get(1).getName());
+        Files.writeString(different, "package X");
+        final long existingModified = Files.getLastModifiedTime(existing).toMillis() - 10_000;
+        Files.setLastModifiedTime(existing, FileTime.fromMillis(existingModified));
+
+        this.task.getSkipExisting().set(true);
+        this.task.getUpdateIndex().set(false);
+        this.task.publishArtifacts(this.packages, repoDir.toUri());
+
+        assertThat(Files.getLastModifiedTime(existing).toMillis()).isEqualTo(existingModified);
+        assertThat(different).hasContent("package 1");
+    }
+
+    @Test
+    public void testPublishLocal() throws IOException {
+        final Path repoDir = Files.createDirectories(this.tempDir.resolve("repo"));
+        Files.writeString(repoDir.resolve(this.packages.get(0).getName()), "old package");
+        this.task.getUpdateIndex().set(false);
+        this.task.publishArtifacts(this.packages, repoDir.toUri());
+
+        for (final File pkg : this.packages) {
+            final Path published = repoDir.resolve(pkg.getName());
+            assertThat(published).hasSameTextualContentAs(pkg.toPath());
+
+            // The packages and repository are on the same filesystem so the packages are linked, not copied
+            assertThat(Files.isSameFile(published, pkg.toPath())).isTrue();
+        }
+        try (Stream<Path> files = Files.list(repoDir)) {
+            assertThat(files).hasSize(NUM_PACKAGES);
+        }
+
+        // Publishing again is a no-op
+        this.task.publishArtifacts(this.packages, repoDir.toUri());
+        assertThat(repoDir.resolve(this.packages.get(0).getName())).hasContent("package 0");
+    }
+
+    @Test
+    public void testPublishLocalIndex() throws IOException {
+        for (int i = 0; i < NUM_PACKAGES; i++) {
+            Files.writeString(AptIndex.getInfoFile(this.packages.get(i).toPath()), String.format("""
+                    Package: test-package%d
+                    Version: 1.0
+                    Architecture: all
+                    Description: Test package %d
+                    """, i, i));
+        }
+
+        final Path repoDir = this.tempDir.resolve("repo");
+        this.task.publishArtifacts(this.packages, repoDir.toUri());
+
+        assertThat(repoDir.resolve(AptIndex.PACKAGES_GZ)).exists();
+        assertThat(repoDir.resolve(AptIndex.PACKAGES_XZ)).exists();
+        assertThat(repoDir.resolve(AptIndex.RELEASE)).exists();
+        assertThat(Files.readString(repoDir.resolve(AptIndex.PACKAGES)))
+                .contains("Package: test-package0", "Filename: ./test-package0_1.0_all.deb",
+                          "Package: test-package7", "Filename: ./test-package7_1.0_all.deb");
+    }
+
+    @Test
+    public void testPublishLocalOlderVersion() throws IOException {
+        for (int i = 0; i < NUM_PACKAGES; i++) {
+            Files.writeString(AptIndex.getInfoFile(this.packages.get(i).toPath()), String.format("""
+                    Package: test-package%d
+                    Version: 1.0
+                    Architecture: all
+                    """, i));
+        }
+
+        final Path repoDir = Files.createDirectories(this.tempDir.resolve("repo"));
+        Files.writeString(repoDir.resolve(AptIndex.PACKAGES), """
+                Package: test-package0
+                Version: 1:0.5
+                Architecture: amd64
+
+                Package: test-package1
+                Version: 1.0~rc1
+                Architecture: all
+
+                Package: test-package2
+                Version: 1.0
+                Architecture: all
+                """);
+
+        final List<File> artifacts = new ArrayList<>(this.packages);
+        artifacts.add(AptIndex.getInfoFile(this.packages.get(0).toPath()).toFile());
+        artifacts.add(AptIndex.getInfoFile(this.packages.get(1).toPath()).toFile());
+
+        this.task.getUpdateIndex().set(false);
+        this.task.getOlderVersionPolicy().set(OlderVersionPolicy.FAIL);
+        assertThatExceptionOfType(TaskExecutionException.class)
+                .isThrownBy(() -> this.task.publishArtifacts(artifacts, repoDir.toUri()));
+        try (Stream<Path> files = Files.list(repoDir)) {
+            assertThat(files).containsExactly(repoDir.resolve(AptIndex.PACKAGES));
+        }
+
+        this.task.getOlderVersionPolicy().set(OlderVersionPolicy.SKIP);
+        this.task.publishArtifacts(artifacts, repoDir.toUri());
+        assertThat(repoDir.resolve("test-package0_1.0_all.deb")).doesNotExist();
+        assertThat(repoDir.resolve("test-package0_1.0_all.info")).doesNotExist();
+        assertThat(repoDir.resolve("test-package1_1.0_all.deb")).exists();
+        assertThat(repoDir.resolve("test-package1_1.0_all.info")).exists();
+        assertThat(repoDir.resolve("test-package2_1.0_all.deb")).exists();
+    }
+
+    private static String sha1(final File file) throws IOException {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(digest.digest(Files.readAllBytes(file.toPath())));
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    private void handleUpload(final HttpExchange exchange) throws IOException {
+        // On Java 17, the server closes the connection after a response without a body without saying so, which
+        // makes the client fail when it reuses the pooled connection.
+        exchange.getResponseHeaders().set("Connection", "close");
+
+        if ("HEAD".equals(exchange.getRequestMethod()) || "GET".equals(exchange.getRequestMethod())) {
+            handleProbe(exchange);
+            return;
+        }
+
+        try (exchange; InputStream ins = exchange.getRequestBody()) {
+            final int active = this.activeUploads.incrementAndGet();
+            this.maxActiveUploads.accumulateAndGet(active, Math::max);
+            final String body = new String(ins.readAllBytes(), StandardCharsets.UTF_8);
+            this.authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            try {
+                Thread.sleep(UPLOAD_DELAY);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            this.activeUploads.decrementAndGet();
+
+            if ("fail".equals(body)) {
+                exchange.sendResponseHeaders(500, -1);
+            } else {
+                this.uploads.add(body);
+                exchange.sendResponseHeaders(201, -1);
+            }
+        }
+    }
+
+    private void handleProbe(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final String path = exchange.getRequestURI().getPath();
+            final Map<String, String> headers = this.published.get(path.substring(path.lastIndexOf('/') + 1));
+            if (headers == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                headers.forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+                exchange.sendResponseHeaders(200, -1);
+            }
+        }
+    }
+}
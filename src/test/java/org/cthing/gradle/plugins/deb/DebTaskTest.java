@@ -4,16 +4,23 @@
  */
 package org.cthing.gradle.plugins.deb;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.Date;
 import java.util.concurrent.Callable;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.cthing.projectversion.BuildType;
 import org.cthing.projectversion.ProjectVersion;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 
 public class DebTaskTest {
@@ -23,6 +30,9 @@ public class DebTaskTest {
                                     + "(Jan|Feb|Mar|Apr|May|Jun|Jul|Aug|Sep|Oct|Nov|Dec) "
                                     + "\\d{4} \\d{2}:\\d{2}:\\d{2} [\\-+]\\d{4}");
 
+    @TempDir
+    private Path tempDir;
+
     @Test
     public void testGetChangelogDate() {
         final Date date = new Date(1638042324837L);
@@ -31,6 +41,43 @@ public class DebTaskTest {
         assertThat(DebTask.getChangelogDate(version)).matches(CHANGLOG_DATE_PATTERN);
     }
 
+    @Test
+    public void testGetSourceDateEpoch() {
+        final Date date = new Date(1638042324837L);
+        final ProjectVersion version = new ProjectVersion("1.2.3", BuildType.release, date);
+        assertThat(DebTask.getDefaultSourceDateEpoch(version, "1234")).isEqualTo(1638042324L);
+        assertThat(DebTask.getDefaultSourceDateEpoch("1.2.3", "1234")).isEqualTo(1234L);
+        assertThat(DebTask.getDefaultSourceDateEpoch("1.2.3", null)).isPositive();
+    }
+
+    @Test
+    public void testPublishArtifact() throws IOException {
+        final Path srcDir = Files.createDirectory(this.tempDir.resolve("src"));
+        final Path dstDir = Files.createDirectory(this.tempDir.resolve("dst"));
+        final Path src = Files.writeString(srcDir.resolve("test-package_1.2.3_amd64.deb"), "package contents");
+        final Path dst = dstDir.resolve("test-package_1.2.3_amd64.deb");
+        Files.writeString(dst, "previous package contents");
+
+        final Checksums checksums = DebTask.publishArtifact(src, dst);
+        assertThat(checksums).isEqualTo(Checksums.of(src));
+        assertThat(dst).hasContent("package contents");
+        try (Stream<Path> entries = Files.list(dstDir)) {
+            assertThat(entries).containsExactly(dst);
+        }
+    }
+
+    @Test
+    public void testPublishArtifactFailure() throws IOException {
+        final Path dstDir = Files.createDirectory(this.tempDir.resolve("dst"));
+        final Path dst = dstDir.resolve("test-package_1.2.3_amd64.deb");
+
+        assertThatExceptionOfType(NoSuchFileException.class)
+                .isThrownBy(() -> DebTask.publishArtifact(this.tempDir.resolve("missing.deb"), dst));
+        try (Stream<Path> entries = Files.list(dstDir)) {
+            assertThat(entries).isEmpty();
+        }
+    }
+
     @Test
     @SuppressWarnings("rawtypes")
     public void testStringize() {
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+
+public class DebianVersionTest {
+
+    @Test
+    public void testParse() {
+        final DebianVersion version = DebianVersion.parse("2:1.0-rc1-3ubuntu1");
+        assertThat(version.getEpoch()).isEqualTo(2);
+        assertThat(version.getUpstreamVersion()).isEqualTo("1.0-rc1");
+        assertThat(version.getRevision()).isEqualTo("3ubuntu1");
+        assertThat(version).hasToString("2:1.0-rc1-3ubuntu1");
+
+        final DebianVersion plain = DebianVersion.parse("1.2.3");
+        assertThat(plain.getEpoch()).isEqualTo(0);
+        assertThat(plain.getUpstreamVersion()).isEqualTo("1.2.3");
+        assertThat(plain.getRevision()).isEmpty();
+
+        final DebianVersion colons = DebianVersion.parse("1:2:3");
+        assertThat(colons.getEpoch()).isEqualTo(1);
+        assertThat(colons.getUpstreamVersion()).isEqualTo("2:3");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", ":1.0", "a:1.0", "1:", "1.0-", "-1", "1.0 beta", "1.0_1", "1.0-1:2", "99999999999:1" })
+    public void testParseInvalid(final String version) {
+        assertThatExceptionOfType(GradleException.class).isThrownBy(() -> DebianVersion.parse(version));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1.0, 1.1",
+            "1.0~rc1, 1.0",
+            "1.0~~, 1.0~",
+            "1.0, 1.0a",
+            "1.0a, 1.0+",
+            "1.0, 1.0.1",
+            "1.9, 1.10",
+            "9.9, 1:0.1",
+            "1.0-1, 1.0-2",
+            "1.0-9, 1.0-10",
+            "1.0-1, 1.0.1-0",
+            "1.0-1~bpo1, 1.0-1",
+            "1.0+dfsg-1, 1.0.1-1",
+            "2.30-0ubuntu1, 2.30-0ubuntu2",
+            "0.1, 1",
+            "A, a"
+    })
+    public void testCompare(final String older, final String newer) {
+        final DebianVersion olderVersion = DebianVersion.parse(older);
+        final DebianVersion newerVersion = DebianVersion.parse(newer);
+        assertThat(olderVersion).isLessThan(newerVersion);
+        assertThat(newerVersion).isGreaterThan(olderVersion);
+        assertThat(olderVersion).isNotEqualTo(newerVersion);
+        assertThat(DebianVersion.compare(older, newer)).isNegative();
+        assertThat(DebianVersion.compare(newer, older)).isPositive();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1.0, 1.0",
+            "1.0, 1.00",
+            "1.0, 0:1.0",
+            "1.0, 1.0-0",
+            "1.0-0, 0:1.00-00",
+            "1a, 1a0",
+            "001.2-03, 1.2-3"
+    })
+    public void testEquals(final String version1, final String version2) {
+        final DebianVersion v1 = DebianVersion.parse(version1);
+        final DebianVersion v2 = DebianVersion.parse(version2);
+        assertThat(v1).isEqualByComparingTo(v2);
+        assertThat(v1).isEqualTo(v2);
+        assertThat(v1).hasSameHashCodeAs(v2);
+        assertThat(DebianVersion.compare(version1, version2)).isZero();
+    }
+
+    @Test
+    public void testSort() {
+        final List<DebianVersion> versions = new ArrayList<>();
+        for (final String version : List.of("1:0.1", "1.0", "1.0-1", "1.0~rc1", "1.10", "1.2", "0.9+git1", "1.0a")) {
+            versions.add(DebianVersion.parse(version));
+        }
+        Collections.sort(versions);
+        assertThat(versions).extracting(DebianVersion::toString)
+                            .containsExactly("0.9+git1", "1.0~rc1", "1.0", "1.0-1", "1.0a", "1.2", "1.10", "1:0.1");
+    }
+}
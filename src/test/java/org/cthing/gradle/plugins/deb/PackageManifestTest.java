@@ -0,0 +1,66 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+
+public class PackageManifestTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void testChecksums() throws IOException {
+        final byte[] contents = "hello".getBytes(StandardCharsets.UTF_8);
+        final ByteArrayOutputStream outs = new ByteArrayOutputStream();
+        final Checksums checksums = Checksums.copy(new ByteArrayInputStream(contents), outs);
+
+        assertThat(outs.toByteArray()).isEqualTo(contents);
+        assertThat(checksums.size()).isEqualTo(5);
+        assertThat(checksums.sha256()).isEqualTo("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824");
+        assertThat(checksums.md5()).isEqualTo("5d41402abc4b2a76b9719d911017c592");
+
+        final Path file = this.tempDir.resolve("hello.txt");
+        Files.write(file, contents);
+        assertThat(Checksums.of(file)).isEqualTo(checksums);
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        final Path debFile = this.tempDir.resolve("test-package_1.2.3_amd64.deb");
+        Files.writeString(debFile, "package contents");
+        final Path infoFile = this.tempDir.resolve("test-package_1.2.3_amd64.info");
+        Files.writeString(infoFile, "Package: test-package\n");
+
+        final PackageManifest manifest = new PackageManifest();
+        manifest.addTiming("stage", 12);
+        manifest.addTiming("build", 3456);
+        manifest.addArtifact(new PackageManifest.Artifact(PackageManifest.TYPE_DEB, debFile.toFile(),
+                                                          Checksums.of(debFile), "test-package", "1.2.3", "amd64"));
+        manifest.addArtifact(new PackageManifest.Artifact(PackageManifest.TYPE_INFO, infoFile.toFile(),
+                                                          Checksums.of(infoFile), "test-package", "1.2.3", "amd64"));
+
+        final Path manifestFile = this.tempDir.resolve("manifests/generateDeb.json");
+        manifest.write(manifestFile);
+        assertThat(Files.readString(manifestFile)).contains("\"sha256\"", "\"architecture\": \"amd64\"",
+                                                           "\"file\": \"../test-package_1.2.3_amd64.deb\"");
+
+        final PackageManifest readManifest = PackageManifest.read(manifestFile);
+        assertThat(readManifest.getTimings()).containsExactly(entry("stage", 12L), entry("build", 3456L));
+        assertThat(readManifest.getArtifacts()).isEqualTo(manifest.getArtifacts());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+
+public class PackagesIndexTest {
+
+    private static final String AMD64_PACKAGES = """
+            Package: test-package
+            Version: 1.0-1
+            Architecture: amd64
+            Filename: ./test-package_1.0-1_amd64.deb
+            Description: Test package
+             First release
+
+            Package: other-package
+            Version: 2.0
+            Architecture: all
+            Filename: ./other-package_2.0_all.deb
+
+            Package: test-package
+            Version: 1.1-1
+            Architecture: amd64
+            Filename: ./test-package_1.1-1_amd64.deb
+            """;
+
+    private static final String ARM64_PACKAGES = """
+            Package: test-package
+            Version: 1.1-1
+            Architecture: arm64
+            Filename: ./test-package_1.1-1_arm64.deb
+
+            Source: not-a-package
+            """;
+
+    private static final String VERSIONED_PACKAGES = """
+            Package: test-package
+            Version: 1.10-1
+            Architecture: amd64
+
+            Package: test-package
+            Version: 1:0.5
+            Architecture: arm64
+
+            Package: test-package
+            Version: 1.9-1
+            Architecture: amd64
+
+            Package: test-package
+            Version: 2.0~rc1
+            Architecture: all
+
+            Package: test-package
+            Version: 1:0.5
+            Architecture: all
+            """;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void testIndex() throws IOException {
+        final Path amd64 = this.tempDir.resolve("Packages-amd64");
+        Files.writeString(amd64, AMD64_PACKAGES);
+        final Path arm64 = this.tempDir.resolve("Packages-arm64");
+        Files.writeString(arm64, ARM64_PACKAGES);
+
+        final PackagesIndex index = PackagesIndex.open(amd64, arm64);
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.getPackageNames()).containsExactlyInAnyOrder("test-package", "other-package");
+
+        final List<ControlFile> versions = index.find("test-package");
+        assertThat(versions).extracting(ControlFile::getVersion).containsExactly("1.0-1", "1.1-1", "1.1-1");
+        assertThat(versions).extracting(ControlFile::getArchitecture).containsExactly("amd64", "amd64", "arm64");
+        assertThat(versions.get(0).get("Description")).isEqualTo("Test package\nFirst release");
+        assertThat(versions.get(0).getFieldNames()).containsExactly("Package", "Version", "Architecture", "Filename",
+                                                                    "Description");
+
+        assertThat(index.find("test-package", "1.1-1")).extracting(pkg -> pkg.get("Filename"))
+                                                         .containsExactly("./test-package_1.1-1_amd64.deb",
+                                                                          "./test-package_1.1-1_arm64.deb");
+        assertThat(index.find("other-package", "2.0")).hasSize(1);
+        assertThat(index.find("other-package", "1.0")).isEmpty();
+        assertThat(index.find("missing-package")).isEmpty();
+
+        assertThat(index.contains("test-package", "1.0-1")).isTrue();
+        assertThat(index.contains("test-package", "1.2-1")).isFalse();
+        assertThat(index.contains("not-a-package", "1.0")).isFalse();
+    }
+
+    @Test
+    public void testFindNewest() throws IOException {
+        final Path packages = this.tempDir.resolve("Packages");
+        Files.writeString(packages, VERSIONED_PACKAGES);
+
+        final PackagesIndex index = PackagesIndex.open(packages);
+        final ControlFile newest = index.findNewest("test-package");
+        assertThat(newest).isNotNull();
+        assertThat(newest.getVersion()).isEqualTo("1:0.5");
+        assertThat(newest.getArchitecture()).isEqualTo("arm64");
+
+        final ControlFile newestAmd64 = index.findNewest("test-package", "amd64");
+        assertThat(newestAmd64).isNotNull();
+        assertThat(newestAmd64.getVersion()).isEqualTo("1:0.5");
+        assertThat(newestAmd64.getArchitecture()).isEqualTo("all");
+
+        final ControlFile newestAll = index.findNewest("test-package", "all");
+        assertThat(newestAll).isNotNull();
+        assertThat(newestAll.getArchitecture()).isEqualTo("arm64");
+
+        final ControlFile newestRiscv = index.findNewest("test-package", "riscv64");
+        assertThat(newestRiscv).isNotNull();
+        assertThat(newestRiscv.getVersion()).isEqualTo("1:0.5");
+
+        assertThat(index.findNewest("missing-package")).isNull();
+        assertThat(index.findNewest("missing-package", "amd64")).isNull();
+    }
+
+    @Test
+    public void testFindNewestArchitecture() throws IOException {
+        final Path packages = this.tempDir.resolve("Packages");
+        Files.writeString(packages, AMD64_PACKAGES + "\n" + ARM64_PACKAGES.replace("1.1-1", "1.2-1"));
+
+        final PackagesIndex index = PackagesIndex.open(packages);
+        final ControlFile newestAmd64 = index.findNewest("test-package", "amd64");
+        assertThat(newestAmd64).isNotNull();
+        assertThat(newestAmd64.getVersion()).isEqualTo("1.1-1");
+
+        final ControlFile newestArm64 = index.findNewest("test-package", "arm64");
+        assertThat(newestArm64).isNotNull();
+        assertThat(newestArm64.getVersion()).isEqualTo("1.2-1");
+
+        assertThat(index.findNewest("test-package", "riscv64")).isNull();
+        assertThat(index.findNewest("other-package", "riscv64")).isNotNull();
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        final Path empty = this.tempDir.resolve("Packages");
+        Files.writeString(empty, "");
+
+        final PackagesIndex index = PackagesIndex.open(empty);
+        assertThat(index.size()).isEqualTo(0);
+        assertThat(index.getPackageNames()).isEmpty();
+        assertThat(index.find("test-package")).isEmpty();
+        assertThat(index.findNewest("test-package")).isNull();
+    }
+
+    @Test
+    public void testMissing() {
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> PackagesIndex.open(this.tempDir.resolve("Packages")));
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class StagingSyncTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private Path srcDir;
+    private Path dstDir;
+    private Path manifest;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        this.srcDir = Files.createDirectories(this.tempDir.resolve("src"));
+        this.dstDir = this.tempDir.resolve("dst");
+        this.manifest = this.tempDir.resolve("staging.manifest");
+
+        Files.writeString(this.srcDir.resolve("rules"), "#!/usr/bin/make -f\n");
+        Files.writeString(this.srcDir.resolve("control"), "Source: ${name}\n");
+        Files.createDirectories(this.srcDir.resolve("source"));
+        Files.writeString(this.srcDir.resolve("source/format"), "3.0 (native)\n");
+        Files.createDirectories(this.srcDir.resolve("empty"));
+    }
+
+    @Test
+    public void testInitialSync() throws IOException {
+        final StagingSync sync = sync(false);
+
+        assertThat(sync.getCopiedCount()).isEqualTo(3);
+        assertThat(sync.getDeletedCount()).isZero();
+        assertThat(sync.getUnchangedCount()).isZero();
+        assertThat(this.dstDir.resolve("rules")).hasContent("#!/usr/bin/make -f");
+        assertThat(this.dstDir.resolve("source/format")).hasContent("3.0 (native)");
+        assertThat(this.dstDir.resolve("empty")).isEmptyDirectory();
+        assertThat(this.manifest).exists();
+    }
+
+    @Test
+    public void testExcludes() throws IOException {
+        final StagingSync sync = new StagingSync(this.manifest, false);
+        sync.sync(this.srcDir, this.dstDir, Set.of("control"));
+
+        assertThat(sync.getCopiedCount()).isEqualTo(2);
+        assertThat(this.dstDir.resolve("control")).doesNotExist();
+
+        Files.writeString(this.dstDir.resolve("control"), "Source: test\n");
+        sync.sync(this.srcDir, this.dstDir, Set.of("control"));
+        assertThat(this.dstDir.resolve("control")).hasContent("Source: test");
+    }
+
+    @Test
+    public void testUnchanged() throws IOException {
+        sync(false);
+        final StagingSync sync = sync(false);
+
+        assertThat(sync.getCopiedCount()).isZero();
+        assertThat(sync.getDeletedCount()).isZero();
+        assertThat(sync.getUnchangedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testChangedSource() throws IOException {
+        sync(false);
+        Files.writeString(this.srcDir.resolve("rules"), "#!/usr/bin/make -f\n%:\n\tdh $@\n");
+        final StagingSync sync = sync(false);
+
+        assertThat(sync.getCopiedCount()).isEqualTo(1);
+        assertThat(sync.getUnchangedCount()).isEqualTo(2);
+        assertThat(this.dstDir.resolve("rules")).hasContent("#!/usr/bin/make -f\n%:\n\tdh $@");
+    }
+
+    @Test
+    public void testChangedDestination() throws IOException {
+        sync(false);
+        Files.writeString(this.dstDir.resolve("source/format"), "modified by build\n");
+        final StagingSync sync = sync(false);
+
+        assertThat(sync.getCopiedCount()).isEqualTo(1);
+        assertThat(this.dstDir.resolve("source/format")).hasContent("3.0 (native)");
+    }
+
+    @Test
+    public void testTouchedSource() throws IOException {
+        final Path rules = this.srcDir.resolve("rules");
+
+        sync(false);
+        Files.setLastModifiedTime(rules, FileTime.fromMillis(Files.getLastModifiedTime(rules).toMillis() + 10_000));
+        assertThat(sync(false).getCopiedCount()).isEqualTo(1);
+
+        sync(true);
+        Files.setLastModifiedTime(rules, FileTime.fromMillis(Files.getLastModifiedTime(rules).toMillis() + 10_000));
+        final StagingSync sync = sync(true);
+        assertThat(sync.getCopiedCount()).isZero();
+        assertThat(sync.getUnchangedCount()).isEqualTo(3);
+        assertThat(Files.getLastModifiedTime(this.dstDir.resolve("rules"))).isEqualTo(Files.getLastModifiedTime(rules));
+    }
+
+    @Test
+    public void testRemoved() throws IOException {
+        sync(false);
+        Files.createDirectories(this.dstDir.resolve("pkg/usr/bin"));
+        Files.writeString(this.dstDir.resolve("pkg/usr/bin/app"), "app");
+        Files.writeString(this.dstDir.resolve("files"), "app_1.0_all.deb");
+        Files.delete(this.srcDir.resolve("source/format"));
+        Files.delete(this.srcDir.resolve("source"));
+
+        final StagingSync sync = sync(false);
+        assertThat(sync.getDeletedCount()).isEqualTo(3);
+        assertThat(this.dstDir.resolve("pkg")).doesNotExist();
+        assertThat(this.dstDir.resolve("files")).doesNotExist();
+        assertThat(this.dstDir.resolve("source")).doesNotExist();
+        assertThat(this.dstDir.resolve("rules")).exists();
+    }
+
+    @Test
+    public void testCorruptManifest() throws IOException {
+        sync(false);
+        Files.writeString(this.manifest, "rules\tgarbage\n");
+
+        final StagingSync sync = sync(false);
+        assertThat(sync.getCopiedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testLinkFiles() throws IOException {
+        final StagingSync sync = new StagingSync(this.manifest, false, true);
+        sync.sync(this.srcDir, this.dstDir, Set.of());
+        sync.save();
+
+        assertThat(sync.getCopiedCount()).isEqualTo(3);
+        assertThat(Files.isSameFile(this.srcDir.resolve("rules"), this.dstDir.resolve("rules"))).isTrue();
+        assertThat(Files.isSameFile(this.srcDir.resolve("source/format"), this.dstDir.resolve("source/format"))).isTrue();
+        assertThat(this.dstDir.resolve("empty")).isEmptyDirectory();
+
+        Files.delete(this.srcDir.resolve("rules"));
+        Files.writeString(this.srcDir.resolve("rules"), "#!/usr/bin/make -f\n\n%:\n");
+        final StagingSync sync2 = new StagingSync(this.manifest, false, true);
+        sync2.sync(this.srcDir, this.dstDir, Set.of());
+        assertThat(sync2.getCopiedCount()).isEqualTo(1);
+        assertThat(sync2.getUnchangedCount()).isEqualTo(2);
+        assertThat(Files.isSameFile(this.srcDir.resolve("rules"), this.dstDir.resolve("rules"))).isTrue();
+        assertThat(this.dstDir.resolve("rules")).hasContent("#!/usr/bin/make -f\n\n%:");
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        final StagingSync sync = new StagingSync(this.manifest, false);
+        final Path file = this.tempDir.resolve("control");
+        final byte[] contents = "Source: test\n".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(sync.write(file, contents)).isTrue();
+        assertThat(sync.write(file, contents)).isFalse();
+        assertThat(sync.write(file, "Source: other\n".getBytes(StandardCharsets.UTF_8))).isTrue();
+        assertThat(file).hasContent("Source: other");
+        assertThat(sync.getCopiedCount()).isEqualTo(2);
+        assertThat(sync.getUnchangedCount()).isEqualTo(1);
+    }
+
+    private StagingSync sync(final boolean hashContents) throws IOException {
+        final StagingSync sync = new StagingSync(this.manifest, hashContents);
+        sync.sync(this.srcDir, this.dstDir, Set.of());
+        sync.save();
+        return sync;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class TarWriterTest {
+
+    @Test
+    public void testLongPathname() throws IOException {
+        final String dir = "./opt/app/" + "node_modules/some-package/".repeat(12);
+        final String file = dir + "index.js";
+        final String unicodeFile = "./usr/share/" + "é".repeat(120);
+        assertThat(file.length()).isGreaterThan(255);
+
+        final ByteArrayOutputStream outs = new ByteArrayOutputStream();
+        try (TarWriter tar = new TarWriter(outs)) {
+            tar.addDirectory(dir, 0755, 1000);
+            tar.addFile(file, 0644, 1000, "Hello World\n".getBytes(StandardCharsets.UTF_8));
+            tar.addFile(unicodeFile, 0644, 1000, new byte[0]);
+            tar.addFile("./usr/bin/SampleFile", 0755, 1000, new byte[0]);
+        }
+
+        try (TarArchiveInputStream ins = new TarArchiveInputStream(new ByteArrayInputStream(outs.toByteArray()),
+                                                                     StandardCharsets.UTF_8.name())) {
+            TarArchiveEntry entry = ins.getNextEntry();
+            assertThat(entry.getName()).isEqualTo(dir);
+            assertThat(entry.isDirectory()).isTrue();
+
+            entry = ins.getNextEntry();
+            assertThat(entry.getName()).isEqualTo(file);
+            assertThat(entry.getMode() & 0777).isEqualTo(0644);
+            assertThat(new String(ins.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("Hello World\n");
+
+            assertThat(ins.getNextEntry().getName()).isEqualTo(unicodeFile);
+            assertThat(ins.getNextEntry().getName()).isEqualTo("./usr/bin/SampleFile");
+            assertThat(ins.getNextEntry()).isNull();
+        }
+    }
+
+    @Test
+    public void testLongLinkTarget() throws IOException {
+        final String target = "../".repeat(4) + "opt/app/" + "lib/".repeat(30) + "tool";
+        assertThat(target.length()).isGreaterThan(100);
+
+        final ByteArrayOutputStream outs = new ByteArrayOutputStream();
+        try (TarWriter tar = new TarWriter(outs)) {
+            tar.addSymlink("./usr/bin/tool", target, 1000);
+            tar.addSymlink("./usr/bin/short", "tool", 1000);
+        }
+
+        try (TarArchiveInputStream ins = new TarArchiveInputStream(new ByteArrayInputStream(outs.toByteArray()),
+                                                                     StandardCharsets.UTF_8.name())) {
+            TarArchiveEntry entry = ins.getNextEntry();
+            assertThat(entry.getName()).isEqualTo("./usr/bin/tool");
+            assertThat(entry.isSymbolicLink()).isTrue();
+            assertThat(entry.getLinkName()).isEqualTo(target);
+
+            entry = ins.getNextEntry();
+            assertThat(entry.getName()).isEqualTo("./usr/bin/short");
+            assertThat(entry.getLinkName()).isEqualTo("tool");
+            assertThat(ins.getNextEntry()).isNull();
+        }
+    }
+}
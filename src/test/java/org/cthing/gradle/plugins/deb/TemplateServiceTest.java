@@ -0,0 +1,97 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.gradle.api.services.BuildServiceParameters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class TemplateServiceTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private TemplateService service;
+
+    @BeforeEach
+    public void setup() {
+        this.service = new TemplateService() {
+            @Override
+            public BuildServiceParameters.None getParameters() {
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void testProcess() throws IOException, TemplateException {
+        final File file = write("control", "Source: ${project_name}\n");
+        final Template template = this.service.getTemplate(file);
+        final StringWriter writer = new StringWriter();
+        template.process(Map.of("project_name", "test"), writer);
+        assertThat(writer.toString()).isEqualTo("Source: test\n");
+    }
+
+    @Test
+    public void testSharedTemplates() throws IOException {
+        final File file1 = write("control1", "Source: ${project_name}\n");
+        final File file2 = write("control2", "Source: ${project_name}\n");
+        final File file3 = write("copyright", "Copyright ${build_year}\n");
+
+        final Template template1 = this.service.getTemplate(file1);
+        assertThat(this.service.getTemplate(file1)).isSameAs(template1);
+        assertThat(this.service.getTemplate(file2)).isSameAs(template1);
+        assertThat(this.service.getTemplate(file3)).isNotSameAs(template1);
+        assertThat(this.service.getTemplateCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testTemplateDirectories() throws IOException, TemplateException {
+        final File file1 = write("project1/control", "<#include \"fields\">");
+        final File file2 = write("project2/control", "<#include \"fields\">");
+        write("project1/fields", "Source: one\n");
+        write("project2/fields", "Source: two\n");
+
+        final Template template1 = this.service.getTemplate(file1);
+        final Template template2 = this.service.getTemplate(file2);
+        assertThat(template2).isNotSameAs(template1);
+        assertThat(this.service.getTemplateCount()).isEqualTo(2);
+
+        final StringWriter writer = new StringWriter();
+        template2.process(Map.of(), writer);
+        assertThat(writer.toString()).isEqualTo("Source: two\n");
+    }
+
+    @Test
+    public void testModifiedTemplate() throws IOException {
+        final File file = write("control", "Source: ${project_name}\n");
+        final Template template = this.service.getTemplate(file);
+
+        Files.writeString(file.toPath(), "Source: ${project_group}\n");
+        assertThat(this.service.getTemplate(file)).isNotSameAs(template);
+        assertThat(this.service.getTemplateCount()).isEqualTo(2);
+    }
+
+    private File write(final String name, final String contents) throws IOException {
+        final Path file = this.tempDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, contents);
+        return file.toFile();
+    }
+}
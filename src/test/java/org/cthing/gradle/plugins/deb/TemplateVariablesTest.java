@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+
+public class TemplateVariablesTest {
+
+    @Test
+    public void testValues() {
+        final TemplateVariables variables = new TemplateVariables();
+        assertThat(variables.isEmpty()).isTrue();
+
+        variables.put("abc", "def");
+        variables.put("none", null);
+        variables.putDeferred("number", 17);
+        assertThat(variables.isEmpty()).isFalse();
+        assertThat(variables.getValue("abc")).isEqualTo("def");
+        assertThat(variables.getValue("none")).isNull();
+        assertThat(variables.getValue("number")).isEqualTo("17");
+        assertThat(variables.getValue("missing")).isNull();
+        assertThat(variables.getNames()).containsExactly("abc", "none", "number");
+        assertThat(variables.toMap()).containsOnly(entry("abc", "def"), entry("none", null), entry("number", "17"));
+    }
+
+    @Test
+    public void testDeferred() {
+        final AtomicInteger supplierCount = new AtomicInteger();
+        final AtomicInteger callableCount = new AtomicInteger();
+        final TemplateVariables variables = new TemplateVariables();
+        variables.put("abc", "def");
+        variables.putDeferred("supplied", (Supplier<String>)() -> "s" + supplierCount.incrementAndGet());
+        variables.putDeferred("called", (Callable<String>)() -> "c" + callableCount.incrementAndGet());
+
+        assertThat(variables.isComputed("abc")).isFalse();
+        assertThat(variables.isComputed("supplied")).isTrue();
+        assertThat(variables.isComputed("called")).isTrue();
+        assertThat(supplierCount).hasValue(0);
+        assertThat(callableCount).hasValue(0);
+
+        assertThat(variables.getValue("supplied")).isEqualTo("s1");
+        assertThat(variables.getValue("supplied")).isEqualTo("s1");
+        assertThat(supplierCount).hasValue(1);
+        assertThat(callableCount).hasValue(0);
+
+        assertThat(variables.toMap()).containsOnly(entry("abc", "def"), entry("supplied", "s1"),
+                                                   entry("called", "c1"));
+        assertThat(supplierCount).hasValue(1);
+        assertThat(callableCount).hasValue(1);
+    }
+
+    @Test
+    public void testTemplate() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        final TemplateVariables variables = new TemplateVariables();
+        variables.put("abc", "def");
+        variables.putDeferred("used", (Supplier<String>)() -> "u" + count.incrementAndGet());
+        variables.putDeferred("unused", (Supplier<String>)() -> {
+            throw new IllegalStateException("Should not be called");
+        });
+
+        final Template template = new Template("test", new StringReader("${abc} ${used} ${used} ${missing!'xyz'}"),
+                                               new Configuration(Configuration.VERSION_2_3_28));
+        final StringWriter writer = new StringWriter();
+        template.process(variables, writer);
+        assertThat(writer).hasToString("def u1 u1 xyz");
+        assertThat(count).hasValue(1);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2025 C Thing Software
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.cthing.gradle.plugins.deb;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.gradle.api.logging.LogLevel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class ToolRunnerTest {
+
+    private static final String SHELL = "/bin/sh";
+
+    @Test
+    @Timeout(60)
+    public void testLargeOutput() throws IOException, InterruptedException {
+        // Enough output on both streams to fill the pipes several times over.
+        final String script = "i=0; while [ $i -lt 20000 ]; do echo \"out $i\"; echo \"err $i\" >&2; i=$((i+1)); done";
+        final ToolRunner runner = new ToolRunner(LogLevel.DEBUG, LogLevel.DEBUG, 10);
+        final ToolRunner.Result result = runner.run(new ProcessBuilder(SHELL, "-c", script));
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.tool()).isEqualTo(SHELL);
+        assertThat(result.tail().lines()).hasSize(10).anyMatch(line -> line.endsWith(" 19999"));
+    }
+
+    @Test
+    public void testFailure() throws IOException, InterruptedException {
+        final ToolRunner runner = new ToolRunner(LogLevel.INFO, LogLevel.INFO);
+        final ToolRunner.Result result = runner.run(new ProcessBuilder(SHELL, "-c", "echo problem >&2; exit 3"));
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.exitStatus()).isEqualTo(3);
+        assertThat(result.getFailureMessage()).isEqualTo(SHELL + " failed with exit status 3\nproblem");
+    }
+
+    @Test
+    public void testNoOutput() throws IOException, InterruptedException {
+        final ToolRunner runner = new ToolRunner(LogLevel.INFO, LogLevel.INFO, 0);
+        final ToolRunner.Result result = runner.run(new ProcessBuilder(SHELL, "-c", "echo hello; exit 1"));
+
+        assertThat(result.tail()).isEmpty();
+        assertThat(result.getFailureMessage()).isEqualTo(SHELL + " failed with exit status 1");
+    }
+
+    @Test
+    public void testLongLine() throws IOException, InterruptedException {
+        final ToolRunner runner = new ToolRunner(LogLevel.INFO, LogLevel.INFO);
+        final ToolRunner.Result result = runner.run(new ProcessBuilder(SHELL, "-c",
+                                                                       "head -c 100000 /dev/zero | tr '\\0' x"));
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.tail()).isEqualTo("x".repeat(1024));
+    }
+
+    @Test
+    @Timeout(60)
+    public void testTimeout() throws IOException, InterruptedException {
+        final ToolRunner runner = new ToolRunner(LogLevel.INFO, LogLevel.INFO);
+        final ToolRunner.Result result = runner.run(new ProcessBuilder(SHELL, "-c", "echo started; sleep 300"),
+                                                    Duration.ofSeconds(1));
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.timeout()).isEqualTo(Duration.ofSeconds(1));
+        assertThat(result.getFailureMessage()).isEqualTo(SHELL + " did not complete within 1 seconds\nstarted");
+    }
+
+    @Test
+    public void testNoTimeout() throws IOException, InterruptedException {
+        final ToolRunner runner = new ToolRunner(LogLevel.INFO, LogLevel.INFO);
+        assertThat(runner.run(new ProcessBuilder(SHELL, "-c", "exit 0"), Duration.ZERO).isSuccess()).isTrue();
+        assertThat(runner.run(new ProcessBuilder(SHELL, "-c", "exit 0"), null).isSuccess()).isTrue();
+    }
+
+    @Test
+    @Timeout(60)
+    public void testInterrupt() throws InterruptedException {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final ToolRunner runner = new ToolRunner(LogLevel.INFO, LogLevel.INFO);
+        final Thread thread = new Thread(() -> {
+            try {
+                runner.run(new ProcessBuilder(SHELL, "-c", "sleep 300"));
+            } catch (final IOException | InterruptedException ex) {
+                failure.set(ex);
+            }
+        });
+        thread.start();
+        Thread.sleep(500);
+        thread.interrupt();
+        thread.join();
+
+        assertThat(failure.get()).isInstanceOf(InterruptedException.class);
+    }
+
+    @Test
+    @Timeout(60)
+    public void testDestroyTree() throws IOException, InterruptedException {
+        // The shell ignores the termination request so that it must be forcibly terminated.
+        final Process process = new ProcessBuilder(SHELL, "-c", "sleep 300 & trap '' TERM; sleep 301").start();
+        while (process.descendants().count() < 2) {
+            Thread.sleep(50);
+        }
+        final List<ProcessHandle> descendants = process.descendants().toList();
+
+        ToolRunner.destroyTree(process);
+
+        assertThat(process.waitFor(10, TimeUnit.SECONDS)).isTrue();
+        for (final ProcessHandle descendant : descendants) {
+            assertThat(descendant.onExit()).succeedsWithin(Duration.ofSeconds(10));
+        }
+    }
+}